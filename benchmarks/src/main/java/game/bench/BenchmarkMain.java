@@ -0,0 +1,24 @@
+package game.bench;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.Main;
+
+// Entry point of benchmarks.jar: the usual JMH command line, but results are written as
+// jmh-result.json unless the caller picks a result format of their own.
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean formatGiven = Arrays.stream(args).anyMatch(arg -> arg.equals("-rf") || arg.equals("-rff"));
+        if (formatGiven) {
+            Main.main(args);
+            return;
+        }
+        String[] withJson = Arrays.copyOf(args, args.length + 2);
+        withJson[args.length] = "-rf";
+        withJson[args.length + 1] = "json";
+        Main.main(withJson);
+    }
+}
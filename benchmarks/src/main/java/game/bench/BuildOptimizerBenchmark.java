@@ -0,0 +1,88 @@
+package game.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.BuildOptimizer;
+import game.BuildOptimizer.Build;
+import game.BuildOptimizer.Piece;
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Exact top-5 search over a random six-slot catalogue against three targets, by catalogue size and pool
+// size. One search takes seconds to minutes, so each is timed once; the pool is made per trial and a
+// fresh optimizer per search, since its counters accumulate. The 10k-piece catalogue takes minutes per
+// search on one core: -p items=10000 runs it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BuildOptimizerBenchmark {
+    private static final int SLOTS = 6;
+    private static final int K = 5;
+
+    @Param({"1000", "2500", "5000"})
+    public int items;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private List<Piece> catalogue;
+    private Unit attacker;
+    private final List<Unit> targets = new ArrayList<>();
+    private Skill skill;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        catalogue = BuildOptimizer.randomCatalogue(items, SLOTS, 42L);
+        attacker = new Unit("Attacker");
+        attacker.element = Element.FIRE;
+        attacker.baseAtk = 900.0;
+        attacker.baseHp = 9000.0;
+        attacker.baseDef = 600.0;
+        attacker.baseSpd = 100.0;
+        attacker.critRate = 0.15;
+        for (Element element : new Element[] {Element.WIND, Element.WATER, Element.DARK}) {
+            Unit target = new Unit("Target " + element);
+            target.element = element;
+            target.baseHp = 12000.0;
+            target.baseDef = 700.0;
+            targets.add(target);
+        }
+        skill = new Skill("Strike", 1.0, ScalingMode.ATK_COEF);
+        skill.coef = 3.4;
+        skill.hits = 2;
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Build> optimize() {
+        return new BuildOptimizer(attacker, targets, skill, FormulaType.SUMMONER_WAR_LIKE).optimize(catalogue, K, pool);
+    }
+}
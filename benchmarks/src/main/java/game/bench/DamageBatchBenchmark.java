@@ -0,0 +1,106 @@
+package game.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.DamageCalculation;
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Scores the same random attacker/defender/skill rows once through calculateDamage per row and once
+// through the batch overload over columns. Both write their totals into the same output arrays;
+// scores are per row.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DamageBatchBenchmark {
+    private static final int ROWS = 4096;
+
+    @Param({"GENERIC", "SUMMONER_WAR_LIKE"})
+    public FormulaType formula;
+
+    private final Unit[] attackers = new Unit[ROWS];
+    private final Unit[] defenders = new Unit[ROWS];
+    private final Skill[] skills = new Skill[ROWS];
+    private final DamageCalculation.UnitColumns attackerColumns = new DamageCalculation.UnitColumns(ROWS);
+    private final DamageCalculation.UnitColumns defenderColumns = new DamageCalculation.UnitColumns(ROWS);
+    private final DamageCalculation.SkillColumns skillColumns = new DamageCalculation.SkillColumns(ROWS);
+    private final double[] noCrit = new double[ROWS];
+    private final double[] crit = new double[ROWS];
+    private final double[] average = new double[ROWS];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(17);
+        for (int i = 0; i < ROWS; i++) {
+            attackers[i] = unit(random);
+            defenders[i] = unit(random);
+            Skill skill = new Skill("skill", 1.0 + random.nextDouble(3.0),
+                    ScalingMode.values()[random.nextInt(ScalingMode.values().length)]);
+            skill.coef = 1.0 + random.nextDouble(3.0);
+            skill.dCoef = random.nextDouble(3.0);
+            skill.hits = 1 + random.nextInt(4);
+            skill.ignoreDefense = random.nextInt(8) == 0;
+            skills[i] = skill;
+            attackerColumns.set(i, attackers[i]);
+            defenderColumns.set(i, defenders[i]);
+            skillColumns.set(i, skill);
+        }
+    }
+
+    private static Unit unit(SplittableRandom random) {
+        Unit unit = new Unit("unit");
+        unit.element = Element.values()[random.nextInt(Element.values().length)];
+        unit.baseAtk = 500 + random.nextDouble(1000);
+        unit.bonusAtk = random.nextDouble(1500);
+        unit.baseHp = 5000 + random.nextDouble(10000);
+        unit.baseDef = 300 + random.nextDouble(700);
+        unit.bonusDef = random.nextDouble(600);
+        unit.baseSpd = 90 + random.nextDouble(30);
+        unit.bonusSpd = random.nextDouble(100);
+        unit.critRate = random.nextDouble();
+        unit.critDamage = 0.5 + random.nextDouble(1.5);
+        unit.defenseBreakPercent = random.nextInt(3) == 0 ? 0.7 : 0.0;
+        unit.damageAmplifyPercent = random.nextDouble(0.3);
+        unit.damageReductionPercent = random.nextDouble(0.3);
+        return unit;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double[] perRow() {
+        for (int i = 0; i < ROWS; i++) {
+            double[] result = DamageCalculation.calculateDamage(attackers[i], defenders[i], skills[i], formula);
+            noCrit[i] = result[0];
+            crit[i] = result[1];
+            average[i] = result[2];
+        }
+        return average;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double[] batch() {
+        DamageCalculation.calculateDamage(attackerColumns, defenderColumns, skillColumns, formula, 0, ROWS, noCrit, crit, average);
+        return average;
+    }
+}
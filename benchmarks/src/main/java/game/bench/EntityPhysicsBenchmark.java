@@ -0,0 +1,78 @@
+package game.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.BlockRegistry;
+import game.Chunk;
+import game.Entities;
+import game.EntityPhysics;
+import game.MemoryChunkStore;
+import game.NoiseTerrainGenerator;
+import game.World;
+
+// One physics tick over patrolling mobs on noise terrain, serially and split over the common pool.
+// Mobs never settle, so every iteration does the same amount of work.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityPhysicsBenchmark {
+    private static final int WIDTH = 4096;
+    private static final int HEIGHT = 256;
+    private static final float DT = 1f / 20;
+    private static final int WALL = 8;
+
+    @Param({"1000", "100000", "1000000"})
+    public int entities;
+
+    private World world;
+    private Entities mobs;
+
+    @Setup
+    public void setUp() {
+        int chunks = (WIDTH >> Chunk.SHIFT) * (HEIGHT >> Chunk.SHIFT);
+        world = new World(WIDTH, HEIGHT, new NoiseTerrainGenerator(7, HEIGHT / 2, HEIGHT - 4), chunks * 2, new MemoryChunkStore());
+        world.pregenerate(0, 0, WIDTH >> Chunk.SHIFT, HEIGHT >> Chunk.SHIFT, ForkJoinPool.commonPool());
+        // walls at both ends turn the mobs around, so they never leave the generated area
+        for (int y = 0; y < HEIGHT; y++) {
+            world.setBlockId(WALL, y, BlockRegistry.BEDROCK);
+            world.setBlockId(WIDTH - 1 - WALL, y, BlockRegistry.BEDROCK);
+        }
+        mobs = new Entities();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < entities; i++) {
+            int x = random.nextInt(WALL + 1, WIDTH - 1 - WALL);
+            int y = world.getSurfaceY(x) - 1;
+            int id = mobs.spawn(Entities.MOB, x + 0.5f, y + 0.5f);
+            mobs.setVelocity(id, random.nextBoolean() ? 4f : -4f, 0);
+        }
+    }
+
+    @Benchmark
+    public Entities stepSerial() {
+        EntityPhysics.step(mobs, world, DT);
+        return mobs;
+    }
+
+    @Benchmark
+    public Entities stepParallel() {
+        EntityPhysics.step(mobs, world, DT, ForkJoinPool.commonPool());
+        return mobs;
+    }
+}
@@ -0,0 +1,65 @@
+package game.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.Player;
+import game.World;
+
+// A scripted walk-and-dig loop: the player strolls along the surface, digs down, climbs back and
+// moves on. The world is rebuilt each iteration so every iteration digs through the same terrain.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerActionBenchmark {
+    // 'B' followed by a direction breaks the neighbouring block, anything else is a move
+    private static final String[] SCRIPT = {
+            "D", "D", "D", "BS", "S", "BS", "S", "BD", "D", "W", "W", "A", "A", "BA", "A", "D", "D", "D"
+    };
+
+    @Param({"64", "512", "2048"})
+    public int size;
+
+    private World world;
+    private Player player;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        world = new World(size, size);
+        player = Player.spawnAt(world, 0);
+        player.setVerbose(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(18)
+    public void runScript(Blackhole blackhole) {
+        for (String command : SCRIPT) {
+            boolean done = command.charAt(0) == 'B'
+                    ? player.BreakBlock(command.charAt(1), world)
+                    : player.move(command.charAt(0), world);
+            blackhole.consume(done);
+        }
+        // wrap around before walking off the nominal area
+        if (player.getX() >= world.getWidth() - SCRIPT.length) {
+            player = Player.spawnAt(world, 0);
+            player.setVerbose(false);
+        }
+    }
+}
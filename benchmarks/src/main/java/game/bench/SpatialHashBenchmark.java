@@ -0,0 +1,130 @@
+package game.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.SpatialHash;
+
+// Proximity queries over entities scattered on a 4096 x 4096 cell area: the spatial hash against a
+// linear scan of the same position arrays, plus the cost of keeping the hash up to date as everyone
+// takes a step. Query scores are per query; moveAll is one pass over every entity.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialHashBenchmark {
+    private static final int AREA = 4096;
+    private static final int QUERIES = 256;
+    private static final int RADIUS = 16;
+    private static final int RECT = 32;
+
+    @Param({"1000", "10000", "100000"})
+    public int entities;
+
+    @Param({"4"})
+    public int bucketShift;
+
+    private SpatialHash hash;
+    private int[] xs;
+    private int[] ys;
+    private final int[] queryXs = new int[QUERIES];
+    private final int[] queryYs = new int[QUERIES];
+    private int[] steps;
+    private int[] out;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(11);
+        hash = new SpatialHash(bucketShift);
+        xs = new int[entities];
+        ys = new int[entities];
+        steps = new int[entities];
+        out = new int[entities];
+        for (int i = 0; i < entities; i++) {
+            xs[i] = random.nextInt(AREA);
+            ys[i] = random.nextInt(AREA);
+            steps[i] = random.nextInt(4);
+            hash.insert(i, xs[i], ys[i]);
+        }
+        for (int q = 0; q < QUERIES; q++) {
+            queryXs[q] = random.nextInt(AREA);
+            queryYs[q] = random.nextInt(AREA);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void radiusHash(Blackhole blackhole) {
+        for (int q = 0; q < QUERIES; q++) {
+            blackhole.consume(hash.queryRadius(queryXs[q], queryYs[q], RADIUS, out));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void radiusLinear(Blackhole blackhole) {
+        long radiusSquared = (long) RADIUS * RADIUS;
+        for (int q = 0; q < QUERIES; q++) {
+            int found = 0;
+            for (int i = 0; i < entities; i++) {
+                long dx = xs[i] - queryXs[q];
+                long dy = ys[i] - queryYs[q];
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    out[found++] = i;
+                }
+            }
+            blackhole.consume(found);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void rectHash(Blackhole blackhole) {
+        for (int q = 0; q < QUERIES; q++) {
+            blackhole.consume(hash.queryRect(queryXs[q], queryYs[q], queryXs[q] + RECT, queryYs[q] + RECT, out));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void rectLinear(Blackhole blackhole) {
+        for (int q = 0; q < QUERIES; q++) {
+            int minX = queryXs[q];
+            int minY = queryYs[q];
+            int found = 0;
+            for (int i = 0; i < entities; i++) {
+                if (xs[i] >= minX && xs[i] <= minX + RECT && ys[i] >= minY && ys[i] <= minY + RECT) {
+                    out[found++] = i;
+                }
+            }
+            blackhole.consume(found);
+        }
+    }
+
+    // Every entity takes one W/A/S/D-style step, cycling its direction, and the hash follows
+    @Benchmark
+    public void moveAll() {
+        for (int i = 0; i < entities; i++) {
+            int direction = steps[i] = (steps[i] + 1) & 3;
+            xs[i] += direction == 0 ? 1 : direction == 2 ? -1 : 0;
+            ys[i] += direction == 1 ? 1 : direction == 3 ? -1 : 0;
+            hash.move(i, xs[i], ys[i]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package game.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.Block;
+import game.BlockRegistry;
+import game.Chunk;
+import game.MemoryChunkStore;
+import game.World;
+
+// Block reads and writes on a pregenerated world. Each invocation touches BATCH cells so the
+// per-call overhead of JMH does not dominate; scores are reported per cell.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldAccessBenchmark {
+    private static final int BATCH = 4096;
+    // out-of-bounds reads land in this band around the nominal area, which generates on demand
+    private static final int MARGIN = 256;
+
+    @Param({"64", "512", "2048"})
+    public int size;
+
+    private World world;
+    private final int[] xs = new int[BATCH];
+    private final int[] ys = new int[BATCH];
+    private final int[] outsideXs = new int[BATCH];
+    private final int[] outsideYs = new int[BATCH];
+    private final Block[] writes = new Block[BATCH];
+    private int cursor;
+    private PrintStream nullSink;
+
+    @Setup
+    public void setUp() {
+        int span = (size + 2 * MARGIN + Chunk.SIZE - 1) / Chunk.SIZE + 1;
+        world = new World(size, size, Math.max(World.DEFAULT_MAX_LOADED_CHUNKS, span * span), new MemoryChunkStore());
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < BATCH; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+            outsideXs[i] = random.nextBoolean() ? -1 - random.nextInt(MARGIN) : size + random.nextInt(MARGIN);
+            outsideYs[i] = random.nextInt(-MARGIN, size + MARGIN);
+            writes[i] = BlockRegistry.get(random.nextBoolean() ? BlockRegistry.DIRT : BlockRegistry.STONE);
+        }
+        // load everything up front so the measurement sees a warm cache
+        for (int i = 0; i < BATCH; i++) {
+            world.getBlockId(outsideXs[i], outsideYs[i]);
+        }
+        for (int y = 0; y < size; y += Chunk.SIZE) {
+            for (int x = 0; x < size; x += Chunk.SIZE) {
+                world.getBlockId(x, y);
+            }
+        }
+        nullSink = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void getBlockRandom(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(world.getBlockForPosition(xs[i], ys[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void getBlockSequential(Blackhole blackhole) {
+        int cell = cursor;
+        int cells = size * size;
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(world.getBlockForPosition(cell % size, cell / size));
+            if (++cell == cells) {
+                cell = 0;
+            }
+        }
+        cursor = cell;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void getBlockOutOfBounds(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(world.getBlockForPosition(outsideXs[i], outsideYs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void setBlock() {
+        for (int i = 0; i < BATCH; i++) {
+            world.setBlock(xs[i], ys[i], writes[i]);
+        }
+    }
+
+    // whole-world render into a discarding stream; reported per call rather than per cell
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void printWorld() {
+        world.printWorld(nullSink);
+    }
+}
@@ -0,0 +1,61 @@
+package game.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Chunk;
+import game.MemoryChunkStore;
+import game.World;
+
+// Cost of building a world and generating every chunk in its nominal area, serially and on the common pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldGenerationBenchmark {
+    @Param({"64", "512", "2048"})
+    public int size;
+
+    private int chunks;
+
+    @Setup
+    public void setUp() {
+        chunks = (size + Chunk.SIZE - 1) / Chunk.SIZE;
+    }
+
+    @Benchmark
+    public World generateSerial() {
+        World world = newWorld();
+        for (int cy = 0; cy < chunks; cy++) {
+            for (int cx = 0; cx < chunks; cx++) {
+                world.getChunk(cx, cy);
+            }
+        }
+        return world;
+    }
+
+    @Benchmark
+    public World generateParallel() {
+        World world = newWorld();
+        world.pregenerate(0, 0, chunks, chunks, ForkJoinPool.commonPool());
+        return world;
+    }
+
+    private World newWorld() {
+        return new World(size, size, Math.max(World.DEFAULT_MAX_LOADED_CHUNKS, chunks * chunks), new MemoryChunkStore());
+    }
+}
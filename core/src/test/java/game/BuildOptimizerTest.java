@@ -0,0 +1,219 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import game.BuildOptimizer.Build;
+import game.BuildOptimizer.Piece;
+import game.BuildOptimizer.Stat;
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Compares the branch-and-bound top K with scoring every build of a small catalogue
+class BuildOptimizerTest {
+    private static final double RELATIVE = 1e-9;
+
+    @Test
+    void topKMatchesExhaustiveSearch() {
+        SplittableRandom random = new SplittableRandom(24);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int round = 0; round < 150; round++) {
+                assertTopK(random, pool, false, "round " + round);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void topKMatchesExhaustiveSearchWithMinimums() {
+        SplittableRandom random = new SplittableRandom(25);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int round = 0; round < 60; round++) {
+                assertTopK(random, pool, true, "round " + round);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertTopK(SplittableRandom random, ForkJoinPool pool, boolean minimums, String where) {
+        int slots = 2 + random.nextInt(3);
+        List<Piece> catalogue = BuildOptimizer.randomCatalogue(slots * (2 + random.nextInt(6)), slots, random.nextLong());
+        Unit attacker = randomAttacker(random);
+        List<Unit> targets = new ArrayList<>();
+        for (int i = 1 + random.nextInt(3); i > 0; i--) {
+            targets.add(randomTarget(random));
+        }
+        // non-negative coefficients only, as the optimizer's bounds assume
+        Skill skill = new Skill("Skill", 1.0 + random.nextDouble(), ScalingMode.values()[random.nextInt(ScalingMode.values().length)]);
+        skill.coef = 1.0 + random.nextDouble(3.0);
+        skill.aCoef = 0.5 + random.nextDouble();
+        skill.dCoef = random.nextDouble();
+        skill.spdAdd = random.nextDouble(100.0);
+        skill.spdDiv = 100.0 + random.nextDouble(900.0);
+        skill.flatDamage = random.nextDouble(100.0);
+        skill.hits = 1 + random.nextInt(3);
+        skill.ignoreDefense = random.nextInt(5) == 0;
+        FormulaType formula = FormulaType.values()[random.nextInt(FormulaType.values().length)];
+        int k = 1 + random.nextInt(4);
+
+        BuildOptimizer optimizer = new BuildOptimizer(attacker, targets, skill, formula);
+        double[] required = new double[Stat.values().length];
+        if (minimums) {
+            Stat stat = random.nextBoolean() ? Stat.BONUS_SPD : Stat.values()[random.nextInt(Stat.values().length)];
+            // just under that build's total: the optimizer adds the slots up in another order, which can
+            // round the same total an ulp lower
+            required[stat.ordinal()] = totalOfRandomBuild(random, catalogue, slots, stat) - 1e-9;
+            optimizer.require(stat, required[stat.ordinal()]);
+            where += " requiring " + stat + " >= " + required[stat.ordinal()];
+        }
+        List<Build> found = optimizer.optimize(catalogue, k, pool);
+        List<Double> expected = exhaustive(catalogue, slots, attacker, targets, skill, formula, minimums ? required : null);
+        where += " (" + skill.mode + ", " + formula + ", k " + k + ")";
+
+        assertEquals(Math.min(k, expected.size()), found.size(), where);
+        for (int i = 0; i < found.size(); i++) {
+            Build build = found.get(i);
+            double want = expected.get(i);
+            assertEquals(want, build.getScore(), RELATIVE * Math.abs(want), where + " rank " + i);
+            assertEquals(slots, build.getPieces().size(), where + " rank " + i);
+            double[] totals = totals(build.getPieces());
+            for (Stat stat : Stat.values()) {
+                assertEquals(totals[stat.ordinal()], build.getBonus(stat), 1e-9, where + " rank " + i + " " + stat);
+                if (minimums) {
+                    assertTrue(build.getBonus(stat) >= required[stat.ordinal()], where + " rank " + i + " " + stat);
+                }
+            }
+            assertEquals(build.getScore(), score(attacker, targets, skill, formula, totals),
+                    RELATIVE * Math.abs(build.getScore()), where + " rank " + i);
+        }
+    }
+
+    // Scores of every build that meets the minimums (none when null), best first
+    private static List<Double> exhaustive(List<Piece> catalogue, int slots, Unit attacker, List<Unit> targets,
+                                          Skill skill, FormulaType formula, double[] required) {
+        List<List<Piece>> bySlot = bySlot(catalogue, slots);
+        List<Double> scores = new ArrayList<>();
+        int[] index = new int[slots];
+        while (true) {
+            List<Piece> pieces = new ArrayList<>();
+            for (int s = 0; s < slots; s++) {
+                pieces.add(bySlot.get(s).get(index[s]));
+            }
+            double[] totals = totals(pieces);
+            boolean qualifies = true;
+            for (int s = 0; required != null && s < totals.length; s++) {
+                qualifies &= totals[s] >= required[s];
+            }
+            if (qualifies) {
+                scores.add(score(attacker, targets, skill, formula, totals));
+            }
+            int s = 0;
+            while (s < slots && ++index[s] == bySlot.get(s).size()) {
+                index[s] = 0;
+                s++;
+            }
+            if (s == slots) {
+                break;
+            }
+        }
+        scores.sort(Comparator.reverseOrder());
+        return scores;
+    }
+
+    // The stat's total on one random build, so the minimum cuts the catalogue without emptying it
+    private static double totalOfRandomBuild(SplittableRandom random, List<Piece> catalogue, int slots, Stat stat) {
+        List<Piece> pieces = new ArrayList<>();
+        for (List<Piece> slot : bySlot(catalogue, slots)) {
+            pieces.add(slot.get(random.nextInt(slot.size())));
+        }
+        return totals(pieces)[stat.ordinal()];
+    }
+
+    private static List<List<Piece>> bySlot(List<Piece> catalogue, int slots) {
+        List<List<Piece>> bySlot = new ArrayList<>();
+        for (int s = 0; s < slots; s++) {
+            bySlot.add(new ArrayList<>());
+        }
+        for (Piece piece : catalogue) {
+            bySlot.get(piece.getSlot()).add(piece);
+        }
+        return bySlot;
+    }
+
+    private static double[] totals(List<Piece> pieces) {
+        double[] totals = new double[Stat.values().length];
+        for (Piece piece : pieces) {
+            for (Stat stat : Stat.values()) {
+                totals[stat.ordinal()] += piece.getBonus(stat);
+            }
+        }
+        return totals;
+    }
+
+    // The same stats BuildOptimizer adds gear to, averaged over the targets
+    private static double score(Unit attacker, List<Unit> targets, Skill skill, FormulaType formula, double[] totals) {
+        Unit geared = new Unit(attacker.name);
+        geared.element = attacker.element;
+        geared.baseAtk = attacker.baseAtk;
+        geared.baseHp = attacker.baseHp;
+        geared.baseDef = attacker.baseDef;
+        geared.baseSpd = attacker.baseSpd;
+        geared.defenseBreakPercent = attacker.defenseBreakPercent;
+        geared.damageReductionPercent = attacker.damageReductionPercent;
+        geared.bonusAtk = attacker.bonusAtk + totals[Stat.BONUS_ATK.ordinal()];
+        geared.bonusHp = attacker.bonusHp + totals[Stat.BONUS_HP.ordinal()];
+        geared.bonusDef = attacker.bonusDef + totals[Stat.BONUS_DEF.ordinal()];
+        geared.bonusSpd = attacker.bonusSpd + totals[Stat.BONUS_SPD.ordinal()];
+        geared.attackBuffPercent = attacker.attackBuffPercent + totals[Stat.ATTACK_BUFF.ordinal()];
+        geared.flatAttack = attacker.flatAttack + totals[Stat.FLAT_ATTACK.ordinal()];
+        geared.critRate = attacker.critRate + totals[Stat.CRIT_RATE.ordinal()];
+        geared.critDamage = attacker.critDamage + totals[Stat.CRIT_DAMAGE.ordinal()];
+        geared.ignoreDefensePercent = attacker.ignoreDefensePercent + totals[Stat.IGNORE_DEFENSE.ordinal()];
+        geared.damageAmplifyPercent = attacker.damageAmplifyPercent + totals[Stat.DAMAGE_AMPLIFY.ordinal()];
+        double sum = 0.0;
+        for (Unit target : targets) {
+            sum += DamageCalculation.calculateDamage(geared, target, skill, formula)[2];
+        }
+        return sum / targets.size();
+    }
+
+    private static Unit randomAttacker(SplittableRandom random) {
+        Unit attacker = new Unit("Attacker");
+        attacker.element = Element.values()[random.nextInt(Element.values().length)];
+        attacker.baseAtk = 500 + random.nextDouble(800);
+        attacker.baseHp = 5000 + random.nextDouble(5000);
+        attacker.baseDef = 300 + random.nextDouble(500);
+        attacker.baseSpd = 90 + random.nextDouble(30);
+        attacker.bonusAtk = random.nextDouble(200);
+        attacker.bonusSpd = random.nextDouble(20);
+        attacker.critRate = random.nextDouble(0.5);
+        attacker.critDamage = 0.5 + random.nextDouble(0.5);
+        attacker.defenseBreakPercent = random.nextInt(3) == 0 ? 0.7 : 0.0;
+        return attacker;
+    }
+
+    private static Unit randomTarget(SplittableRandom random) {
+        Unit target = new Unit("Target");
+        target.element = Element.values()[random.nextInt(Element.values().length)];
+        target.baseHp = 10000 + random.nextDouble(10000);
+        target.baseDef = random.nextDouble(1200);
+        target.bonusDef = random.nextDouble(300);
+        target.damageReductionPercent = random.nextInt(3) == 0 ? 0.3 : 0.0;
+        return target;
+    }
+}
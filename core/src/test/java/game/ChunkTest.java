@@ -0,0 +1,132 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+// Checks the per-column heightmap behind Chunk.getColumnTop and World.getSurfaceY against walking each
+// column cell by cell, through random edits, copies and reloads
+class ChunkTest {
+    @Test
+    void columnTopsFollowRandomEdits() {
+        SplittableRandom random = new SplittableRandom(13);
+        Chunk chunk = new Chunk(BlockRegistry.AIR);
+        for (int n = 0; n < 50_000; n++) {
+            if (random.nextInt(5000) == 0) {
+                chunk.fill(random.nextInt(BlockRegistry.size()));
+            } else {
+                // mostly air, so tops keep being removed and rescanned
+                int id = random.nextInt(3) == 0 ? random.nextInt(BlockRegistry.size()) : BlockRegistry.AIR;
+                chunk.set(random.nextInt(Chunk.SIZE), random.nextInt(Chunk.SIZE), id);
+            }
+            assertColumnTops(chunk, "edit " + n);
+            if (n % 997 == 0) {
+                assertColumnTops(chunk.copy(), "copy after edit " + n);
+                assertColumnTops(reread(chunk), "reread after edit " + n);
+            }
+        }
+    }
+
+    @Test
+    void copyAndReadFromKeepTheirOwnColumnTops() {
+        SplittableRandom random = new SplittableRandom(14);
+        Chunk chunk = new Chunk(BlockRegistry.STONE);
+        Chunk copy = chunk.copy();
+        for (int n = 0; n < 2000; n++) {
+            chunk.set(random.nextInt(Chunk.SIZE), random.nextInt(Chunk.SIZE), BlockRegistry.AIR);
+        }
+        // the copy was taken before the edits and must not share the original's heightmap
+        assertColumnTops(copy, "copy");
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            assertEquals(0, copy.getColumnTop(x), "column " + x);
+        }
+        Chunk reread = reread(chunk);
+        for (int n = 0; n < 2000; n++) {
+            reread.set(random.nextInt(Chunk.SIZE), random.nextInt(Chunk.SIZE),
+                    random.nextBoolean() ? BlockRegistry.AIR : BlockRegistry.DIRT);
+            assertColumnTops(reread, "reread edit " + n);
+        }
+        assertColumnTops(chunk, "original");
+    }
+
+    @Test
+    void surfaceFollowsEditsThroughEvictionAndSnapshots() throws IOException {
+        // not a whole number of chunks high, so the last chunk row reaches past the nominal height
+        int width = 20 * Chunk.SIZE;
+        int height = 6 * Chunk.SIZE + 5;
+        Path directory = Files.createTempDirectory("regions");
+        try (RegionChunkStore store = new RegionChunkStore(directory)) {
+            // few chunks loaded, so most columns are read back from region files through readFrom
+            World world = new World(width, height, new FlatTerrainGenerator(height / 2), 8, store);
+            SplittableRandom random = new SplittableRandom(15);
+            WorldSnapshot snapshot = null;
+            for (int n = 0; n < 40_000; n++) {
+                int x = random.nextInt(width);
+                // edits cluster near the top of the world, where the surface moves
+                int y = random.nextBoolean() ? random.nextInt(height) : random.nextInt(height / 2 + 2);
+                world.setBlockId(x, y, random.nextInt(4) == 0 ? random.nextInt(BlockRegistry.size()) : BlockRegistry.AIR);
+                if (n % 5000 == 0) {
+                    // writes while a snapshot is open go to copies of the chunks
+                    if (snapshot != null) {
+                        snapshot.close();
+                    }
+                    snapshot = world.snapshot();
+                }
+                if (n % 50 == 0) {
+                    int column = random.nextInt(width);
+                    assertEquals(scanSurface(world, column), world.getSurfaceY(column), "column " + column + " after edit " + n);
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                assertEquals(scanSurface(world, x), world.getSurfaceY(x), "column " + x);
+            }
+            snapshot.close();
+            world.save();
+
+            World reloaded = new World(width, height, new FlatTerrainGenerator(height / 2), 8, store);
+            for (int x = 0; x < width; x++) {
+                assertEquals(scanSurface(world, x), reloaded.getSurfaceY(x), "reloaded column " + x);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void assertColumnTops(Chunk chunk, String where) {
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            int top = Chunk.SIZE;
+            for (int y = 0; y < Chunk.SIZE; y++) {
+                if (!BlockRegistry.isWalkable(chunk.get(x, y))) {
+                    top = y;
+                    break;
+                }
+            }
+            assertEquals(top, chunk.getColumnTop(x), where + " column " + x);
+        }
+    }
+
+    private static Chunk reread(Chunk chunk) {
+        ByteBuffer buffer = ByteBuffer.allocate(chunk.serializedSize());
+        chunk.writeTo(buffer);
+        return Chunk.readFrom(buffer.flip());
+    }
+
+    private static int scanSurface(World world, int x) {
+        for (int y = 0; y < world.getHeight(); y++) {
+            if (!world.isWalkable(x, y)) {
+                return y;
+            }
+        }
+        return world.getHeight();
+    }
+}
@@ -0,0 +1,113 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.HitOutcomes;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Checks that a seed fixes every simulated trial whatever the pool, and that the simulation agrees with
+// the exact DamageDistribution
+class CombatSimulatorTest {
+    // several blocks of trials, and a last block that is not full
+    private static final long TRIALS = 5 * (1 << 16) + 1234;
+
+    private static ForkJoinPool single;
+    private static ForkJoinPool four;
+
+    @BeforeAll
+    static void startPools() {
+        single = new ForkJoinPool(1);
+        four = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPools() {
+        single.shutdown();
+        four.shutdown();
+    }
+
+    @Test
+    void seedGivesTheSameResultOnOneAndFourThreads() {
+        for (HitOutcomes outcomes : cases()) {
+            for (long seed : new long[] {1, 42, -7}) {
+                double targetHp = outcomes.hits() * (outcomes.normal() + outcomes.crit()) / 2;
+                CombatSimulator.Result one = CombatSimulator.simulate(outcomes, targetHp, TRIALS, seed, single);
+                CombatSimulator.Result many = CombatSimulator.simulate(outcomes, targetHp, TRIALS, seed, four);
+                String where = outcomes + " seed " + seed;
+                assertEquals(TRIALS, one.getTrials(), where);
+                assertArrayEquals(one.getHistogram().getBucketCounts(), many.getHistogram().getBucketCounts(), where);
+                assertEquals(one.getMean(), many.getMean(), where);
+                assertEquals(one.getHistogram().getStandardDeviation(), many.getHistogram().getStandardDeviation(), where);
+                assertEquals(one.getHistogram().getMin(), many.getHistogram().getMin(), where);
+                assertEquals(one.getHistogram().getMax(), many.getHistogram().getMax(), where);
+                assertEquals(one.getKills(), many.getKills(), where);
+            }
+        }
+    }
+
+    @Test
+    void anotherSeedGivesOtherTrials() {
+        HitOutcomes outcomes = cases()[0];
+        CombatSimulator.Result first = CombatSimulator.simulate(outcomes, 1000, TRIALS, 1, four);
+        CombatSimulator.Result second = CombatSimulator.simulate(outcomes, 1000, TRIALS, 2, four);
+        assertTrue(first.getMean() != second.getMean(), "seeds 1 and 2 gave the same mean " + first.getMean());
+    }
+
+    @Test
+    void agreesWithTheExactDistribution() {
+        for (HitOutcomes outcomes : cases()) {
+            DamageDistribution exact = DamageDistribution.of(outcomes, 0.0);
+            // a likely kill, a coin flip and a rare one; the HP lies between two totals, since a trial adds
+            // its hits in another order and may land an ulp either side of a total the distribution holds
+            for (double percentile : new double[] {0.1, 0.5, 0.97}) {
+                int index = 0;
+                while (index < exact.size() - 2 && exact.getCumulativeProbability(index) < percentile) {
+                    index++;
+                }
+                double targetHp = (exact.getValue(index) + exact.getValue(index + 1)) / 2;
+                CombatSimulator.Result result = CombatSimulator.simulate(outcomes, targetHp, TRIALS, 11, four);
+                String where = outcomes + " against " + targetHp + " HP";
+                double killProbability = exact.killProbability(targetHp);
+                assertTrue(result.getKillProbabilityLow() <= killProbability
+                                && killProbability <= result.getKillProbabilityHigh(),
+                        where + ": exact " + killProbability + " outside [" + result.getKillProbabilityLow() + ", "
+                                + result.getKillProbabilityHigh() + "]");
+                assertEquals(exact.getMean(), result.getMean(), result.getMeanMargin(), where);
+            }
+        }
+    }
+
+    private static HitOutcomes[] cases() {
+        Unit attacker = new Unit("Attacker");
+        attacker.element = Element.FIRE;
+        attacker.baseAtk = 900;
+        attacker.bonusAtk = 700;
+        attacker.critRate = 0.6;
+        attacker.critDamage = 1.2;
+        Unit defender = new Unit("Defender");
+        defender.element = Element.WATER;
+        defender.baseHp = 20000;
+        defender.baseDef = 700;
+        Skill skill = new Skill("Skill", 3.2, ScalingMode.ATK_COEF);
+        skill.coef = 1.0;
+        skill.hits = 4;
+        Skill single = new Skill("Single", 5.0, ScalingMode.NORMAL_ATK);
+        return new HitOutcomes[] {
+                DamageCalculation.hitOutcomes(attacker, defender, skill, FormulaType.SUMMONER_WAR_LIKE),
+                DamageCalculation.hitOutcomes(attacker, defender, single, FormulaType.GENERIC),
+                new HitOutcomes(100, 250, 30, 75, 0.35, 0.2, 12)
+        };
+    }
+}
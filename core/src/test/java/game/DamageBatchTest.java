@@ -0,0 +1,345 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Runs DamageBatch on generated input and checks every result row against calculateDamage formatted like
+// the interactive result, across chunk boundaries, line endings, thread counts and bad rows
+class DamageBatchTest {
+    // DamageBatch.CHUNK_BYTES
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final String[] COLUMNS = {
+            "attacker_name", "attacker_element", "attacker_base_atk", "attacker_bonus_atk", "crit_rate", "crit_damage",
+            "defender_element", "defender_base_def", "defender_bonus_hp", "mode", "multiplier", "hits",
+            "ignore_defense", "formula", "skill_name"
+    };
+    private static final String HEADER = String.join(",", COLUMNS);
+
+    @Test
+    void csvRowsMatchCalculateDamage() throws IOException {
+        List<Scenario> scenarios = scenarios(new SplittableRandom(25), 2_000);
+        Result result = run(csv(scenarios, "\n", true), 4);
+        assertEquals(expectedCsv(scenarios), result.out);
+        assertEquals("", result.errors);
+        assertEquals(scenarios.size(), result.summary.rows());
+    }
+
+    @Test
+    void jsonLinesSkipNullAndUnknownKeys() throws IOException {
+        List<Scenario> scenarios = scenarios(new SplittableRandom(26), 2_000);
+        StringBuilder in = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (Scenario scenario : scenarios) {
+            in.append(scenario.json()).append('\n');
+            double[] r = scenario.expected();
+            expected.append("{\"no_crit\":").append(format(r[0])).append(",\"crit\":").append(format(r[1]))
+                    .append(",\"average\":").append(format(r[2])).append("}\n");
+        }
+        Result result = run(in.toString(), 3);
+        assertEquals(expected.toString(), result.out);
+        assertEquals("note: ignoring unknown key \"comment\"\n", result.errors);
+    }
+
+    @Test
+    void manyChunksKeepInputOrderWithCrlfBomAndNoFinalNewline() throws IOException {
+        List<Scenario> scenarios = scenarios(new SplittableRandom(27), 40_000);
+        String in = "\uFEFF" + csv(scenarios, "\r\n", false);
+        assertTrue(in.length() > 4 * CHUNK_BYTES, "input spans several chunks: " + in.length());
+        String expected = expectedCsv(scenarios);
+        for (int threads : new int[] {1, 4}) {
+            Result result = run(in, threads);
+            assertEquals(expected, result.out, threads + " threads");
+            assertEquals("", result.errors, threads + " threads");
+        }
+    }
+
+    @Test
+    void lineLongerThanAChunkIsReadWhole() throws IOException {
+        SplittableRandom random = new SplittableRandom(28);
+        List<Scenario> scenarios = scenarios(random, 30_000);
+        // a name of 3 MiB makes one line that needs the buffer doubled twice, well past the first chunk
+        scenarios.get(20_000).name = "x".repeat(3 * CHUNK_BYTES);
+        scenarios.get(20_001).name = "y".repeat(CHUNK_BYTES - 10);
+        Result result = run(csv(scenarios, "\n", true), 2);
+        assertEquals(expectedCsv(scenarios), result.out);
+        assertEquals("", result.errors);
+    }
+
+    @Test
+    void badRowsReportTheirLineAfterHeaderAndBlankLines() throws IOException {
+        String good = "Ann,fire,1200,0,25,50,wind,700,0,atk_coef,2.5,2,false,generic,Slash";
+        String in = "\n"
+                + HEADER + "\n"
+                + good + "\n"
+                + "\n"
+                + "Ann,fire,abc,0,25,50,wind,700,0,atk_coef,2.5,2,false,generic,Slash\n"
+                + good + "\n"
+                + "   \n"
+                + "Ann,fire,1200,0,25,50,wind,700,0,atk_coef,2.5,0,false,generic,Slash\n"
+                + "Ann,fire,1200,0,25,50\n";
+        Result result = run(in, 2);
+        String row = csvRow(new Scenario("Ann", Element.FIRE, 1200, 0, 25, 50, Element.WIND, 700, 0,
+                ScalingMode.ATK_COEF, 2.5, 2, false, FormulaType.GENERIC).expected());
+        assertEquals("no_crit,crit,average\n" + row + ",,\n" + row + ",,\n,,\n", result.out);
+        assertEquals("line 5: attacker_base_atk is not a number: \"abc\"\n"
+                + "line 8: hits must be a whole number of at least 1: \"0\"\n"
+                + "line 9: expected 15 fields, found 6\n", result.errors);
+        assertEquals(5, result.summary.rows());
+        assertEquals(3, result.summary.badRows());
+    }
+
+    @Test
+    void badRowLineNumbersCountEveryEarlierChunk() throws IOException {
+        List<Scenario> scenarios = scenarios(new SplittableRandom(29), 30_000);
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (i % 1_000 == 0) {
+                in.append('\n');
+            }
+            in.append(i == 29_000 ? "{\"hits\": -1}" : scenarios.get(i).json()).append('\n');
+        }
+        Result result = run(in.toString(), 4);
+        // one blank line before every thousand rows, 30 of them before row 29,000
+        assertEquals("note: ignoring unknown key \"comment\"\n"
+                + "line 29031: hits must be a whole number of at least 1: \"-1\"\n", result.errors);
+    }
+
+    @Test
+    void quotedCsvFieldsMayHoldCommasQuotesAndNumbers() throws IOException {
+        String in = "attacker_name,\"attacker_base_atk\",mode,skill_name\n"
+                + "\"Ann, \"\"the\"\" Bold\", \"1500\" ,\"def_coef\",\"Slash, twice\"\n"
+                + "\"Ann,1500,def_coef,Slash\n";
+        Result result = run(in, 1);
+        Unit attacker = defaultAttacker();
+        attacker.baseAtk = 1500;
+        Skill skill = new Skill("Slash", 1.0, ScalingMode.DEF_COEF);
+        skill.coef = DamageCalculation.DEFAULT_DEF_COEF;
+        String row = csvRow(DamageCalculation.calculateDamage(attacker, defaultDefender(), skill, FormulaType.GENERIC));
+        assertEquals("no_crit,crit,average\n" + row + ",,\n", result.out);
+        assertEquals("line 3: unterminated quote in field 1\n", result.errors);
+    }
+
+    @Test
+    void headerNamingAColumnTwiceIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> run("hits,mode,hits\n2,atk_coef,3\n", 1));
+    }
+
+    @Test
+    void amountsRoundHalfEvenLikeDecimalFormat() throws IOException {
+        SplittableRandom random = new SplittableRandom(30);
+        List<Double> values = new ArrayList<>();
+        // ties in the cents, and totals too large for value * 100 to keep its fraction
+        values.add(192998673010390.25);
+        values.add(0.125);
+        values.add(0.375);
+        values.add(2.675);
+        for (int i = 0; i < 2_000; i++) {
+            values.add(1e14 + random.nextDouble() * 1e14);
+            values.add(Math.floor(random.nextDouble() * 1e12) / 8);
+            values.add(random.nextDouble() * 1e6);
+        }
+        StringBuilder in = new StringBuilder("multiplier,flat_damage,ignore_defense\n");
+        StringBuilder expected = new StringBuilder("no_crit,crit,average\n");
+        for (double value : values) {
+            // with no multiplier and no defense the no-crit total is the flat damage itself
+            String flat = new BigDecimal(value).toPlainString();
+            in.append("0,").append(flat).append(",true\n");
+            Skill skill = new Skill("Basic", 0.0, ScalingMode.ATK_COEF);
+            skill.coef = DamageCalculation.DEFAULT_ATK_COEF;
+            skill.flatDamage = value;
+            skill.ignoreDefense = true;
+            double[] totals = DamageCalculation.calculateDamage(defaultAttacker(), defaultDefender(), skill, FormulaType.GENERIC);
+            assertEquals(value, totals[0]);
+            expected.append(csvRow(totals));
+        }
+        assertEquals(expected.toString(), run(in.toString(), 2).out);
+    }
+
+    private record Result(String out, String errors, DamageBatch.Summary summary) {
+    }
+
+    private static Result run(String in, int threads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            DamageBatch.Summary summary = DamageBatch.run(
+                    Channels.newChannel(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8))),
+                    out, new PrintStream(errors, true, StandardCharsets.UTF_8), pool);
+            return new Result(out.toString(StandardCharsets.UTF_8),
+                    errors.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n"), summary);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String csv(List<Scenario> scenarios, String newline, boolean finalNewline) {
+        StringBuilder in = new StringBuilder(HEADER);
+        for (Scenario scenario : scenarios) {
+            in.append(newline).append(scenario.csv());
+        }
+        return finalNewline ? in.append(newline).toString() : in.toString();
+    }
+
+    private static String expectedCsv(List<Scenario> scenarios) {
+        StringBuilder expected = new StringBuilder("no_crit,crit,average\n");
+        for (Scenario scenario : scenarios) {
+            expected.append(csvRow(scenario.expected()));
+        }
+        return expected.toString();
+    }
+
+    private static String csvRow(double[] result) {
+        return format(result[0]) + "," + format(result[1]) + "," + format(result[2]) + "\n";
+    }
+
+    // DamageCalculation's DF_DEFAULT without the grouping separators, which a CSV cell cannot hold
+    private static String format(double value) {
+        return new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ROOT)).format(value);
+    }
+
+    private static List<Scenario> scenarios(SplittableRandom random, int count) {
+        List<Scenario> scenarios = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            scenarios.add(new Scenario("Unit " + i,
+                    Element.values()[random.nextInt(Element.values().length)],
+                    hundredths(random, 300, 1500), hundredths(random, 0, 800),
+                    hundredths(random, 0, 100), hundredths(random, 0, 100),
+                    Element.values()[random.nextInt(Element.values().length)],
+                    hundredths(random, 0, 1500), hundredths(random, 0, 10_000),
+                    ScalingMode.values()[random.nextInt(ScalingMode.values().length)],
+                    hundredths(random, 0.5, 4), 1 + random.nextInt(5), random.nextInt(4) == 0,
+                    FormulaType.values()[random.nextInt(FormulaType.values().length)]));
+        }
+        return scenarios;
+    }
+
+    private static double hundredths(SplittableRandom random, double low, double high) {
+        return Math.round((low + random.nextDouble() * (high - low)) * 100) / 100.0;
+    }
+
+    private static Unit defaultAttacker() {
+        Unit attacker = new Unit("Attacker");
+        attacker.baseAtk = DamageCalculation.DEFAULT_ATTACKER_ATK;
+        attacker.baseHp = DamageCalculation.DEFAULT_ATTACKER_HP;
+        attacker.baseDef = DamageCalculation.DEFAULT_ATTACKER_DEF;
+        attacker.baseSpd = DamageCalculation.DEFAULT_ATTACKER_SPD;
+        return attacker;
+    }
+
+    private static Unit defaultDefender() {
+        Unit defender = new Unit("Defender");
+        defender.baseHp = DamageCalculation.DEFAULT_DEFENDER_HP;
+        defender.baseDef = DamageCalculation.DEFAULT_DEFENDER_DEF;
+        return defender;
+    }
+
+    // One row of input: the columns of COLUMNS, everything else at the prompts' defaults
+    private static final class Scenario {
+        String name;
+        final Element attackerElement;
+        final double baseAtk;
+        final double bonusAtk;
+        final double critRate;
+        final double critDamage;
+        final Element defenderElement;
+        final double defenderDef;
+        final double defenderBonusHp;
+        final ScalingMode mode;
+        final double multiplier;
+        final int hits;
+        final boolean ignoreDefense;
+        final FormulaType formula;
+
+        Scenario(String name, Element attackerElement, double baseAtk, double bonusAtk, double critRate,
+                 double critDamage, Element defenderElement, double defenderDef, double defenderBonusHp,
+                 ScalingMode mode, double multiplier, int hits, boolean ignoreDefense, FormulaType formula) {
+            this.name = name;
+            this.attackerElement = attackerElement;
+            this.baseAtk = baseAtk;
+            this.bonusAtk = bonusAtk;
+            this.critRate = critRate;
+            this.critDamage = critDamage;
+            this.defenderElement = defenderElement;
+            this.defenderDef = defenderDef;
+            this.defenderBonusHp = defenderBonusHp;
+            this.mode = mode;
+            this.multiplier = multiplier;
+            this.hits = hits;
+            this.ignoreDefense = ignoreDefense;
+            this.formula = formula;
+        }
+
+        // elements and modes by name in mixed case, the formula by its menu number
+        String csv() {
+            return "\"" + name + "\"," + attackerElement.name() + "," + baseAtk + "," + bonusAtk + "," + critRate + ","
+                    + critDamage + "," + defenderElement.name().toLowerCase(Locale.ROOT) + "," + defenderDef + ","
+                    + defenderBonusHp + "," + mode.name().toLowerCase(Locale.ROOT) + "," + multiplier + "," + hits + ","
+                    + ignoreDefense + "," + (formula.ordinal() + 1) + ",\"Skill, " + hits + " hits\"";
+        }
+
+        // a zero bonus is sent as null, which leaves the default of 0; comment is not a column
+        String json() {
+            return "{\"attacker_name\": \"" + name + "\", \"attacker_element\": \"" + attackerElement.name()
+                    + "\", \"attacker_base_atk\": " + baseAtk
+                    + ", \"attacker_bonus_atk\": " + (bonusAtk == 0 ? "null" : String.valueOf(bonusAtk))
+                    + ", \"crit_rate\": " + critRate + ", \"crit_damage\": " + critDamage
+                    + ", \"defender_element\": " + (defenderElement.ordinal())
+                    + ", \"defender_base_def\": " + defenderDef + ", \"defender_bonus_hp\": " + defenderBonusHp
+                    + ", \"comment\": \"not a column\", \"mode\": \"" + mode.name() + "\", \"multiplier\": " + multiplier
+                    + ", \"hits\": " + hits + ", \"ignore_defense\": " + ignoreDefense
+                    + ", \"formula\": \"" + formula.name().toLowerCase(Locale.ROOT) + "\"}";
+        }
+
+        double[] expected() {
+            Unit attacker = defaultAttacker();
+            attacker.element = attackerElement;
+            attacker.baseAtk = baseAtk;
+            attacker.bonusAtk = bonusAtk;
+            attacker.critRate = critRate / 100.0;
+            attacker.critDamage = critDamage / 100.0;
+            Unit defender = defaultDefender();
+            defender.element = defenderElement;
+            defender.baseDef = defenderDef;
+            defender.bonusHp = defenderBonusHp;
+            Skill skill = new Skill("Skill", multiplier, mode);
+            skill.hits = hits;
+            skill.ignoreDefense = ignoreDefense;
+            skill.coef = switch (mode) {
+                case ATK_COEF -> DamageCalculation.DEFAULT_ATK_COEF;
+                case DEF_COEF -> DamageCalculation.DEFAULT_DEF_COEF;
+                case HP_COEF -> DamageCalculation.DEFAULT_HP_COEF;
+                default -> 1.0;
+            };
+            if (mode == ScalingMode.ATK_DEF_COMBO) {
+                skill.aCoef = DamageCalculation.DEFAULT_ACO;
+                skill.dCoef = DamageCalculation.DEFAULT_DEFOE;
+            }
+            return DamageCalculation.calculateDamage(attacker, defender, skill, formula);
+        }
+    }
+}
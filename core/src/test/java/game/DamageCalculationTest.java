@@ -0,0 +1,175 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.SkillColumns;
+import game.DamageCalculation.Unit;
+import game.DamageCalculation.UnitColumns;
+
+// The batch calculateDamage is a hand copy of the scalar one; these compare the two bit for bit
+// (assertEquals on doubles tells 0.0 from -0.0 and accepts NaN only against NaN)
+class DamageCalculationTest {
+    private static final double[] SPECIAL = {
+            Double.NaN, 0.0, -0.0, -1.0, -2500.0, 1e-300, 1e308, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+    private static final int[] SPECIAL_HITS = {0, 1, 3, -2};
+
+    @Test
+    void batchMatchesScalarForEveryModeFormulaAndElementPair() {
+        SplittableRandom random = new SplittableRandom(21);
+        int perCase = 8;
+        int rows = ScalingMode.values().length * 2 * Element.values().length * Element.values().length * perCase;
+        Row[] table = new Row[rows];
+        int row = 0;
+        for (ScalingMode mode : ScalingMode.values()) {
+            for (boolean ignoreDefense : new boolean[] {false, true}) {
+                for (Element attackerElement : Element.values()) {
+                    for (Element defenderElement : Element.values()) {
+                        for (int i = 0; i < perCase; i++) {
+                            Row r = randomRow(random, 0.0);
+                            r.attacker.element = attackerElement;
+                            r.defender.element = defenderElement;
+                            r.skill.mode = mode;
+                            r.skill.ignoreDefense = ignoreDefense;
+                            table[row++] = r;
+                        }
+                    }
+                }
+            }
+        }
+        for (FormulaType formula : FormulaType.values()) {
+            assertBatchMatches(table, formula);
+        }
+    }
+
+    @Test
+    void batchMatchesScalarOnNaNZeroNegativeAndInfiniteInputs() {
+        SplittableRandom random = new SplittableRandom(22);
+        Row[] table = new Row[20_000];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = randomRow(random, 0.25);
+        }
+        for (FormulaType formula : FormulaType.values()) {
+            assertBatchMatches(table, formula);
+        }
+    }
+
+    @Test
+    void batchWritesOnlyTheRequestedRange() {
+        SplittableRandom random = new SplittableRandom(23);
+        Row[] table = new Row[64];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = randomRow(random, 0.0);
+        }
+        Columns columns = new Columns(table);
+        double[] noCrit = new double[table.length];
+        double[] crit = new double[table.length];
+        double[] average = new double[table.length];
+        Arrays.fill(noCrit, -7.0);
+        DamageCalculation.calculateDamage(columns.attackers, columns.defenders, columns.skills, FormulaType.GENERIC,
+                10, 20, noCrit, crit, average);
+        for (int i = 0; i < table.length; i++) {
+            if (i < 10 || i >= 20) {
+                assertEquals(-7.0, noCrit[i], "row " + i + " is outside [10, 20)");
+            } else {
+                assertEquals(DamageCalculation.calculateDamage(table[i].attacker, table[i].defender, table[i].skill,
+                        FormulaType.GENERIC)[0], noCrit[i], "row " + i);
+            }
+        }
+    }
+
+    private static void assertBatchMatches(Row[] table, FormulaType formula) {
+        Columns columns = new Columns(table);
+        double[] noCrit = new double[table.length];
+        double[] crit = new double[table.length];
+        double[] average = new double[table.length];
+        DamageCalculation.calculateDamage(columns.attackers, columns.defenders, columns.skills, formula,
+                0, table.length, noCrit, crit, average);
+        for (int i = 0; i < table.length; i++) {
+            Row r = table[i];
+            double[] expected = DamageCalculation.calculateDamage(r.attacker, r.defender, r.skill, formula);
+            String where = formula + " row " + i + " (" + r.skill.mode + ", " + r.attacker.element + " vs "
+                    + r.defender.element + ", ignoreDefense " + r.skill.ignoreDefense + ")";
+            assertEquals(expected[0], noCrit[i], "no-crit total, " + where);
+            assertEquals(expected[1], crit[i], "crit total, " + where);
+            assertEquals(expected[2], average[i], "average total, " + where);
+        }
+    }
+
+    private record Row(Unit attacker, Unit defender, Skill skill) {
+    }
+
+    private static final class Columns {
+        final UnitColumns attackers;
+        final UnitColumns defenders;
+        final SkillColumns skills;
+
+        Columns(Row[] table) {
+            attackers = new UnitColumns(table.length);
+            defenders = new UnitColumns(table.length);
+            skills = new SkillColumns(table.length);
+            for (int i = 0; i < table.length; i++) {
+                attackers.set(i, table[i].attacker);
+                defenders.set(i, table[i].defender);
+                skills.set(i, table[i].skill);
+            }
+        }
+    }
+
+    // Every field random; with probability special each number is instead NaN, a zero, negative or infinite
+    private static Row randomRow(SplittableRandom random, double special) {
+        Unit attacker = randomUnit(random, special, "Attacker");
+        Unit defender = randomUnit(random, special, "Defender");
+        Skill skill = new Skill("Skill", value(random, special, 0.5, 3.0),
+                ScalingMode.values()[random.nextInt(ScalingMode.values().length)]);
+        skill.flatDamage = value(random, special, 0.0, 200.0);
+        skill.hits = random.nextDouble() < special
+                ? SPECIAL_HITS[random.nextInt(SPECIAL_HITS.length)]
+                : 1 + random.nextInt(5);
+        skill.ignoreDefense = random.nextBoolean();
+        skill.coef = value(random, special, 0.1, 4.0);
+        skill.aCoef = value(random, special, 0.1, 3.0);
+        skill.dCoef = value(random, special, 0.0, 3.0);
+        skill.spdAdd = value(random, special, 0.0, 120.0);
+        skill.spdDiv = value(random, special, 100.0, 1000.0);
+        return new Row(attacker, defender, skill);
+    }
+
+    private static Unit randomUnit(SplittableRandom random, double special, String name) {
+        Unit unit = new Unit(name);
+        unit.element = Element.values()[random.nextInt(Element.values().length)];
+        unit.baseAtk = value(random, special, 300.0, 1500.0);
+        unit.baseHp = value(random, special, 2000.0, 15000.0);
+        unit.baseDef = value(random, special, 200.0, 1200.0);
+        unit.baseSpd = value(random, special, 80.0, 130.0);
+        unit.bonusAtk = value(random, special, 0.0, 1200.0);
+        unit.bonusHp = value(random, special, 0.0, 10000.0);
+        unit.bonusDef = value(random, special, 0.0, 800.0);
+        unit.bonusSpd = value(random, special, 0.0, 150.0);
+        unit.attackBuffPercent = value(random, special, 0.0, 0.5);
+        unit.flatAttack = value(random, special, 0.0, 300.0);
+        unit.critRate = value(random, special, 0.0, 1.0);
+        unit.critDamage = value(random, special, 0.0, 2.0);
+        unit.defenseBreakPercent = value(random, special, 0.0, 0.7);
+        unit.ignoreDefensePercent = value(random, special, 0.0, 0.5);
+        unit.damageAmplifyPercent = value(random, special, 0.0, 0.5);
+        unit.damageReductionPercent = value(random, special, 0.0, 0.5);
+        return unit;
+    }
+
+    private static double value(SplittableRandom random, double special, double low, double high) {
+        if (random.nextDouble() < special) {
+            return SPECIAL[random.nextInt(SPECIAL.length)];
+        }
+        return low + random.nextDouble() * (high - low);
+    }
+}
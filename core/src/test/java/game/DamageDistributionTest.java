@@ -0,0 +1,174 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import game.DamageCalculation.HitOutcomes;
+
+// Compares DamageDistribution.of with enumerating all 4^hits outcome sequences, for up to 8 hits
+class DamageDistributionTest {
+    private static final int MAX_HITS = 8;
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    void matchesEnumerationOnRandomOutcomes() {
+        SplittableRandom random = new SplittableRandom(23);
+        for (int round = 0; round < 200; round++) {
+            // some per-hit values are negative, so the zero floor gets exercised too
+            HitOutcomes outcomes = new HitOutcomes(
+                    -100 + random.nextDouble() * 600, -100 + random.nextDouble() * 1200,
+                    -100 + random.nextDouble() * 400, -100 + random.nextDouble() * 800,
+                    chance(random), chance(random), random.nextInt(MAX_HITS + 1));
+            assertMatchesEnumeration(outcomes);
+        }
+    }
+
+    @Test
+    void negativeTotalsCollapseIntoZero() {
+        HitOutcomes outcomes = new HitOutcomes(-50, 120, -80, 10, 0.3, 0.25, 4);
+        DamageDistribution distribution = DamageDistribution.of(outcomes, 0.0);
+        Enumeration enumeration = new Enumeration(outcomes);
+        assertEquals(0.0, distribution.getValue(0));
+        assertEquals(enumeration.atMost(0.0), distribution.getProbability(0), TOLERANCE);
+        assertEquals(enumeration.atMost(0.0), distribution.cdf(0.0), TOLERANCE);
+        assertEquals(0.0, distribution.cdf(-1.0));
+        assertMatchesEnumeration(outcomes);
+    }
+
+    @Test
+    void killProbabilityAtAnExactTotalCountsThatTotal() {
+        SplittableRandom random = new SplittableRandom(24);
+        for (int round = 0; round < 200; round++) {
+            // whole-number hits keep every total exact, so each one can be asked for directly
+            HitOutcomes outcomes = new HitOutcomes(
+                    random.nextInt(-20, 200), random.nextInt(-20, 400),
+                    random.nextInt(-20, 100), random.nextInt(-20, 200),
+                    chance(random), chance(random), 1 + random.nextInt(MAX_HITS));
+            DamageDistribution distribution = DamageDistribution.of(outcomes, 0.0);
+            Enumeration enumeration = new Enumeration(outcomes);
+            for (double total : enumeration.distinctTotals()) {
+                assertEquals(enumeration.atLeast(total), distribution.killProbability(total), TOLERANCE,
+                        outcomes + " at " + total);
+                assertEquals(enumeration.atMost(total), distribution.cdf(total), TOLERANCE,
+                        outcomes + " at " + total);
+            }
+            for (int i = 0; i < distribution.size(); i++) {
+                assertEquals(enumeration.atLeast(distribution.getValue(i)),
+                        distribution.killProbability(distribution.getValue(i)), TOLERANCE, outcomes + " index " + i);
+            }
+        }
+    }
+
+    private static double chance(SplittableRandom random) {
+        // certain and impossible outcomes are dropped before convolving, so test those as well
+        return switch (random.nextInt(6)) {
+            case 0 -> 0.0;
+            case 1 -> 1.0;
+            default -> random.nextDouble();
+        };
+    }
+
+    private static void assertMatchesEnumeration(HitOutcomes outcomes) {
+        DamageDistribution distribution = DamageDistribution.of(outcomes, 0.0);
+        Enumeration enumeration = new Enumeration(outcomes);
+        String where = outcomes.toString();
+        int hits = Math.max(0, outcomes.hits());
+        assertTrue(distribution.size() <= (hits + 3) * (hits + 2) * (hits + 1) / 6, where + " size " + distribution.size());
+        assertEquals(1.0, distribution.getCumulativeProbability(distribution.size() - 1), TOLERANCE, where);
+        for (int i = 1; i < distribution.size(); i++) {
+            assertTrue(distribution.getValue(i) > distribution.getValue(i - 1), where + " index " + i);
+        }
+        assertTrue(distribution.getValue(0) >= 0.0, where);
+        double scale = Math.max(1.0, enumeration.totals[enumeration.totals.length - 1]);
+        assertEquals(enumeration.mean(), distribution.getMean(), TOLERANCE * scale, where);
+
+        // probe just below and just above each group of equal totals
+        double gap = 1e-9 * scale;
+        for (double total : enumeration.distinctTotals()) {
+            assertEquals(enumeration.atLeast(total - gap), distribution.killProbability(total - gap), TOLERANCE,
+                    where + " at " + total);
+            assertEquals(enumeration.atMost(total + gap), distribution.cdf(total + gap), TOLERANCE,
+                    where + " at " + total);
+        }
+    }
+
+    // All 4^hits sequences of per-hit outcomes, summed and floored at 0
+    private static final class Enumeration {
+        final double[] totals;
+        final double[] probabilities;
+
+        Enumeration(HitOutcomes outcomes) {
+            double glance = outcomes.glanceChance();
+            double crit = outcomes.critChance();
+            double[] hitValues = {outcomes.normal(), outcomes.crit(), outcomes.glance(), outcomes.glanceCrit()};
+            double[] hitProbabilities = {(1 - glance) * (1 - crit), (1 - glance) * crit, glance * (1 - crit), glance * crit};
+            int hits = Math.max(0, outcomes.hits());
+            int sequences = 1 << (2 * hits);
+            double[][] pairs = new double[sequences][];
+            for (int sequence = 0; sequence < sequences; sequence++) {
+                double total = 0.0;
+                double probability = 1.0;
+                for (int hit = 0; hit < hits; hit++) {
+                    int kind = (sequence >>> (2 * hit)) & 3;
+                    total += hitValues[kind];
+                    probability *= hitProbabilities[kind];
+                }
+                pairs[sequence] = new double[] {Math.max(0.0, total), probability};
+            }
+            Arrays.sort(pairs, (a, b) -> Double.compare(a[0], b[0]));
+            totals = new double[sequences];
+            probabilities = new double[sequences];
+            for (int i = 0; i < sequences; i++) {
+                totals[i] = pairs[i][0];
+                probabilities[i] = pairs[i][1];
+            }
+        }
+
+        double mean() {
+            double mean = 0.0;
+            for (int i = 0; i < totals.length; i++) {
+                mean += totals[i] * probabilities[i];
+            }
+            return mean;
+        }
+
+        // Totals that some sequence reaches with non-zero probability; sums of the same hits in another
+        // order may differ by rounding, so only the first of a run of nearly equal totals is kept
+        double[] distinctTotals() {
+            double[] distinct = new double[totals.length];
+            int count = 0;
+            for (int i = 0; i < totals.length; i++) {
+                if (probabilities[i] > 0
+                        && (count == 0 || totals[i] - distinct[count - 1] > 1e-9 * Math.max(1.0, Math.abs(totals[i])))) {
+                    distinct[count++] = totals[i];
+                }
+            }
+            return Arrays.copyOf(distinct, count);
+        }
+
+        double atLeast(double damage) {
+            double probability = 0.0;
+            for (int i = 0; i < totals.length; i++) {
+                if (totals[i] >= damage) {
+                    probability += probabilities[i];
+                }
+            }
+            return probability;
+        }
+
+        double atMost(double damage) {
+            double probability = 0.0;
+            for (int i = 0; i < totals.length; i++) {
+                if (totals[i] <= damage) {
+                    probability += probabilities[i];
+                }
+            }
+            return probability;
+        }
+    }
+}
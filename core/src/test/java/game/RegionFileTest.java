@@ -0,0 +1,233 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+// Saves small worlds through region files and reads every cell back, and checks where RegionFile puts a
+// rewritten chunk and that World.save only writes the chunks that changed
+class RegionFileTest {
+    // not a whole number of chunks or regions, so the worlds span several region files
+    private static final int SIZE = 37 * Chunk.SIZE + 5;
+
+    @Test
+    void worldRoundTripsThroughRegionFiles() throws IOException {
+        Path directory = Files.createTempDirectory("regions");
+        try {
+            SplittableRandom random = new SplittableRandom(3);
+            int[][] expected = new int[SIZE][SIZE];
+            // few chunks loaded at once, so most edits are written by eviction before the save
+            try (RegionChunkStore store = new RegionChunkStore(directory)) {
+                World world = new World(SIZE, SIZE, 16, store);
+                for (int y = 0; y < SIZE; y++) {
+                    for (int x = 0; x < SIZE; x++) {
+                        expected[y][x] = world.getBlockId(x, y);
+                    }
+                }
+                for (int i = 0; i < 2000; i++) {
+                    int x = random.nextInt(SIZE);
+                    int y = random.nextInt(SIZE);
+                    int id = random.nextInt(BlockRegistry.size());
+                    world.setBlockId(x, y, id);
+                    expected[y][x] = id;
+                }
+                // a whole chunk filled with one other block, stored uniform again
+                for (int y = 0; y < Chunk.SIZE; y++) {
+                    for (int x = 0; x < Chunk.SIZE; x++) {
+                        world.setBlockId(Chunk.SIZE + x, SIZE - Chunk.SIZE - 5 + y, BlockRegistry.STONE);
+                        expected[SIZE - Chunk.SIZE - 5 + y][Chunk.SIZE + x] = BlockRegistry.STONE;
+                    }
+                }
+                world.save();
+            }
+            try (RegionChunkStore store = new RegionChunkStore(directory)) {
+                World world = new World(SIZE, SIZE, 16, store);
+                for (int y = 0; y < SIZE; y++) {
+                    for (int x = 0; x < SIZE; x++) {
+                        assertEquals(expected[y][x], world.getBlockId(x, y), "cell " + x + ", " + y);
+                    }
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void uniformAndDeflatedChunksReadBackTheSame() throws IOException {
+        Path directory = Files.createTempDirectory("regions");
+        try {
+            Path path = directory.resolve("r.0.0.region");
+            SplittableRandom random = new SplittableRandom(5);
+            Chunk uniform = new Chunk(BlockRegistry.WATER);
+            Chunk mixed = randomChunk(random, BlockRegistry.size());
+            try (RegionFile region = new RegionFile(path)) {
+                assertNull(region.read(0, 0));
+                region.write(0, 0, uniform);
+                region.write(RegionFile.MASK, RegionFile.MASK, mixed);
+                assertTrue(region.contains(0, 0));
+                assertFalse(region.contains(1, 0));
+                assertSameCells(uniform, region.read(0, 0));
+                assertSameCells(mixed, region.read(RegionFile.MASK, RegionFile.MASK));
+            }
+            try (RegionFile region = new RegionFile(path)) {
+                Chunk read = region.read(0, 0);
+                assertTrue(read.isUniform());
+                assertSameCells(uniform, read);
+                assertSameCells(mixed, region.read(RegionFile.MASK, RegionFile.MASK));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void rewriteStaysInItsSlotUntilItOutgrowsIt() throws IOException {
+        Path directory = Files.createTempDirectory("regions");
+        try {
+            Path path = directory.resolve("r.0.0.region");
+            SplittableRandom random = new SplittableRandom(7);
+            Chunk large = randomChunk(random, BlockRegistry.size());
+            Chunk neighbour = randomChunk(random, 3);
+            Chunk small = new Chunk(BlockRegistry.AIR);
+            small.set(3, 4, BlockRegistry.STONE);
+            Chunk uniform = new Chunk(BlockRegistry.DIRT);
+            try (RegionFile region = new RegionFile(path)) {
+                region.write(0, 0, large);
+                region.write(1, 0, neighbour);
+                region.flush();
+                int slot = offset(path, 0, 0);
+                assertEquals(0, slot % 64);
+
+                // a smaller deflated chunk and then a uniform one both fit the slot the large one left
+                region.write(0, 0, small);
+                region.flush();
+                assertEquals(slot, offset(path, 0, 0));
+                assertSameCells(small, region.read(0, 0));
+                region.write(0, 0, uniform);
+                region.flush();
+                assertEquals(slot, offset(path, 0, 0));
+                assertSameCells(uniform, region.read(0, 0));
+
+                // the uniform chunk's length is what the slot holds now, so the large one outgrows it and
+                // moves to the end of the file, leaving its neighbour alone
+                int end = (int) Files.size(path);
+                region.write(0, 0, large);
+                region.flush();
+                int moved = offset(path, 0, 0);
+                assertEquals(0, moved % 64);
+                assertTrue(moved >= end, "re-appended at " + moved + ", file ended at " + end);
+
+                assertSameCells(large, region.read(0, 0));
+                assertSameCells(neighbour, region.read(1, 0));
+            }
+            try (RegionFile region = new RegionFile(path)) {
+                assertSameCells(large, region.read(0, 0));
+                assertSameCells(neighbour, region.read(1, 0));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void saveWritesOnlyDirtyChunks() throws IOException {
+        Path directory = Files.createTempDirectory("regions");
+        try (RegionChunkStore regions = new RegionChunkStore(directory)) {
+            List<Long> saved = new ArrayList<>();
+            ChunkStore store = new ChunkStore() {
+                @Override
+                public Chunk load(int chunkX, int chunkY) {
+                    return regions.load(chunkX, chunkY);
+                }
+
+                @Override
+                public void save(int chunkX, int chunkY, Chunk chunk) {
+                    saved.add(World.chunkKey(chunkX, chunkY));
+                    regions.save(chunkX, chunkY, chunk);
+                }
+
+                @Override
+                public void flush() {
+                    regions.flush();
+                }
+            };
+            World world = new World(SIZE, SIZE, World.DEFAULT_MAX_LOADED_CHUNKS, store);
+            // load every chunk, but only change two, one of them twice
+            for (int y = 0; y < SIZE; y += Chunk.SIZE) {
+                for (int x = 0; x < SIZE; x += Chunk.SIZE) {
+                    world.getBlockId(x, y);
+                }
+            }
+            world.setBlockId(3, 3, BlockRegistry.STONE);
+            world.setBlockId(4, 3, BlockRegistry.WOOD);
+            world.setBlockId(SIZE - 1, SIZE - 1, BlockRegistry.AIR);
+            assertEquals(2, world.save());
+            assertEquals(List.of(World.chunkKey(0, 0), World.chunkKey((SIZE - 1) >> Chunk.SHIFT, (SIZE - 1) >> Chunk.SHIFT)),
+                    saved.stream().sorted().toList());
+
+            saved.clear();
+            assertEquals(0, world.save());
+            assertEquals(List.of(), saved);
+
+            world.setBlockId(3, 3, BlockRegistry.STONE);
+            world.setBlockId(5, 3, BlockRegistry.WATER);
+            assertEquals(1, world.save());
+            assertEquals(List.of(World.chunkKey(0, 0)), saved);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // A chunk with every cell drawn from the first kinds block ids
+    private static Chunk randomChunk(SplittableRandom random, int kinds) {
+        Chunk chunk = new Chunk(BlockRegistry.AIR);
+        for (int y = 0; y < Chunk.SIZE; y++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                chunk.set(x, y, random.nextInt(kinds));
+            }
+        }
+        return chunk;
+    }
+
+    private static void assertSameCells(Chunk expected, Chunk actual) {
+        for (int y = 0; y < Chunk.SIZE; y++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                assertEquals(expected.get(x, y), actual.get(x, y), "cell " + x + ", " + y);
+            }
+        }
+        assertEquals(expected.getTypeMask(), actual.getTypeMask());
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            assertEquals(expected.getColumnTop(x), actual.getColumnTop(x), "column " + x);
+        }
+    }
+
+    // The chunk's data offset from the header: a magic int, then an (offset, length) int pair per chunk
+    private static int offset(Path path, int localX, int localY) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer entry = ByteBuffer.allocate(4);
+            channel.read(entry, 4 + ((localY << RegionFile.SHIFT) | localX) * 8L);
+            return entry.getInt(0);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import game.RegionQuery.Hit;
+
+// Compares RegionQuery's chunk-summary shortcuts with walking or scanning every cell, on a world whose
+// chunks are empty, sparse, half or wholly solid, around the origin so negative coordinates are covered
+class RegionQueryTest {
+    // the cells the tests look at, in chunks either side of 0
+    private static final int EXTENT = 12 * Chunk.SIZE;
+
+    private final World world = new World(EXTENT, EXTENT, RegionQueryTest::generate, 4096, new MemoryChunkStore());
+    private final RegionQuery query = new RegionQuery(world);
+
+    // Mostly empty chunks, so rays and ring searches have chunks to skip; the 3 x 3 chunks from (2, 2)
+    // are solid stone, so isAll has a multi-chunk region to be true on
+    private static Chunk generate(int chunkX, int chunkY) {
+        if (chunkX >= 2 && chunkX <= 4 && chunkY >= 2 && chunkY <= 4) {
+            return new Chunk(BlockRegistry.STONE);
+        }
+        SplittableRandom random = new SplittableRandom(World.spread(World.chunkKey(chunkX, chunkY)));
+        int kind = random.nextInt(20);
+        Chunk chunk = new Chunk(BlockRegistry.AIR);
+        if (kind < 12) {
+            return chunk;
+        }
+        if (kind < 16) {
+            for (int n = 1 + random.nextInt(4); n > 0; n--) {
+                chunk.set(random.nextInt(Chunk.SIZE), random.nextInt(Chunk.SIZE),
+                        random.nextBoolean() ? BlockRegistry.STONE : BlockRegistry.WATER);
+            }
+        } else if (kind < 18) {
+            for (int y = Chunk.SIZE / 2; y < Chunk.SIZE; y++) {
+                for (int x = 0; x < Chunk.SIZE; x++) {
+                    chunk.set(x, y, BlockRegistry.DIRT);
+                }
+            }
+        } else {
+            chunk.fill(BlockRegistry.WOOD);
+        }
+        return chunk;
+    }
+
+    @Test
+    void raycastMatchesWalkingEveryCell() {
+        SplittableRandom random = new SplittableRandom(12);
+        int mask = BlockRegistry.mask(BlockRegistry.STONE) | BlockRegistry.mask(BlockRegistry.WATER);
+        for (int n = 0; n < 20000; n++) {
+            int x0 = coordinate(random);
+            int y0 = coordinate(random);
+            int x1;
+            int y1;
+            switch (n % 5) {
+                case 0 -> { // along x
+                    x1 = coordinate(random);
+                    y1 = y0;
+                }
+                case 1 -> { // along y
+                    x1 = x0;
+                    y1 = coordinate(random);
+                }
+                case 2 -> { // diagonal, through cell corners
+                    int length = random.nextInt(EXTENT);
+                    x1 = x0 + (random.nextBoolean() ? length : -length);
+                    y1 = y0 + (random.nextBoolean() ? length : -length);
+                }
+                default -> {
+                    x1 = coordinate(random);
+                    y1 = coordinate(random);
+                }
+            }
+            String where = "(" + x0 + ", " + y0 + ") to (" + x1 + ", " + y1 + ")";
+            assertEquals(walk(x0, y0, x1, y1, mask), query.raycast(x0, y0, x1, y1, mask), where);
+            assertEquals(walk(x0, y0, x1, y1, BlockRegistry.SOLID_MASK), query.raycastSolid(x0, y0, x1, y1), where);
+        }
+        // a single cell, and long rays that can only be answered by skipping empty chunks
+        assertEquals(walk(-7, -7, -7, -7, mask), query.raycast(-7, -7, -7, -7, mask));
+        for (int y = -EXTENT; y < EXTENT; y += 7) {
+            assertEquals(walk(-EXTENT, y, EXTENT - 1, -y, mask), query.raycast(-EXTENT, y, EXTENT - 1, -y, mask), "y " + y);
+            assertEquals(walk(EXTENT - 1, y, -EXTENT, y / 3, mask), query.raycast(EXTENT - 1, y, -EXTENT, y / 3, mask), "y " + y);
+        }
+    }
+
+    @Test
+    void raycastWithNothingMaskedCrossesTheWholeLine() {
+        assertEquals(null, query.raycast(-EXTENT, -EXTENT, EXTENT, EXTENT - 3, BlockRegistry.mask(BlockRegistry.LAVA)));
+        assertEquals(null, query.raycast(EXTENT, -5, -EXTENT, 5, 0));
+    }
+
+    @Test
+    void nearestMatchesScanningTheRadius() {
+        SplittableRandom random = new SplittableRandom(13);
+        int[] radii = {0, 1, Chunk.SIZE - 1, Chunk.SIZE, Chunk.SIZE + 1, 2 * Chunk.SIZE, 3 * Chunk.SIZE + 7, 5 * Chunk.SIZE};
+        int[] types = {BlockRegistry.WATER, BlockRegistry.STONE, BlockRegistry.DIRT, BlockRegistry.LAVA};
+        for (int n = 0; n < 3000; n++) {
+            // origins on either edge of a chunk as often as inside one, so ring boundaries fall close by
+            int x = coordinate(random) / 2;
+            int y = coordinate(random) / 2;
+            switch (n % 3) {
+                case 0 -> x = (x & ~Chunk.MASK) + (random.nextBoolean() ? 0 : Chunk.MASK);
+                case 1 -> y = (y & ~Chunk.MASK) + (random.nextBoolean() ? 0 : Chunk.MASK);
+                default -> {
+                }
+            }
+            int blockId = types[random.nextInt(types.length)];
+            int radius = radii[random.nextInt(radii.length)];
+            assertEquals(scanNearest(x, y, blockId, radius), query.nearest(x, y, blockId, radius),
+                    "(" + x + ", " + y + ") id " + blockId + " radius " + radius);
+        }
+    }
+
+    @Test
+    void aggregatesMatchAFullScan() {
+        SplittableRandom random = new SplittableRandom(14);
+        for (int n = 0; n < 1500; n++) {
+            int x1 = coordinate(random) / 2;
+            int y1 = coordinate(random) / 2;
+            // mostly regions of a few chunks, with corners anywhere inside a chunk
+            int x2 = x1 + random.nextInt(-3 * Chunk.SIZE, 3 * Chunk.SIZE);
+            int y2 = y1 + random.nextInt(-3 * Chunk.SIZE, 3 * Chunk.SIZE);
+            assertAggregates(x1, y1, x2, y2);
+        }
+        // inside the solid block of chunks, aligned or not, and one cell past it
+        assertAggregates(2 * Chunk.SIZE, 2 * Chunk.SIZE, 5 * Chunk.SIZE - 1, 5 * Chunk.SIZE - 1);
+        assertAggregates(2 * Chunk.SIZE + 3, 5 * Chunk.SIZE - 2, 5 * Chunk.SIZE - 4, 2 * Chunk.SIZE + 9);
+        assertAggregates(2 * Chunk.SIZE + 3, 2 * Chunk.SIZE + 3, 5 * Chunk.SIZE, 4 * Chunk.SIZE);
+        assertTrue(query.isAll(2 * Chunk.SIZE + 3, 5 * Chunk.SIZE - 2, 5 * Chunk.SIZE - 4, 2 * Chunk.SIZE + 9,
+                BlockRegistry.STONE));
+        assertFalse(query.containsAny(2 * Chunk.SIZE, 2 * Chunk.SIZE, 5 * Chunk.SIZE - 1, 5 * Chunk.SIZE - 1,
+                ~BlockRegistry.mask(BlockRegistry.STONE)));
+    }
+
+    private void assertAggregates(int x1, int y1, int x2, int y2) {
+        long[] counts = new long[BlockRegistry.size()];
+        int present = 0;
+        for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); y++) {
+            for (int x = Math.min(x1, x2); x <= Math.max(x1, x2); x++) {
+                int id = world.getBlockId(x, y);
+                counts[id]++;
+                present |= BlockRegistry.mask(id);
+            }
+        }
+        String where = "(" + x1 + ", " + y1 + ") to (" + x2 + ", " + y2 + ")";
+        for (int id = 0; id < counts.length; id++) {
+            assertEquals(counts[id], query.count(x1, y1, x2, y2, id), where + " id " + id);
+            assertEquals(present == BlockRegistry.mask(id), query.isAll(x1, y1, x2, y2, id), where + " id " + id);
+        }
+        assertEquals(counts[BlockRegistry.WATER], query.countAll(x1, y1, x2, y2)[BlockRegistry.WATER], where);
+        for (int mask : new int[] {BlockRegistry.SOLID_MASK, BlockRegistry.FLUID_MASK,
+                BlockRegistry.mask(BlockRegistry.WATER), BlockRegistry.mask(BlockRegistry.DIRT)}) {
+            assertEquals((present & mask) != 0, query.containsAny(x1, y1, x2, y2, mask), where + " mask " + mask);
+        }
+    }
+
+    // Steps one cell at a time with raycast's own rule: x first while its next boundary comes strictly
+    // before the next y boundary
+    private Hit walk(int x0, int y0, int x1, int y1, int mask) {
+        long dx = Math.abs((long) x1 - x0);
+        long dy = Math.abs((long) y1 - y0);
+        int stepX = x1 > x0 ? 1 : -1;
+        int stepY = y1 > y0 ? 1 : -1;
+        long i = 0;
+        long j = 0;
+        while (true) {
+            int x = (int) (x0 + stepX * i);
+            int y = (int) (y0 + stepY * j);
+            int id = world.getBlockId(x, y);
+            if ((mask & BlockRegistry.mask(id)) != 0) {
+                return new Hit(x, y, id);
+            }
+            if (i == dx && j == dy) {
+                return null;
+            }
+            if (j == dy || (i < dx && (2 * i + 1) * dy < (2 * j + 1) * dx)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    // Closest matching cell within the radius, ties going to the smaller y, then the smaller x
+    private Hit scanNearest(int x, int y, int blockId, int radius) {
+        Hit best = null;
+        long bestDistance = (long) radius * radius;
+        for (int cy = y - radius; cy <= y + radius; cy++) {
+            for (int cx = x - radius; cx <= x + radius; cx++) {
+                long distance = (long) (cx - x) * (cx - x) + (long) (cy - y) * (cy - y);
+                if (distance <= bestDistance && world.getBlockId(cx, cy) == blockId
+                        && (best == null || distance < bestDistance)) {
+                    best = new Hit(cx, cy, blockId);
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int coordinate(SplittableRandom random) {
+        return random.nextInt(-EXTENT, EXTENT);
+    }
+}
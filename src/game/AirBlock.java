@@ -1,3 +1,5 @@
+package game;
+
 public class AirBlock extends Block {
     public AirBlock() {
         this.name = "Air";
@@ -1,3 +1,5 @@
+package game;
+
 public class BedrockBlock extends Block {
     public BedrockBlock() {
         this.name = "Bedrock";
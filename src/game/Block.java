@@ -1,3 +1,5 @@
+package game;
+
 public abstract class Block {
     protected String name;
     protected boolean breakable;
@@ -0,0 +1,6 @@
+package game;
+
+public interface BlockChangeListener {
+    // Called after a cell changed; not called for writes that leave the cell as it was
+    void blockChanged(int x, int y, int oldId, int newId);
+}
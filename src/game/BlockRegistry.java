@@ -0,0 +1,81 @@
+package game;
+
+public final class BlockRegistry {
+    public static final int AIR = 0;
+    public static final int DIRT = 1;
+    public static final int GRASS = 2;
+    public static final int STONE = 3;
+    public static final int WOOD = 4;
+    public static final int WATER = 5;
+    public static final int LAVA = 6;
+    public static final int BEDROCK = 7;
+
+    // One shared instance per block type; blocks carry no per-cell state
+    private static final Block[] BLOCKS = {
+            new AirBlock(),
+            new DirtBlock(),
+            new GrassBlock(),
+            new StoneBlock(),
+            new WoodBlock(),
+            new WaterBlock(),
+            new LavaBlock(),
+            new BedrockBlock()
+    };
+
+    private static final boolean[] WALKABLE = new boolean[BLOCKS.length];
+
+    // Bit sets over block ids, in the same form as Chunk.getTypeMask()
+    public static final int FLUID_MASK = mask(WATER) | mask(LAVA);
+    public static final int SOLID_MASK;
+    public static final int UNBREAKABLE_MASK;
+
+    static {
+        int solid = 0;
+        int unbreakable = 0;
+        for (int id = 0; id < BLOCKS.length; id++) {
+            WALKABLE[id] = BLOCKS[id].isWalkable();
+            if (!WALKABLE[id]) {
+                solid |= mask(id);
+            }
+            if (!BLOCKS[id].isBreakable()) {
+                unbreakable |= mask(id);
+            }
+        }
+        SOLID_MASK = solid;
+        UNBREAKABLE_MASK = unbreakable;
+    }
+
+    private BlockRegistry() {
+    }
+
+    // Table lookup instead of a virtual isWalkable() call
+    public static boolean isWalkable(int id) {
+        return WALKABLE[id];
+    }
+
+    public static int mask(int id) {
+        return 1 << id;
+    }
+
+    public static int size() {
+        return BLOCKS.length;
+    }
+
+    public static Block get(int id) {
+        return BLOCKS[id];
+    }
+
+    public static int idOf(Block block) {
+        for (int id = 0; id < BLOCKS.length; id++) {
+            if (BLOCKS[id] == block) {
+                return id;
+            }
+        }
+        for (int id = 0; id < BLOCKS.length; id++) {
+            if (BLOCKS[id].getClass() == block.getClass()) {
+                return id;
+            }
+        }
+        throw new IllegalArgumentException("Unregistered block type: " + block.getClass().getName());
+    }
+}
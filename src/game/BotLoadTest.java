@@ -0,0 +1,200 @@
+package game;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+// Drives Player.move and Player.BreakBlock for many bots against one shared World, with no server or
+// console in between, to find where the engine itself stops scaling. Bots are split evenly over
+// platform threads that act for them back to back; every action is timed.
+// Usage: BotLoadTest [bots] [seconds] [threads] [random|script] [seed]
+public class BotLoadTest {
+    private static final int WORLD_WIDTH = 4096;
+    private static final int WORLD_HEIGHT = 256;
+    private static final int WARMUP_SECONDS = 2;
+    // the scripted policy walks, digs a shaft, climbs out and walks on
+    private static final String[] SCRIPT = {"D", "D", "D", "BS", "S", "BS", "S", "BD", "D", "W", "W", "A", "BA", "A", "D", "D"};
+    private static final String[] RANDOM = {"W", "A", "S", "D", "A", "D", "BS", "BA", "BD", "B"};
+
+    private static final class Bot {
+        final Player player;
+        final SplittableRandom random;
+        int step;
+        long moves;
+        long breaks;
+
+        Bot(Player player, SplittableRandom random) {
+            this.player = player;
+            this.random = random;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int bots = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean scripted = args.length > 3 && args[3].equals("script");
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+
+        TerrainGenerator generator = new NoiseTerrainGenerator(seed, WORLD_HEIGHT / 2, WORLD_HEIGHT - 4);
+        World world = new World(WORLD_WIDTH, WORLD_HEIGHT, generator, World.DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+        world.pregenerate(0, 0, WORLD_WIDTH >> Chunk.SHIFT, WORLD_HEIGHT >> Chunk.SHIFT, ForkJoinPool.commonPool());
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        Bot[] all = new Bot[bots];
+        for (int i = 0; i < bots; i++) {
+            Player player = Player.spawnAt(world, Math.floorMod(i * 7, WORLD_WIDTH));
+            player.setVerbose(false);
+            all[i] = new Bot(player, seeds.split());
+        }
+
+        AtomicLong allocated = new AtomicLong();
+        long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+        GcPauses pauses = new GcPauses(warmupEnd);
+        long[] actions = new long[threads];
+        // one per worker so timing does not contend; merged once the run is over
+        Histogram[] latencies = new Histogram[threads];
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(Thread.ofPlatform().name("bots-" + t).start(() -> {
+                com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                Histogram latency = new Histogram();
+                long count = 0;
+                long allocatedAtStart = -1;
+                long now = System.nanoTime();
+                while (now < end) {
+                    boolean measuring = now >= warmupEnd;
+                    if (measuring && allocatedAtStart < 0) {
+                        allocatedAtStart = mx.getCurrentThreadAllocatedBytes();
+                    }
+                    for (int i = worker; i < bots && now < end; i += threads) {
+                        long before = System.nanoTime();
+                        act(all[i], world, scripted, measuring);
+                        now = System.nanoTime();
+                        if (measuring) {
+                            latency.record(now - before);
+                            count++;
+                        }
+                    }
+                }
+                actions[worker] = count;
+                latencies[worker] = latency;
+                allocated.addAndGet(mx.getCurrentThreadAllocatedBytes() - Math.max(0, allocatedAtStart));
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        pauses.close();
+
+        long total = 0;
+        Histogram latency = new Histogram();
+        for (int t = 0; t < threads; t++) {
+            total += actions[t];
+            latency.add(latencies[t]);
+        }
+        long moves = 0;
+        long breaks = 0;
+        for (Bot bot : all) {
+            moves += bot.moves;
+            breaks += bot.breaks;
+        }
+        System.out.printf("bots: %d on %d threads, %s policy, seed %d, %d s after %d s warm-up%n",
+                bots, threads, scripted ? "scripted" : "random", seed, seconds, WARMUP_SECONDS);
+        System.out.printf("actions: %d, %.0f/s (%d moves and %d blocks broken)%n",
+                total, total / (double) seconds, moves, breaks);
+        System.out.printf("latency: p50 %.2f us, p99 %.2f us, p99.9 %.2f us, max %.2f us%n",
+                latency.getPercentile(0.50) / 1e3, latency.getPercentile(0.99) / 1e3,
+                latency.getPercentile(0.999) / 1e3, latency.getMax() / 1e3);
+        System.out.printf("allocation: %.1f MB/s, %.1f bytes/action%n",
+                allocated.get() / 1e6 / seconds, total == 0 ? 0.0 : allocated.get() / (double) total);
+        System.out.printf("gc: %d pauses, total %d ms, max %d ms%n",
+                pauses.count(), pauses.totalMillis(), pauses.maxMillis());
+        System.out.printf("chunks loaded: %d, evicted: %d, world checksum %016x%n",
+                world.getChunkLoads(), world.getChunkEvictions(), world.checksum());
+    }
+
+    // Warm-up actions still change the world but are left out of the bot's counts, like its timings
+    private static void act(Bot bot, World world, boolean scripted, boolean measuring) {
+        String command = scripted ? SCRIPT[bot.step++ % SCRIPT.length] : RANDOM[bot.random.nextInt(RANDOM.length)];
+        Player player = bot.player;
+        if (command.charAt(0) == 'B') {
+            boolean broke = command.length() > 1 ? player.BreakBlock(command.charAt(1), world) : player.BreakBlock(world);
+            if (broke && measuring) {
+                bot.breaks++;
+            }
+        } else if (player.move(command.charAt(0), world) && measuring) {
+            bot.moves++;
+        }
+    }
+
+    // Stop-the-world pauses reported by the collectors after the warm-up; concurrent cycles are
+    // excluded since they do not stop the bots
+    private static final class GcPauses {
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final NotificationListener listener = (notification, handback) -> {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) {
+                return;
+            }
+            record(info.getGcInfo().getDuration());
+        };
+        private final long since;
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+
+        GcPauses(long sinceNanos) {
+            since = sinceNanos;
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(listener, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        private synchronized void record(long millis) {
+            if (System.nanoTime() < since) {
+                return;
+            }
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized long totalMillis() {
+            return totalMillis;
+        }
+
+        synchronized long maxMillis() {
+            return maxMillis;
+        }
+
+        void close() throws Exception {
+            for (NotificationEmitter emitter : emitters) {
+                emitter.removeNotificationListener(listener);
+            }
+        }
+    }
+}
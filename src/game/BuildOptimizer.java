@@ -0,0 +1,976 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import game.DamageCalculation.ElementalModifiers;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Picks one gear piece per slot from a catalogue so that calculateDamage's average total, averaged over
+// a set of target defenders, is as high as possible, and returns the best K builds. The search is
+// depth-first branch-and-bound over the slots. At each node the stat totals any completion can reach
+// lie in a box (chosen pieces plus the smallest and largest bonus each remaining slot offers, stat by
+// stat), and the log of each target's damage is bounded over that box by an affine function of the
+// totals, so the formula's products become sums; its maximum over the remaining slots is then found slot
+// by slot, which respects that one piece cannot carry every stat at once. Slots whose pieces differ the
+// most are branched on first, which leaves narrow boxes and tight bounds near the leaves. Pieces that at
+// least K others in their slot match or beat in every stat that matters are dropped first. The first
+// slots are forked over a ForkJoinPool and all workers prune against one
+// shared top-K threshold; ties go to catalogue order, so the answer does not depend on the thread count.
+// The bounds assume damage never drops when an attacker stat grows, which holds for skills and targets
+// with non-negative coefficients.
+// BuildOptimizerBenchmark times it by catalogue and pool size.
+public final class BuildOptimizer {
+    public enum Stat {
+        BONUS_ATK,
+        BONUS_HP,
+        BONUS_DEF,
+        BONUS_SPD,
+        ATTACK_BUFF,
+        FLAT_ATTACK,
+        CRIT_RATE,
+        CRIT_DAMAGE,
+        IGNORE_DEFENSE,
+        DAMAGE_AMPLIFY
+    }
+
+    private static final Stat[] STATS = Stat.values();
+    private static final int DIMENSIONS = STATS.length;
+    // forked subtrees per worker, so uneven subtrees still balance
+    private static final int TASKS_PER_THREAD = 8;
+    // the bound and the score round differently; prune only when the bound is clearly below
+    private static final double SLACK = 1e-9;
+
+    public static final class Piece {
+        private final String name;
+        private final int slot;
+        private final double[] bonuses = new double[DIMENSIONS];
+
+        public Piece(String name, int slot) {
+            if (slot < 0) {
+                throw new IllegalArgumentException("negative slot " + slot);
+            }
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public Piece with(Stat stat, double bonus) {
+            bonuses[stat.ordinal()] += bonus;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public double getBonus(Stat stat) {
+            return bonuses[stat.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final class Build {
+        // by slot number; null for a slot the catalogue has no pieces for
+        private final Piece[] pieces;
+        // catalogue index per slot, compared in slot order to break ties
+        private final int[] order;
+        private final double score;
+        private final double[] totals;
+
+        private Build(Piece[] pieces, int[] order, double score, double[] totals) {
+            this.pieces = pieces;
+            this.order = order;
+            this.score = score;
+            this.totals = totals;
+        }
+
+        public List<Piece> getPieces() {
+            List<Piece> list = new ArrayList<>();
+            for (Piece piece : pieces) {
+                if (piece != null) {
+                    list.add(piece);
+                }
+            }
+            return list;
+        }
+
+        // Average damage over the targets
+        public double getScore() {
+            return score;
+        }
+
+        public double getBonus(Stat stat) {
+            return totals[stat.ordinal()];
+        }
+    }
+
+    private final Unit attacker;
+    private final Unit[] targets;
+    private final Skill skill;
+    private final FormulaType formulaType;
+    private final double[] minimums = new double[DIMENSIONS];
+    private final LongAdder nodes = new LongAdder();
+    private int piecesDropped;
+
+    public BuildOptimizer(Unit attacker, List<Unit> targets, Skill skill, FormulaType formulaType) {
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("no targets");
+        }
+        this.attacker = attacker;
+        this.targets = targets.toArray(new Unit[0]);
+        this.skill = skill;
+        this.formulaType = formulaType;
+        Arrays.fill(minimums, Double.NEGATIVE_INFINITY);
+    }
+
+    // Only builds whose gear adds at least this much of the stat qualify, e.g. a speed requirement
+    public BuildOptimizer require(Stat stat, double minimum) {
+        minimums[stat.ordinal()] = minimum;
+        return this;
+    }
+
+    // Search nodes visited by the last optimize call
+    public long getNodesVisited() {
+        return nodes.sum();
+    }
+
+    // Pieces the last optimize call dropped as dominated
+    public int getPiecesDropped() {
+        return piecesDropped;
+    }
+
+    // Best builds first; fewer than k when the catalogue does not allow that many
+    public List<Build> optimize(List<Piece> catalogue, int k, ForkJoinPool pool) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        nodes.reset();
+        int slotCount = 0;
+        for (Piece piece : catalogue) {
+            slotCount = Math.max(slotCount, piece.slot + 1);
+        }
+        List<List<Integer>> bySlot = new ArrayList<>();
+        for (int s = 0; s < slotCount; s++) {
+            bySlot.add(new ArrayList<>());
+        }
+        for (int i = 0; i < catalogue.size(); i++) {
+            bySlot.get(catalogue.get(i).slot).add(i);
+        }
+
+        boolean[] relevant = relevantStats(catalogue, bySlot);
+        List<int[]> levels = new ArrayList<>();
+        int dropped = 0;
+        for (List<Integer> indexes : bySlot) {
+            if (!indexes.isEmpty()) {
+                int[] kept = undominated(catalogue, indexes, relevant, k);
+                dropped += indexes.size() - kept.length;
+                levels.add(kept);
+            }
+        }
+        piecesDropped = dropped;
+
+        Search search = new Search(catalogue, levels.toArray(new int[0][]), relevant, slotCount, k);
+        int forkDepth = 0;
+        long subtrees = 1;
+        while (forkDepth < search.levels.length && subtrees < (long) TASKS_PER_THREAD * pool.getParallelism()) {
+            subtrees *= search.levels[forkDepth++].length;
+        }
+        pool.invoke(new SearchTask(search, 0, forkDepth, new double[DIMENSIONS], search.lead[0], new int[search.levels.length]));
+        return search.best();
+    }
+
+    // A stat matters if moving it between its smallest and largest possible total changes the score with
+    // every other stat at its smallest or at its largest total, or if a minimum is set for it
+    private boolean[] relevantStats(List<Piece> catalogue, List<List<Integer>> bySlot) {
+        double[] low = new double[DIMENSIONS];
+        double[] high = new double[DIMENSIONS];
+        for (List<Integer> indexes : bySlot) {
+            if (indexes.isEmpty()) {
+                continue;
+            }
+            for (int s = 0; s < DIMENSIONS; s++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i : indexes) {
+                    min = Math.min(min, catalogue.get(i).bonuses[s]);
+                    max = Math.max(max, catalogue.get(i).bonuses[s]);
+                }
+                low[s] += min;
+                high[s] += max;
+            }
+        }
+        Unit scratch = copyOf(attacker);
+        boolean[] relevant = new boolean[DIMENSIONS];
+        for (int s = 0; s < DIMENSIONS; s++) {
+            if (minimums[s] > Double.NEGATIVE_INFINITY) {
+                relevant[s] = true;
+                continue;
+            }
+            for (double[] point : new double[][] {low, high}) {
+                double[] lowered = point.clone();
+                double[] raised = point.clone();
+                lowered[s] = low[s];
+                raised[s] = high[s];
+                if (score(scratch, lowered) != score(scratch, raised)) {
+                    relevant[s] = true;
+                }
+            }
+        }
+        return relevant;
+    }
+
+    // Drops every piece that k others match or beat in all relevant stats; among identical pieces the
+    // earlier one in the catalogue counts as the better
+    private static int[] undominated(List<Piece> catalogue, List<Integer> indexes, boolean[] relevant, int k) {
+        int[] kept = new int[indexes.size()];
+        int size = 0;
+        for (int candidate : indexes) {
+            double[] mine = catalogue.get(candidate).bonuses;
+            int dominators = 0;
+            for (int other : indexes) {
+                if (other == candidate) {
+                    continue;
+                }
+                double[] theirs = catalogue.get(other).bonuses;
+                boolean atLeast = true;
+                boolean better = false;
+                for (int s = 0; s < DIMENSIONS && atLeast; s++) {
+                    if (!relevant[s]) {
+                        continue;
+                    }
+                    if (theirs[s] < mine[s]) {
+                        atLeast = false;
+                    } else if (theirs[s] > mine[s]) {
+                        better = true;
+                    }
+                }
+                if (atLeast && (better || other < candidate) && ++dominators >= k) {
+                    break;
+                }
+            }
+            if (dominators < k) {
+                kept[size++] = candidate;
+            }
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    // Average of calculateDamage's average total over the targets, with the gear bonuses on the attacker
+    private double score(Unit scratch, double[] bonuses) {
+        scratch.bonusAtk = attacker.bonusAtk + bonuses[Stat.BONUS_ATK.ordinal()];
+        scratch.bonusHp = attacker.bonusHp + bonuses[Stat.BONUS_HP.ordinal()];
+        scratch.bonusDef = attacker.bonusDef + bonuses[Stat.BONUS_DEF.ordinal()];
+        scratch.bonusSpd = attacker.bonusSpd + bonuses[Stat.BONUS_SPD.ordinal()];
+        scratch.attackBuffPercent = attacker.attackBuffPercent + bonuses[Stat.ATTACK_BUFF.ordinal()];
+        scratch.flatAttack = attacker.flatAttack + bonuses[Stat.FLAT_ATTACK.ordinal()];
+        scratch.critRate = attacker.critRate + bonuses[Stat.CRIT_RATE.ordinal()];
+        scratch.critDamage = attacker.critDamage + bonuses[Stat.CRIT_DAMAGE.ordinal()];
+        scratch.ignoreDefensePercent = attacker.ignoreDefensePercent + bonuses[Stat.IGNORE_DEFENSE.ordinal()];
+        scratch.damageAmplifyPercent = attacker.damageAmplifyPercent + bonuses[Stat.DAMAGE_AMPLIFY.ordinal()];
+        double sum = 0.0;
+        for (Unit target : targets) {
+            sum += DamageCalculation.calculateDamage(scratch, target, skill, formulaType)[2];
+        }
+        return sum / targets.length;
+    }
+
+    // Log-domain over-estimate of calculateDamage's average total against one target over the box
+    // low <= totals <= high: log damage(x) <= b + a.x there, or null when some step of the formula is not
+    // positive and the estimate does not apply. Follows calculateDamage step by step (keep them in step).
+    // Products become sums of logs, logs of stats are bounded by their tangent at the reference totals,
+    // and the crit and defense factors as noted at critFactor and defenseFactor.
+    private LogBound estimate(Unit target, double[] low, double[] high, double[] reference) {
+        LogBound attackTotal = LogBound.stat(Stat.BONUS_ATK, attacker.totalAtk(), low, high, reference);
+        LogBound buff = LogBound.stat(Stat.ATTACK_BUFF, 1.0 + attacker.attackBuffPercent, low, high, reference);
+        LogBound attack = LogBound.plus(LogBound.product(attackTotal, buff), Stat.FLAT_ATTACK, attacker.flatAttack, low, high, reference);
+        LogBound hp = LogBound.stat(Stat.BONUS_HP, attacker.totalHp(), low, high, reference);
+        LogBound speed = skill.spdDiv > 0
+                ? LogBound.scale(LogBound.stat(Stat.BONUS_SPD, attacker.totalSpd() + skill.spdAdd, low, high, reference), 1.0 / skill.spdDiv)
+                : null;
+        LogBound scaled = switch (skill.mode) {
+            case ATK_COEF -> LogBound.scale(attack, skill.coef);
+            case DEF_COEF -> LogBound.constant(skill.coef * target.totalDef());
+            case HP_COEF -> LogBound.scale(hp, skill.coef);
+            case ATK_DEF_COMBO -> LogBound.plus(LogBound.scale(attack, skill.aCoef), null, skill.dCoef * target.totalDef(), low, high, reference);
+            case SPD_WITH_ATK -> LogBound.product(attack, speed);
+            case SPD_WITH_DEF -> LogBound.scale(speed, target.totalDef());
+            case SPD_WITH_HP -> LogBound.product(hp, speed);
+            default -> attack;
+        };
+        LogBound perHit = LogBound.plus(LogBound.scale(scaled, skill.multiplier), null, skill.flatDamage, low, high, reference);
+        LogBound amplify = LogBound.stat(Stat.DAMAGE_AMPLIFY, 1.0 + attacker.damageAmplifyPercent, low, high, reference);
+
+        ElementalModifiers modifiers = DamageCalculation.computeElementalModifiers(attacker.element, target.element);
+        LogBound critFactor = critFactor(attacker.critRate + modifiers.elemCritDelta(), low, high, reference);
+
+        double constant = skill.hits * modifiers.elemDamageMul() * (1.0 - target.damageReductionPercent)
+                * ((1.0 - modifiers.glancingProb()) * modifiers.nonGlanceMultiplier()
+                + modifiers.glancingProb() * modifiers.glancingMultiplier());
+        LogBound damage = LogBound.scale(LogBound.product(LogBound.product(perHit, amplify), critFactor), constant);
+        if (damage == null || skill.ignoreDefense) {
+            return damage;
+        }
+        return defenseFactor(target, damage, attack, low, high, reference);
+    }
+
+    // 1 + clamp(rate, 0, 1) * critDamage. The clamped rate p is bounded from above by a line in the rate over
+    // the box, then p * d <= s^2 with s = (p / alpha + alpha * d) / 2, equal where alpha^2 = p / d, so alpha is
+    // taken from the reference. log(1 + s^2) is convex below s = 1 and concave above; it lies under any line
+    // of slope k raised to touch it somewhere on the box's range of s, and k is its slope at the reference.
+    private LogBound critFactor(double rateBase, double[] low, double[] high, double[] reference) {
+        int rate = Stat.CRIT_RATE.ordinal();
+        int damage = Stat.CRIT_DAMAGE.ordinal();
+        double rateLow = rateBase + low[rate];
+        double rateHigh = rateBase + high[rate];
+        double damageLow = attacker.critDamage + low[damage];
+        double damageHigh = attacker.critDamage + high[damage];
+        if (damageLow < 0) {
+            return null;
+        }
+        if (rateHigh <= 0) {
+            return LogBound.constant(1.0);
+        }
+        // clamp(r) <= intercept + slope * r: the chord where max(0, r) bends, then a line through (1, 1) no
+        // steeper than that where min(1, r) bends
+        double slope = 1.0;
+        double intercept = 0.0;
+        double clampedLow = Math.max(0.0, rateLow);
+        if (rateLow < 0) {
+            slope = rateHigh / (rateHigh - rateLow);
+            intercept = -rateLow * slope;
+        }
+        if (rateHigh > 1) {
+            double bend = clampedLow >= 1 ? 0.0 : (1.0 - clampedLow) / (rateHigh - clampedLow);
+            slope *= bend;
+            intercept = 1.0 + (intercept - 1.0) * bend;
+        }
+        double lineAt = intercept + slope * (rateBase + reference[rate]);
+        double damageAt = attacker.critDamage + reference[damage];
+        clampedLow = Math.min(1.0, clampedLow);
+        double clampedHigh = Math.min(1.0, rateHigh);
+        double[] a = new double[DIMENSIONS];
+        if (clampedHigh * damageHigh <= 1) {
+            // log(1 + p * d) is concave where p * d <= 1, so on the whole box: its tangent at the reference
+            double rateAt = Math.min(1.0, Math.max(0.0, rateBase + reference[rate]));
+            double at = 1.0 + rateAt * damageAt;
+            a[rate] = damageAt / at * slope;
+            a[damage] = rateAt / at;
+            double b = Math.log(at) + damageAt / at * (intercept + slope * rateBase - rateAt) - rateAt / at * reference[damage];
+            return new LogBound(1.0 + clampedLow * damageLow, 1.0 + clampedHigh * damageHigh, b, a);
+        }
+        double alpha = Math.sqrt(Math.max(lineAt, DamageCalculation.EPSILON) / Math.max(damageAt, DamageCalculation.EPSILON));
+        double sLow = ((intercept + slope * rateLow) / alpha + alpha * damageLow) / 2;
+        double sHigh = ((intercept + slope * rateHigh) / alpha + alpha * damageHigh) / 2;
+        double sAt = (lineAt / alpha + alpha * damageAt) / 2;
+        double k = 2 * sAt / (1 + sAt * sAt);
+        // highest log(1 + s^2) - k * s on [sLow, sHigh]: at an end, at the bend, or where the concave side
+        // has slope k
+        double raise = Double.NEGATIVE_INFINITY;
+        double touch = k > 0 ? (1 + Math.sqrt(Math.max(0.0, 1 - k * k))) / k : sHigh;
+        for (double candidate : new double[] {sLow, sHigh, 1.0, touch}) {
+            double clamped = Math.min(sHigh, Math.max(sLow, candidate));
+            raise = Math.max(raise, Math.log1p(clamped * clamped) - k * clamped);
+        }
+
+        a[rate] = k * slope / (2 * alpha);
+        a[damage] = k * alpha / 2;
+        double b = raise + k * ((intercept + slope * rateBase) / alpha + alpha * attacker.critDamage) / 2;
+        return new LogBound(1.0 + clampedLow * damageLow, 1.0 + clampedHigh * damageHigh, b, a);
+    }
+
+    // Multiplies damage by the defense factor. Summoner-War-like: log(A / (A + D)) = -softplus(log D - log A)
+    // is concave, rising in log A and falling in log D, so its tangent at the reference bounds it once log A
+    // is bounded from above (attack's bound) and log D from below (its chord in ignore-defense). Generic:
+    // -log(100 + D) is convex in ignore-defense while D stays positive, so its chord bounds it.
+    private LogBound defenseFactor(Unit target, LogBound damage, LogBound attack, double[] low, double[] high, double[] reference) {
+        int ignore = Stat.IGNORE_DEFENSE.ordinal();
+        double broken = target.totalDef() * (1.0 - attacker.defenseBreakPercent);
+        double ignoreLow = attacker.ignoreDefensePercent + low[ignore];
+        double ignoreHigh = attacker.ignoreDefensePercent + high[ignore];
+        double defenseHigh = Math.max(0.0, broken * (1.0 - ignoreLow));
+        double defenseLow = Math.max(0.0, broken * (1.0 - ignoreHigh));
+        boolean chord = broken > 0 && ignoreHigh <= 1 && ignoreHigh > ignoreLow;
+        double[] a = damage.a.clone();
+        if (formulaType == FormulaType.SUMMONER_WAR_LIKE) {
+            if (attack == null || attack.lo <= 0) {
+                return null;
+            }
+            double epsilon = DamageCalculation.EPSILON;
+            double attackAt = (attacker.totalAtk() + reference[Stat.BONUS_ATK.ordinal()])
+                    * (1.0 + attacker.attackBuffPercent + reference[Stat.ATTACK_BUFF.ordinal()])
+                    + attacker.flatAttack + reference[Stat.FLAT_ATTACK.ordinal()];
+            double defenseAt = Math.max(0.0, broken * (1.0 - attacker.ignoreDefensePercent - reference[ignore])) + epsilon;
+            double weight = defenseAt / (attackAt + defenseAt);
+            // log(D + epsilon) >= logDefense + defenseSlope * (x - low) in ignore-defense
+            double logDefense = Math.log((chord ? defenseHigh : defenseLow) + epsilon);
+            double defenseSlope = chord ? (Math.log(defenseLow + epsilon) - logDefense) / (ignoreHigh - ignoreLow) : 0.0;
+            double b = damage.b + Math.log(attackAt / (attackAt + defenseAt))
+                    + weight * (attack.b - Math.log(attackAt))
+                    - weight * (logDefense - defenseSlope * low[ignore] - Math.log(defenseAt));
+            for (int s = 0; s < DIMENSIONS; s++) {
+                a[s] += weight * attack.a[s];
+            }
+            a[ignore] -= weight * defenseSlope;
+            return new LogBound(damage.lo * attack.lo / (attack.lo + defenseHigh + epsilon),
+                    damage.hi * attack.hi / (attack.hi + defenseLow + epsilon), b, a);
+        }
+        double divisor = DamageCalculation.GENERIC_DEF_DIVISOR;
+        double logFactorLow = Math.log(divisor / (divisor + defenseHigh));
+        double logFactorHigh = Math.log(divisor / (divisor + defenseLow));
+        if (!chord) {
+            return new LogBound(damage.lo * Math.exp(logFactorLow), damage.hi * Math.exp(logFactorHigh), damage.b + logFactorHigh, a);
+        }
+        double slope = (logFactorHigh - logFactorLow) / (ignoreHigh - ignoreLow);
+        a[ignore] += slope;
+        return new LogBound(damage.lo * Math.exp(logFactorLow), damage.hi * Math.exp(logFactorHigh),
+                damage.b + logFactorLow - slope * low[ignore], a);
+    }
+
+    // log q(x) <= b + a.x for every gear total x in the box, and 0 < lo <= q(x) <= hi there. The operations
+    // return null when their input is null or they would need a factor that is not positive.
+    private static final class LogBound {
+        final double lo;
+        final double hi;
+        final double b;
+        final double[] a;
+
+        LogBound(double lo, double hi, double b, double[] a) {
+            this.lo = lo;
+            this.hi = hi;
+            this.b = b;
+            this.a = a;
+        }
+
+        static LogBound constant(double value) {
+            return value > 0 ? new LogBound(value, value, Math.log(value), new double[DIMENSIONS]) : null;
+        }
+
+        // base + x[stat], by the tangent of its log at the reference
+        static LogBound stat(Stat stat, double base, double[] low, double[] high, double[] reference) {
+            int s = stat.ordinal();
+            double lo = base + low[s];
+            if (lo <= 0) {
+                return null;
+            }
+            double at = base + reference[s];
+            double[] a = new double[DIMENSIONS];
+            a[s] = 1.0 / at;
+            return new LogBound(lo, base + high[s], Math.log(at) - reference[s] / at, a);
+        }
+
+        static LogBound scale(LogBound q, double factor) {
+            if (q == null || factor <= 0) {
+                return null;
+            }
+            return new LogBound(factor * q.lo, factor * q.hi, q.b + Math.log(factor), q.a);
+        }
+
+        static LogBound product(LogBound p, LogBound q) {
+            if (p == null || q == null) {
+                return null;
+            }
+            double[] a = new double[DIMENSIONS];
+            for (int s = 0; s < DIMENSIONS; s++) {
+                a[s] = p.a[s] + q.a[s];
+            }
+            return new LogBound(p.lo * q.lo, p.hi * q.hi, p.b + q.b, a);
+        }
+
+        // q + r with r = base + x[stat], or just base when stat is null, and never negative:
+        // log(q + r) = log q + log(1 + r / q), where r / q <= r / q.lo and log(1 + t) lies under its
+        // tangent at the reference
+        static LogBound plus(LogBound q, Stat stat, double base, double[] low, double[] high, double[] reference) {
+            double rLow = stat == null ? base : base + low[stat.ordinal()];
+            double rHigh = stat == null ? base : base + high[stat.ordinal()];
+            if (q == null || rLow < 0) {
+                return null;
+            }
+            double at = (stat == null ? base : base + reference[stat.ordinal()]) / q.lo;
+            double[] a = q.a.clone();
+            double b = q.b + Math.log1p(at) + (base / q.lo - at) / (1.0 + at);
+            if (stat != null) {
+                a[stat.ordinal()] += 1.0 / (q.lo * (1.0 + at));
+            }
+            return new LogBound(q.lo + rLow, q.hi + rHigh, b, a);
+        }
+    }
+
+    private static Unit copyOf(Unit unit) {
+        Unit copy = new Unit(unit.name);
+        copy.element = unit.element;
+        copy.baseAtk = unit.baseAtk;
+        copy.baseHp = unit.baseHp;
+        copy.baseDef = unit.baseDef;
+        copy.baseSpd = unit.baseSpd;
+        copy.bonusAtk = unit.bonusAtk;
+        copy.bonusHp = unit.bonusHp;
+        copy.bonusDef = unit.bonusDef;
+        copy.bonusSpd = unit.bonusSpd;
+        copy.attackBuffPercent = unit.attackBuffPercent;
+        copy.flatAttack = unit.flatAttack;
+        copy.critRate = unit.critRate;
+        copy.critDamage = unit.critDamage;
+        copy.defenseBreakPercent = unit.defenseBreakPercent;
+        copy.ignoreDefensePercent = unit.ignoreDefensePercent;
+        copy.damageAmplifyPercent = unit.damageAmplifyPercent;
+        copy.damageReductionPercent = unit.damageReductionPercent;
+        return copy;
+    }
+
+    // State shared by every task of one optimize call
+    private final class Search {
+        final List<Piece> catalogue;
+        // catalogue indexes of the kept pieces, one array per searched slot
+        final int[][] levels;
+        // their bonuses, DIMENSIONS per piece
+        final double[][] bonuses;
+        // positions on each level of the pieces no other piece there dominates, and their bonuses by stat:
+        // columns[l][s][j]. The bounds' coefficients are never negative, so their best piece is among these.
+        final int[][] fronts;
+        final double[][][] columns;
+        final int widest;
+        final int[] slotOf;
+        final int slotCount;
+        // low[l][s] and high[l][s]: sums over levels l.. of the smallest and largest bonus to stat s
+        final double[][] low;
+        final double[][] high;
+        // lead[l][s]: sum over levels l.. of the first piece's bonus to stat s, the root's tail
+        final double[][] lead;
+        final int k;
+        final PriorityQueue<Build> top;
+        // score of the worst build in a full top-K, read without the lock to prune
+        volatile double threshold = Double.NEGATIVE_INFINITY;
+
+        Search(List<Piece> catalogue, int[][] levels, boolean[] relevant, int slotCount, int k) {
+            this.catalogue = catalogue;
+            this.levels = levels;
+            this.slotCount = slotCount;
+            this.k = k;
+            double[] rootLow = new double[DIMENSIONS];
+            double[] rootHigh = new double[DIMENSIONS];
+            for (int[] level : levels) {
+                for (int s = 0; s < DIMENSIONS; s++) {
+                    rootLow[s] += extreme(catalogue, level, s, false);
+                    rootHigh[s] += extreme(catalogue, level, s, true);
+                }
+            }
+            // pieces are ranked by the root bound's slope at the middle of the box
+            double[] middle = new double[DIMENSIONS];
+            for (int s = 0; s < DIMENSIONS; s++) {
+                middle[s] = (rootLow[s] + rootHigh[s]) / 2;
+            }
+            double[] slope = new double[DIMENSIONS];
+            boolean ranked = true;
+            for (Unit target : targets) {
+                LogBound bound = estimate(target, rootLow, rootHigh, middle);
+                if (bound == null) {
+                    ranked = false;
+                    break;
+                }
+                double weight = Math.exp(bound.b + dot(bound.a, middle, 0));
+                for (int s = 0; s < DIMENSIONS; s++) {
+                    slope[s] += weight * bound.a[s];
+                }
+            }
+            Unit scratch = copyOf(attacker);
+            double[][] ranks = new double[levels.length][];
+            double[] spread = new double[levels.length];
+            for (int l = 0; l < levels.length; l++) {
+                ranks[l] = new double[levels[l].length];
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < levels[l].length; i++) {
+                    double[] piece = catalogue.get(levels[l][i]).bonuses;
+                    ranks[l][i] = ranked ? dot(slope, piece, 0) : score(scratch, piece);
+                    min = Math.min(min, ranks[l][i]);
+                    max = Math.max(max, ranks[l][i]);
+                }
+                spread[l] = max - min;
+            }
+            // slots whose pieces differ the most at the top of the tree, so the boxes left near the leaves,
+            // where most nodes are, are narrow and their bounds tight; then slots with the fewest choices
+            Integer[] order = new Integer[levels.length];
+            for (int l = 0; l < levels.length; l++) {
+                order[l] = l;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingDouble(l -> -spread[l]).thenComparingInt(l -> levels[l].length));
+            int[][] sortedLevels = new int[levels.length][];
+            double[][] sortedRanks = new double[levels.length][];
+            for (int l = 0; l < levels.length; l++) {
+                sortedLevels[l] = levels[order[l]];
+                sortedRanks[l] = ranks[order[l]];
+            }
+
+            // within a slot, the most promising pieces first, so good builds raise the threshold early
+            bonuses = new double[levels.length][];
+            fronts = new int[levels.length][];
+            columns = new double[levels.length][DIMENSIONS][];
+            int width = 0;
+            for (int l = 0; l < levels.length; l++) {
+                int[] level = sortedLevels[l];
+                double[] rank = sortedRanks[l];
+                Integer[] sorted = new Integer[level.length];
+                for (int i = 0; i < level.length; i++) {
+                    sorted[i] = i;
+                }
+                Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> -rank[i]).thenComparingInt(i -> level[i]));
+                int[] reordered = new int[level.length];
+                bonuses[l] = new double[level.length * DIMENSIONS];
+                for (int i = 0; i < level.length; i++) {
+                    reordered[i] = level[sorted[i]];
+                    System.arraycopy(catalogue.get(reordered[i]).bonuses, 0, bonuses[l], i * DIMENSIONS, DIMENSIONS);
+                }
+                // undominated keeps the order it is given, so the front is matched up in one pass
+                List<Integer> indexes = new ArrayList<>();
+                for (int i : reordered) {
+                    indexes.add(i);
+                }
+                int[] kept = undominated(catalogue, indexes, relevant, 1);
+                fronts[l] = new int[kept.length];
+                for (int i = 0, j = 0; j < kept.length; i++) {
+                    if (reordered[i] == kept[j]) {
+                        fronts[l][j++] = i;
+                    }
+                }
+                for (int st = 0; st < DIMENSIONS; st++) {
+                    columns[l][st] = new double[kept.length];
+                    for (int j = 0; j < kept.length; j++) {
+                        columns[l][st][j] = bonuses[l][fronts[l][j] * DIMENSIONS + st];
+                    }
+                }
+                levels[l] = reordered;
+                width = Math.max(width, kept.length);
+            }
+            widest = width;
+
+            slotOf = new int[levels.length];
+            low = new double[levels.length + 1][DIMENSIONS];
+            high = new double[levels.length + 1][DIMENSIONS];
+            lead = new double[levels.length + 1][DIMENSIONS];
+            for (int l = levels.length - 1; l >= 0; l--) {
+                slotOf[l] = catalogue.get(levels[l][0]).slot;
+                for (int s = 0; s < DIMENSIONS; s++) {
+                    low[l][s] = low[l + 1][s] + extreme(catalogue, levels[l], s, false);
+                    high[l][s] = high[l + 1][s] + extreme(catalogue, levels[l], s, true);
+                    lead[l][s] = lead[l + 1][s] + bonuses[l][s];
+                }
+            }
+            top = new PriorityQueue<>(k + 1, worstFirst());
+        }
+
+        // Bounds below this cannot reach the top K
+        double cut() {
+            double current = threshold;
+            return current - SLACK * Math.abs(current);
+        }
+
+        // For the children of a node at this level: every build below child i scores at most the average over
+        // the targets t of exp(shared[t] + coefficients[t].(bonuses of piece i)). The bounds are taken at the
+        // totals plus tail, some pieces' bonuses summed over the remaining levels; the best pieces of the levels
+        // below under the first target's bound are summed into next, which serves as the children's tail.
+        // Returns false when, with the best piece of this level too, no build below the node can reach the top K.
+        boolean bound(Unit scratch, double[] totals, int level, double[] tail, double[] next,
+                      double[] shared, double[][] coefficients, Bounds box) {
+            for (int s = 0; s < DIMENSIONS; s++) {
+                box.low[s] = totals[s] + low[level][s];
+                box.high[s] = totals[s] + high[level][s];
+                box.reference[s] = totals[s] + tail[s];
+            }
+            for (int t = 0; t < targets.length; t++) {
+                LogBound bound = estimate(targets[t], box.low, box.high, box.reference);
+                if (bound == null) {
+                    // the score at the top corner of the box bounds it too
+                    double top = score(scratch, box.high);
+                    Arrays.fill(shared, Math.log(top));
+                    for (double[] a : coefficients) {
+                        Arrays.fill(a, 0.0);
+                    }
+                    System.arraycopy(lead[level + 1], 0, next, 0, DIMENSIONS);
+                    return top >= cut();
+                }
+                System.arraycopy(bound.a, 0, coefficients[t], 0, DIMENSIONS);
+                shared[t] = bound.b + dot(bound.a, totals, 0);
+            }
+            Arrays.fill(next, 0.0);
+            double node = 0.0;
+            for (int t = 0; t < targets.length; t++) {
+                double[] a = coefficients[t];
+                double here = Double.NEGATIVE_INFINITY;
+                for (int l = level; l < levels.length; l++) {
+                    int index = best(a, l, box.sums);
+                    if (l == level) {
+                        here = box.sums[index];
+                        continue;
+                    }
+                    shared[t] += box.sums[index];
+                    if (t == 0) {
+                        int offset = fronts[l][index] * DIMENSIONS;
+                        for (int s = 0; s < DIMENSIONS; s++) {
+                            next[s] += bonuses[l][offset + s];
+                        }
+                    }
+                }
+                node += Math.exp(shared[t] + here);
+            }
+            return node / targets.length >= cut();
+        }
+
+        // Index into fronts[l] of the piece on level l with the largest a.(bonuses), which is left in
+        // sums[index]; a stat at a time so the inner loop vectorizes
+        int best(double[] a, int l, double[] sums) {
+            int count = fronts[l].length;
+            Arrays.fill(sums, 0, count, 0.0);
+            for (int s = 0; s < DIMENSIONS; s++) {
+                double weight = a[s];
+                if (weight == 0.0) {
+                    continue;
+                }
+                double[] column = columns[l][s];
+                for (int i = 0; i < count; i++) {
+                    sums[i] += weight * column[i];
+                }
+            }
+            int best = 0;
+            for (int i = 1; i < count; i++) {
+                if (sums[i] > sums[best]) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        // Whether a child's bound from bound(...) falls below the top K
+        boolean pruned(double[] shared, double[][] coefficients, double[] pieces, int offset) {
+            double sum = 0.0;
+            for (int t = 0; t < shared.length; t++) {
+                sum += Math.exp(shared[t] + dot(coefficients[t], pieces, offset));
+            }
+            return sum / shared.length < cut();
+        }
+
+        // Whether the minimums can still be met below a node at this level
+        boolean feasible(double[] totals, int level) {
+            for (int s = 0; s < DIMENSIONS; s++) {
+                if (totals[s] + high[level][s] < minimums[s]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void offer(double score, double[] totals, int[] choices) {
+            if (score < threshold) {
+                return;
+            }
+            Piece[] pieces = new Piece[slotCount];
+            int[] order = new int[slotCount];
+            Arrays.fill(order, -1);
+            for (int l = 0; l < levels.length; l++) {
+                pieces[slotOf[l]] = catalogue.get(choices[l]);
+                order[slotOf[l]] = choices[l];
+            }
+            Build build = new Build(pieces, order, score, totals.clone());
+            synchronized (this) {
+                top.add(build);
+                if (top.size() > k) {
+                    top.poll();
+                }
+                if (top.size() == k) {
+                    threshold = top.peek().score;
+                }
+            }
+        }
+
+        synchronized List<Build> best() {
+            List<Build> builds = new ArrayList<>(top);
+            builds.sort(worstFirst().reversed());
+            return builds;
+        }
+    }
+
+    // Scratch space for one bound(...) call
+    private static final class Bounds {
+        final double[] low = new double[DIMENSIONS];
+        final double[] high = new double[DIMENSIONS];
+        final double[] reference = new double[DIMENSIONS];
+        final double[] sums;
+
+        Bounds(int widest) {
+            sums = new double[widest];
+        }
+    }
+
+    // Smallest or largest bonus to stat s among these pieces
+    private static double extreme(List<Piece> catalogue, int[] level, int s, boolean largest) {
+        double value = largest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i : level) {
+            double bonus = catalogue.get(i).bonuses[s];
+            value = largest ? Math.max(value, bonus) : Math.min(value, bonus);
+        }
+        return value;
+    }
+
+    private static Comparator<Build> worstFirst() {
+        return Comparator.comparingDouble((Build build) -> build.score).thenComparing(build -> build.order, (a, b) -> Arrays.compare(b, a));
+    }
+
+    private static double dot(double[] coefficients, double[] values, int offset) {
+        double sum = 0.0;
+        for (int s = 0; s < DIMENSIONS; s++) {
+            sum += coefficients[s] * values[offset + s];
+        }
+        return sum;
+    }
+
+    // Forks one subtask per promising piece down to forkDepth, then searches its subtree depth-first
+    @SuppressWarnings("serial") // never serialized
+    private final class SearchTask extends RecursiveAction {
+        private final Search search;
+        private final int level;
+        private final int forkDepth;
+        private final double[] totals;
+        // reference bonuses for the remaining levels, see Search.bound
+        private final double[] tail;
+        private final int[] choices;
+        private Unit scratch;
+        private Bounds box;
+
+        SearchTask(Search search, int level, int forkDepth, double[] totals, double[] tail, int[] choices) {
+            this.search = search;
+            this.level = level;
+            this.forkDepth = forkDepth;
+            this.totals = totals;
+            this.tail = tail;
+            this.choices = choices;
+        }
+
+        @Override
+        protected void compute() {
+            scratch = copyOf(attacker);
+            box = new Bounds(search.widest);
+            int depth = search.levels.length;
+            if (level >= forkDepth || level == depth) {
+                // per level: the totals so far, the tail and the bound's terms
+                double[][] path = new double[depth + 1][DIMENSIONS];
+                double[][] tails = new double[depth + 1][DIMENSIONS];
+                double[][] shared = new double[depth][targets.length];
+                double[][][] coefficients = new double[depth][targets.length][DIMENSIONS];
+                System.arraycopy(totals, 0, path[level], 0, DIMENSIONS);
+                System.arraycopy(tail, 0, tails[level], 0, DIMENSIONS);
+                descend(path, tails, shared, coefficients, choices, level);
+                return;
+            }
+            double[] shared = new double[targets.length];
+            double[][] coefficients = new double[targets.length][DIMENSIONS];
+            double[] childTail = new double[DIMENSIONS];
+            if (!search.bound(scratch, totals, level, tail, childTail, shared, coefficients, box)) {
+                return;
+            }
+            double[] pieces = search.bonuses[level];
+            List<SearchTask> children = new ArrayList<>();
+            for (int i = 0; i < search.levels[level].length; i++) {
+                nodes.increment();
+                if (search.pruned(shared, coefficients, pieces, i * DIMENSIONS)) {
+                    continue;
+                }
+                double[] next = new double[DIMENSIONS];
+                for (int s = 0; s < DIMENSIONS; s++) {
+                    next[s] = totals[s] + pieces[i * DIMENSIONS + s];
+                }
+                if (search.feasible(next, level + 1)) {
+                    int[] chosen = choices.clone();
+                    chosen[level] = search.levels[level][i];
+                    children.add(new SearchTask(search, level + 1, forkDepth, next, childTail, chosen));
+                }
+            }
+            invokeAll(children);
+        }
+
+        private void descend(double[][] path, double[][] tails, double[][] shared, double[][][] coefficients, int[] chosen, int depth) {
+            double[] current = path[depth];
+            if (depth == search.levels.length) {
+                if (search.feasible(current, depth)) {
+                    search.offer(score(scratch, current), current, chosen);
+                }
+                return;
+            }
+            if (!search.bound(scratch, current, depth, tails[depth], tails[depth + 1], shared[depth], coefficients[depth], box)) {
+                return;
+            }
+            double[] pieces = search.bonuses[depth];
+            double[] next = path[depth + 1];
+            int[] level = search.levels[depth];
+            for (int i = 0; i < level.length; i++) {
+                nodes.increment();
+                int offset = i * DIMENSIONS;
+                if (search.pruned(shared[depth], coefficients[depth], pieces, offset)) {
+                    continue;
+                }
+                for (int s = 0; s < DIMENSIONS; s++) {
+                    next[s] = current[s] + pieces[offset + s];
+                }
+                if (search.feasible(next, depth + 1)) {
+                    chosen[depth] = level[i];
+                    descend(path, tails, shared, coefficients, chosen, depth + 1);
+                }
+            }
+        }
+    }
+
+    // Rune-like random gear: one main stat by slot and four substats per piece, spread evenly over slots
+    public static List<Piece> randomCatalogue(int items, int slots, long seed) {
+        // per stat: substat range, then main stat range
+        double[][] ranges = new double[DIMENSIONS][];
+        ranges[Stat.BONUS_ATK.ordinal()] = new double[] {10, 20, 100, 160};
+        ranges[Stat.BONUS_HP.ordinal()] = new double[] {100, 375, 1500, 2450};
+        ranges[Stat.BONUS_DEF.ordinal()] = new double[] {10, 20, 100, 160};
+        ranges[Stat.BONUS_SPD.ordinal()] = new double[] {4, 6, 25, 42};
+        ranges[Stat.ATTACK_BUFF.ordinal()] = new double[] {0.04, 0.08, 0.40, 0.63};
+        ranges[Stat.FLAT_ATTACK.ordinal()] = new double[] {10, 20, 100, 160};
+        ranges[Stat.CRIT_RATE.ordinal()] = new double[] {0.04, 0.06, 0.40, 0.58};
+        ranges[Stat.CRIT_DAMAGE.ordinal()] = new double[] {0.04, 0.07, 0.50, 0.80};
+        ranges[Stat.IGNORE_DEFENSE.ordinal()] = new double[] {0.02, 0.04, 0.20, 0.30};
+        ranges[Stat.DAMAGE_AMPLIFY.ordinal()] = new double[] {0.02, 0.04, 0.20, 0.30};
+        Stat[] fixedMains = {Stat.FLAT_ATTACK, Stat.BONUS_DEF, Stat.BONUS_HP};
+        Stat[] freeMains = {Stat.ATTACK_BUFF, Stat.CRIT_RATE, Stat.CRIT_DAMAGE, Stat.BONUS_SPD, Stat.BONUS_HP};
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Piece> catalogue = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            int slot = i % slots;
+            Stat main = slot % 2 == 0 ? fixedMains[(slot / 2) % fixedMains.length] : freeMains[random.nextInt(freeMains.length)];
+            Piece piece = new Piece("piece-" + i, slot);
+            double[] range = ranges[main.ordinal()];
+            piece.with(main, range[2] + random.nextDouble() * (range[3] - range[2]));
+            boolean[] taken = new boolean[DIMENSIONS];
+            taken[main.ordinal()] = true;
+            for (int subs = 0; subs < 4; ) {
+                int s = random.nextInt(DIMENSIONS);
+                if (!taken[s]) {
+                    taken[s] = true;
+                    piece.with(STATS[s], ranges[s][0] + random.nextDouble() * (ranges[s][1] - ranges[s][0]));
+                    subs++;
+                }
+            }
+            catalogue.add(piece);
+        }
+        return catalogue;
+    }
+}
@@ -0,0 +1,249 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public final class Chunk {
+    public static final int SHIFT = 4;
+    public static final int SIZE = 1 << SHIFT;
+    public static final int MASK = SIZE - 1;
+    public static final int CELLS = SIZE * SIZE;
+
+    // palette[i] is the registry id stored under local index i
+    private final byte[] palette = new byte[BlockRegistry.size()];
+    private final int[] paletteCounts = new int[BlockRegistry.size()];
+    private int paletteSize;
+    // bit per block id present in the chunk, kept in step with paletteCounts
+    private int typeMask;
+    // per column, local y of the topmost non-walkable cell, or SIZE if the whole column is walkable
+    private final byte[] columnTops = new byte[SIZE];
+    // local palette index per cell, row-major; null while the chunk is uniform
+    private byte[] cells;
+    // set when the chunk changes, cleared once it has been written to a ChunkStore
+    private boolean dirty;
+
+    // World cache bookkeeping: the chunk's key while loaded, and when it was last looked up
+    private long key;
+    private long lastAccess;
+    private volatile boolean attached;
+    // Snapshot bookkeeping, guarded by the chunk's stripe lock: the World snapshot epoch in which this
+    // chunk was created by copy-on-write (older chunks may be shared with an open snapshot), and whether
+    // a copy has since replaced it
+    private long copyEpoch;
+    private boolean superseded;
+
+    public Chunk(int blockId) {
+        fill(blockId);
+    }
+
+    // Same contents and dirty state; the copy is not attached
+    Chunk copy() {
+        Chunk copy = new Chunk(palette[0]);
+        System.arraycopy(palette, 0, copy.palette, 0, palette.length);
+        System.arraycopy(paletteCounts, 0, copy.paletteCounts, 0, paletteCounts.length);
+        System.arraycopy(columnTops, 0, copy.columnTops, 0, SIZE);
+        copy.paletteSize = paletteSize;
+        copy.typeMask = typeMask;
+        copy.cells = cells == null ? null : cells.clone();
+        copy.dirty = dirty;
+        return copy;
+    }
+
+    // Inverse of writeTo; the returned chunk is clean
+    public static Chunk readFrom(ByteBuffer in) {
+        int size = in.get();
+        Chunk chunk = new Chunk(in.get());
+        if (size == 1) {
+            return chunk;
+        }
+        for (int i = 1; i < size; i++) {
+            chunk.palette[i] = in.get();
+        }
+        chunk.paletteSize = size;
+        chunk.cells = new byte[CELLS];
+        in.get(chunk.cells);
+        chunk.paletteCounts[0] = 0;
+        for (byte local : chunk.cells) {
+            chunk.paletteCounts[local]++;
+        }
+        chunk.typeMask = 0;
+        for (int i = 0; i < size; i++) {
+            if (chunk.paletteCounts[i] > 0) {
+                chunk.typeMask |= BlockRegistry.mask(chunk.palette[i]);
+            }
+        }
+        for (int lx = 0; lx < SIZE; lx++) {
+            chunk.columnTops[lx] = (byte) chunk.scanColumn(lx, 0);
+        }
+        return chunk;
+    }
+
+    public int serializedSize() {
+        return cells == null ? 2 : 1 + paletteSize + CELLS;
+    }
+
+    // Layout: palette size, palette ids, then one local index per cell unless uniform
+    public void writeTo(ByteBuffer out) {
+        if (cells == null) {
+            out.put((byte) 1).put(palette[0]);
+            return;
+        }
+        out.put((byte) paletteSize).put(palette, 0, paletteSize).put(cells);
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    void attach(long key, long now) {
+        this.key = key;
+        lastAccess = now;
+        attached = true;
+    }
+
+    void detach() {
+        attached = false;
+    }
+
+    boolean isAttached() {
+        return attached;
+    }
+
+    long getKey() {
+        return key;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    long getCopyEpoch() {
+        return copyEpoch;
+    }
+
+    void setCopyEpoch(long epoch) {
+        copyEpoch = epoch;
+    }
+
+    void supersede() {
+        superseded = true;
+    }
+
+    boolean isSuperseded() {
+        return superseded;
+    }
+
+    public boolean isUniform() {
+        return cells == null;
+    }
+
+    public boolean contains(int blockId) {
+        return (typeMask & BlockRegistry.mask(blockId)) != 0;
+    }
+
+    // True if any block id in the BlockRegistry mask is present
+    public boolean containsAny(int mask) {
+        return (typeMask & mask) != 0;
+    }
+
+    public int getTypeMask() {
+        return typeMask;
+    }
+
+    public int getColumnTop(int localX) {
+        return columnTops[localX];
+    }
+
+    public int count(int blockId) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == blockId) {
+                return paletteCounts[i];
+            }
+        }
+        return 0;
+    }
+
+    // Reads the cells field once so a concurrent collapse to uniform cannot null it mid-read
+    public int get(int localX, int localY) {
+        byte[] local = cells;
+        if (local == null) {
+            return palette[0];
+        }
+        return palette[local[(localY << SHIFT) | localX]];
+    }
+
+    // Returns false when the cell already held blockId
+    public boolean set(int localX, int localY, int blockId) {
+        if (cells == null) {
+            if (palette[0] == blockId) {
+                return false;
+            }
+            cells = new byte[CELLS];
+        }
+        int index = (localY << SHIFT) | localX;
+        int oldLocal = cells[index];
+        if (palette[oldLocal] == blockId) {
+            return false;
+        }
+        int newLocal = localIndexOf(blockId);
+        cells[index] = (byte) newLocal;
+        if (--paletteCounts[oldLocal] == 0) {
+            typeMask &= ~BlockRegistry.mask(palette[oldLocal]);
+        }
+        typeMask |= BlockRegistry.mask(blockId);
+        // only removing the column's top block needs a rescan, and only below it
+        int top = columnTops[localX];
+        if (!BlockRegistry.isWalkable(blockId)) {
+            if (localY < top) {
+                columnTops[localX] = (byte) localY;
+            }
+        } else if (localY == top) {
+            columnTops[localX] = (byte) scanColumn(localX, localY + 1);
+        }
+        if (++paletteCounts[newLocal] == CELLS) {
+            fill(blockId);
+        }
+        return true;
+    }
+
+    public void fill(int blockId) {
+        cells = null;
+        palette[0] = (byte) blockId;
+        paletteSize = 1;
+        Arrays.fill(paletteCounts, 0);
+        paletteCounts[0] = CELLS;
+        typeMask = BlockRegistry.mask(blockId);
+        Arrays.fill(columnTops, (byte) (BlockRegistry.isWalkable(blockId) ? SIZE : 0));
+    }
+
+    private int scanColumn(int localX, int fromY) {
+        for (int ly = fromY; ly < SIZE; ly++) {
+            if (!BlockRegistry.isWalkable(get(localX, ly))) {
+                return ly;
+            }
+        }
+        return SIZE;
+    }
+
+    private int localIndexOf(int blockId) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == blockId) {
+                return i;
+            }
+        }
+        palette[paletteSize] = (byte) blockId;
+        return paletteSize++;
+    }
+}
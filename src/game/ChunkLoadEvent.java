@@ -0,0 +1,19 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("game.ChunkLoad")
+@Label("Chunk Load")
+@Category("Game")
+final class ChunkLoadEvent extends jdk.jfr.Event {
+    @Label("Chunk X")
+    int chunkX;
+
+    @Label("Chunk Y")
+    int chunkY;
+
+    @Label("Generated")
+    boolean generated;
+}
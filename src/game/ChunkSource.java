@@ -0,0 +1,7 @@
+package game;
+
+// Chunks by chunk coordinate, e.g. World::getChunk or WorldSnapshot::getChunk. Readers such as
+// MapExporter call it from several threads at once and never modify the chunks it returns.
+public interface ChunkSource {
+    Chunk getChunk(int chunkX, int chunkY);
+}
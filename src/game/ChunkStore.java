@@ -0,0 +1,11 @@
+package game;
+
+public interface ChunkStore {
+    // Returns the stored chunk, or null if it was never saved
+    Chunk load(int chunkX, int chunkY);
+
+    void save(int chunkX, int chunkY, Chunk chunk);
+
+    default void flush() {
+    }
+}
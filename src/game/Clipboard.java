@@ -0,0 +1,30 @@
+package game;
+
+// Block ids copied out of a World rectangle, row-major
+public class Clipboard {
+    private final int width;
+    private final int height;
+    private final byte[] ids;
+
+    public Clipboard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.ids = new byte[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBlockId(int x, int y) {
+        return ids[y * width + x];
+    }
+
+    public void setBlockId(int x, int y, int blockId) {
+        ids[y * width + x] = (byte) blockId;
+    }
+}
@@ -0,0 +1,247 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.HitOutcomes;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Monte Carlo over a skill's hits: each trial rolls glance and crit for every hit, sums the per-hit
+// damage from DamageCalculation.hitOutcomes and records the total. Trials run in fixed blocks, each
+// with a SplittableRandom split from the seed in block order, on a fork/join tree whose shape depends
+// only on the trial count, so a seed gives the same results on any number of threads.
+// Usage: CombatSimulator [trials] [hits] [seed] [threads]
+public final class CombatSimulator {
+    public static final int BUCKETS = 4096;
+    // trials per fork/join leaf, and per random stream
+    private static final int BLOCK = 1 << 16;
+    // two-sided 95%
+    private static final double Z = 1.959963984540054;
+
+    private CombatSimulator() {
+    }
+
+    public static Result simulate(Unit attacker, Unit defender, Skill skill, FormulaType formulaType,
+                                  long trials, long seed, ForkJoinPool pool) {
+        return simulate(DamageCalculation.hitOutcomes(attacker, defender, skill, formulaType), defender.totalHp(),
+                trials, seed, pool);
+    }
+
+    // A trial kills when its total reaches targetHp
+    public static Result simulate(HitOutcomes outcomes, double targetHp, long trials, long seed, ForkJoinPool pool) {
+        if (trials < 1) {
+            throw new IllegalArgumentException("trials must be positive: " + trials);
+        }
+        long blocks = (trials + BLOCK - 1) / BLOCK;
+        if (blocks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many trials: " + trials);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[(int) blocks];
+        for (int b = 0; b < randoms.length; b++) {
+            randoms[b] = root.split();
+        }
+        double highest = Math.max(Math.max(outcomes.normal(), outcomes.crit()), Math.max(outcomes.glance(), outcomes.glanceCrit()));
+        double range = Math.max(0.0, highest) * Math.max(0, outcomes.hits());
+        Tally tally = pool.invoke(new TrialTask(outcomes, targetHp, range, randoms, trials, 0, randoms.length));
+        return new Result(outcomes, targetHp, tally.histogram, tally.kills);
+    }
+
+    // Trials needed for a 95% interval of +/- margin around a probability near the given one
+    public static long requiredTrials(double probability, double margin) {
+        return (long) Math.ceil(Z * Z * probability * (1 - probability) / (margin * margin));
+    }
+
+    public static final class Result {
+        private final HitOutcomes outcomes;
+        private final double targetHp;
+        private final DamageHistogram histogram;
+        private final long kills;
+
+        private Result(HitOutcomes outcomes, double targetHp, DamageHistogram histogram, long kills) {
+            this.outcomes = outcomes;
+            this.targetHp = targetHp;
+            this.histogram = histogram;
+            this.kills = kills;
+        }
+
+        public HitOutcomes getOutcomes() {
+            return outcomes;
+        }
+
+        public long getTrials() {
+            return histogram.getCount();
+        }
+
+        public DamageHistogram getHistogram() {
+            return histogram;
+        }
+
+        public double getPercentile(double percentile) {
+            return histogram.getPercentile(percentile);
+        }
+
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        // Half-width of the 95% confidence interval of the mean
+        public double getMeanMargin() {
+            return Z * histogram.getStandardDeviation() / Math.sqrt(getTrials());
+        }
+
+        public double getTargetHp() {
+            return targetHp;
+        }
+
+        public long getKills() {
+            return kills;
+        }
+
+        public double getKillProbability() {
+            return kills / (double) getTrials();
+        }
+
+        // Wilson score interval at 95%, which stays inside [0, 1] even when kills are rare or certain
+        public double getKillProbabilityLow() {
+            return wilson(-1);
+        }
+
+        public double getKillProbabilityHigh() {
+            return wilson(1);
+        }
+
+        private double wilson(int sign) {
+            double n = getTrials();
+            double p = getKillProbability();
+            double z2 = Z * Z;
+            double centre = p + z2 / (2 * n);
+            double spread = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n));
+            return Math.max(0.0, Math.min(1.0, (centre + sign * spread) / (1 + z2 / n)));
+        }
+    }
+
+    private static final class Tally {
+        final DamageHistogram histogram;
+        long kills;
+
+        Tally(double range) {
+            histogram = new DamageHistogram(range, BUCKETS);
+        }
+    }
+
+    // Splits the block range in halves down to single blocks and merges left then right, so the
+    // floating-point sums are added in the same order whichever threads run the leaves
+    @SuppressWarnings("serial") // never serialized
+    private static final class TrialTask extends RecursiveTask<Tally> {
+        private final HitOutcomes outcomes;
+        private final double targetHp;
+        private final double range;
+        private final SplittableRandom[] randoms;
+        private final long trials;
+        private final int from;
+        private final int to;
+
+        TrialTask(HitOutcomes outcomes, double targetHp, double range, SplittableRandom[] randoms, long trials, int from, int to) {
+            this.outcomes = outcomes;
+            this.targetHp = targetHp;
+            this.range = range;
+            this.randoms = randoms;
+            this.trials = trials;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from == 1) {
+                return runBlock(from);
+            }
+            int mid = (from + to) >>> 1;
+            TrialTask right = new TrialTask(outcomes, targetHp, range, randoms, trials, mid, to);
+            right.fork();
+            Tally tally = new TrialTask(outcomes, targetHp, range, randoms, trials, from, mid).compute();
+            Tally other = right.join();
+            tally.histogram.add(other.histogram);
+            tally.kills += other.kills;
+            return tally;
+        }
+
+        private Tally runBlock(int block) {
+            Tally tally = new Tally(range);
+            SplittableRandom random = randoms[block];
+            long count = Math.min(BLOCK, trials - (long) block * BLOCK);
+            int hits = outcomes.hits();
+            double critChance = outcomes.critChance();
+            double glanceChance = outcomes.glanceChance();
+            for (long t = 0; t < count; t++) {
+                double total = 0.0;
+                for (int h = 0; h < hits; h++) {
+                    boolean glancing = random.nextDouble() < glanceChance;
+                    boolean critical = random.nextDouble() < critChance;
+                    total += outcomes.damage(glancing, critical);
+                }
+                // totals are floored at 0, as in calculateDamage
+                total = Math.max(0.0, total);
+                tally.histogram.record(total);
+                if (total >= targetHp) {
+                    tally.kills++;
+                }
+            }
+            return tally;
+        }
+    }
+
+    public static void main(String[] args) {
+        long trials = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int hits = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // a fire attacker against a water defender: every hit can glance as well as crit
+        Unit attacker = new Unit("Attacker");
+        attacker.element = Element.FIRE;
+        attacker.baseAtk = 1000.0;
+        attacker.bonusAtk = 800.0;
+        attacker.critRate = 0.45;
+        attacker.critDamage = 1.0;
+        Unit defender = new Unit("Defender");
+        defender.element = Element.WATER;
+        defender.baseHp = 8000.0;
+        defender.baseDef = 800.0;
+        Skill skill = new Skill("Triple strike", 1.0, ScalingMode.ATK_COEF);
+        skill.coef = 1.7;
+        skill.hits = hits;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Result result = simulate(attacker, defender, skill, FormulaType.SUMMONER_WAR_LIKE, trials, seed, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        HitOutcomes outcomes = result.getOutcomes();
+        System.out.printf("trials: %d on %d threads, seed %d, %d ms (%.1f M trials/s)%n",
+                result.getTrials(), threads, seed, elapsed / 1_000_000, result.getTrials() / (elapsed / 1e3));
+        System.out.printf("per hit: normal %.1f, crit %.1f, glance %.1f, glance+crit %.1f (crit %.0f%%, glance %.0f%%), %d hits%n",
+                outcomes.normal(), outcomes.crit(), outcomes.glance(), outcomes.glanceCrit(),
+                outcomes.critChance() * 100, outcomes.glanceChance() * 100, outcomes.hits());
+        System.out.printf("damage: mean %.1f +/- %.1f, p5 %.0f, p25 %.0f, p50 %.0f, p75 %.0f, p95 %.0f, p99 %.0f, max %.0f%n",
+                result.getMean(), result.getMeanMargin(), result.getPercentile(0.05), result.getPercentile(0.25),
+                result.getPercentile(0.50), result.getPercentile(0.75), result.getPercentile(0.95),
+                result.getPercentile(0.99), result.getHistogram().getMax());
+        System.out.printf("kill chance vs %.0f HP: %.3f%% (95%% CI %.3f%% - %.3f%%)%n",
+                result.getTargetHp(), result.getKillProbability() * 100,
+                result.getKillProbabilityLow() * 100, result.getKillProbabilityHigh() * 100);
+        DamageDistribution exact = DamageDistribution.of(attacker, defender, skill, FormulaType.SUMMONER_WAR_LIKE);
+        System.out.printf("exact: mean %.1f, p50 %.0f, p95 %.0f, kill chance %.3f%% over %d distinct totals%n",
+                exact.getMean(), exact.getPercentile(0.50), exact.getPercentile(0.95),
+                exact.killProbability(defender) * 100, exact.size());
+        System.out.printf("closed-form average: %.1f%n",
+                DamageCalculation.calculateDamage(attacker, defender, skill, FormulaType.SUMMONER_WAR_LIKE)[2]);
+    }
+}
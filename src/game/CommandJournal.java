@@ -0,0 +1,160 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only binary log of player commands. The header records how the world was generated; after it
+// every command is a fixed-size record of tick, player id, command and an optional direction argument.
+// Ticks restart at zero with each game session appended to the same journal.
+public class CommandJournal implements Closeable {
+    private static final int MAGIC = 0x4A524E32; // "JRN2"
+    // magic, seed, width, height, surface level, bedrock level, spawn column
+    public static final int HEADER_BYTES = 4 + 8 + 4 * 5;
+    // tick, player id, command, argument
+    public static final int RECORD_BYTES = 8 + 4 + 1 + 1;
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_BYTES);
+
+    // Opens or creates the journal; an existing journal must have been recorded for the same world
+    public CommandJournal(Path path, Header header) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES);
+            header.writeTo(bytes);
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, bytes.position());
+            }
+            size = HEADER_BYTES;
+        } else {
+            Header existing = readHeader(channel, path);
+            if (!existing.equals(header)) {
+                channel.close();
+                throw new IOException("Journal " + path + " was recorded for a different world: " + existing);
+            }
+            // drop a record torn by a crash mid-write
+            size -= (size - HEADER_BYTES) % RECORD_BYTES;
+            channel.truncate(size);
+        }
+        channel.position(size);
+    }
+
+    // Players spawn on the surface of column spawnX as it is when they join
+    public record Header(long seed, int width, int height, int surfaceLevel, int bedrockLevel, int spawnX) {
+        void writeTo(ByteBuffer out) {
+            out.putInt(MAGIC).putLong(seed).putInt(width).putInt(height)
+                    .putInt(surfaceLevel).putInt(bedrockLevel).putInt(spawnX);
+        }
+
+        static Header readFrom(ByteBuffer in) {
+            return new Header(in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, bytes.position()) < 0) {
+                channel.close();
+                throw new IOException("Truncated journal header: " + path);
+            }
+        }
+        bytes.flip();
+        if (bytes.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException("Not a command journal: " + path);
+        }
+        return Header.readFrom(bytes);
+    }
+
+    // argument is a direction for directional commands, 0 otherwise
+    public void append(long tick, int playerId, char command, char argument) throws IOException {
+        if (buffer.remaining() < RECORD_BYTES) {
+            flush();
+        }
+        buffer.putLong(tick).putInt(playerId).put((byte) command).put((byte) argument);
+    }
+
+    // Hands buffered records to the OS; close() also forces them to disk
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.force(false);
+        channel.close();
+    }
+
+    // Cursor over a journal's records; next() advances it without allocating
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final Header header;
+        private final MappedByteBuffer records;
+        private long tick;
+        private int playerId;
+        private char command;
+        private char argument;
+
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            header = readHeader(channel, path);
+            long size = channel.size();
+            size -= (size - HEADER_BYTES) % RECORD_BYTES;
+            records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size - HEADER_BYTES);
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        public long getRecordCount() {
+            return records.capacity() / RECORD_BYTES;
+        }
+
+        public boolean next() {
+            if (!records.hasRemaining()) {
+                return false;
+            }
+            tick = records.getLong();
+            playerId = records.getInt();
+            command = (char) records.get();
+            argument = (char) records.get();
+            return true;
+        }
+
+        public long tick() {
+            return tick;
+        }
+
+        public int playerId() {
+            return playerId;
+        }
+
+        public char command() {
+            return command;
+        }
+
+        public char argument() {
+            return argument;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
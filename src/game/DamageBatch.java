@@ -0,0 +1,1131 @@
+package game;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import game.DamageCalculation.Element;
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.ScalingMode;
+import game.DamageCalculation.SkillColumns;
+import game.DamageCalculation.UnitColumns;
+
+// Non-interactive DamageCalculation: reads one scenario per line, as CSV with a header row or as JSON
+// Lines, and writes one result row per scenario in input order and in the same format. Columns (and
+// JSON keys) are the prompts' fields in snake_case, in the prompts' units and with their defaults, so
+// a row with only attacker_base_atk is the interactive run with every other answer left blank; see Column.
+// The input is read in chunks of whole lines. Each chunk is parsed straight from its bytes into the
+// column arrays of the batch calculateDamage and formatted on the pool, while the calling thread reads
+// ahead and writes finished chunks in order, so memory stays at a few chunks per thread however long
+// the input is. A row that does not parse or is out of range gets an empty result row and a
+// "line N: reason" report, and the run goes on.
+// Usage: DamageBatch [in.csv|in.jsonl|-] [out|-] [threads]
+public final class DamageBatch {
+    private static final int CHUNK_BYTES = 1 << 20;
+    // chunks read ahead per pool thread
+    private static final int CHUNKS_PER_THREAD = 2;
+    // longest input value quoted in a report
+    private static final int REPORTED_VALUE_BYTES = 40;
+    private static final byte[] CSV_HEADER = "no_crit,crit,average\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CSV_BAD_ROW = ",,\n".getBytes(StandardCharsets.US_ASCII);
+    private static final FormulaType[] FORMULAS = FormulaType.values();
+    private static final byte[][] ELEMENT_NAMES = lowerCaseNames(Element.values());
+    private static final byte[][] MODE_NAMES = lowerCaseNames(ScalingMode.values());
+    private static final byte[][] FORMULA_NAMES = lowerCaseNames(FORMULAS);
+    // DamageCalculation's result format without grouping, for the amounts putAmount cannot round itself
+    private static final ThreadLocal<DecimalFormat> AMOUNT_FORMAT =
+            ThreadLocal.withInitial(() -> new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ROOT)));
+    // exact powers of ten for the fast path of parseNumber
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    // Input columns; the CSV header name and JSON key is the lower-case constant name. Elements, modes
+    // and formulas are given by name (any case) or by the numbers of the prompts, with 0 for NONE and
+    // NORMAL_ATK. Percentages are 0-100 as in the prompts; ignore_defense takes true/false, yes/no or 1/0.
+    // coef, a_coef and d_coef default to the prompt default of the row's mode. Names are accepted and ignored.
+    public enum Column {
+        ATTACKER_NAME(Kind.TEXT),
+        ATTACKER_ELEMENT(Kind.ELEMENT),
+        ATTACKER_BASE_ATK(Kind.STAT),
+        ATTACKER_BONUS_ATK(Kind.STAT),
+        ATTACKER_BASE_HP(Kind.STAT),
+        ATTACKER_BONUS_HP(Kind.STAT),
+        ATTACKER_BASE_DEF(Kind.STAT),
+        ATTACKER_BONUS_DEF(Kind.STAT),
+        ATTACKER_BASE_SPD(Kind.STAT),
+        ATTACKER_BONUS_SPD(Kind.STAT),
+        ATTACK_BUFF(Kind.PERCENT),
+        FLAT_ATTACK(Kind.STAT),
+        CRIT_RATE(Kind.PERCENT),
+        CRIT_DAMAGE(Kind.PERCENT),
+        DEFENSE_BREAK(Kind.PERCENT),
+        IGNORE_DEFENSE_PERCENT(Kind.PERCENT),
+        DAMAGE_AMPLIFY(Kind.PERCENT),
+        DEFENDER_NAME(Kind.TEXT),
+        DEFENDER_ELEMENT(Kind.ELEMENT),
+        DEFENDER_BASE_HP(Kind.STAT),
+        DEFENDER_BONUS_HP(Kind.STAT),
+        DEFENDER_BASE_DEF(Kind.STAT),
+        DEFENDER_BONUS_DEF(Kind.STAT),
+        DAMAGE_REDUCTION(Kind.PERCENT),
+        SKILL_NAME(Kind.TEXT),
+        MODE(Kind.MODE),
+        MULTIPLIER(Kind.STAT),
+        FLAT_DAMAGE(Kind.STAT),
+        HITS(Kind.HITS),
+        IGNORE_DEFENSE(Kind.FLAG),
+        COEF(Kind.COEFFICIENT),
+        A_COEF(Kind.COEFFICIENT),
+        D_COEF(Kind.COEFFICIENT),
+        SPD_ADD(Kind.COEFFICIENT),
+        SPD_DIV(Kind.COEFFICIENT),
+        FORMULA(Kind.FORMULA);
+
+        private final Kind kind;
+        private final String key;
+        private final byte[] keyBytes;
+
+        Column(Kind kind) {
+            this.kind = kind;
+            this.key = name().toLowerCase(Locale.ROOT);
+            this.keyBytes = key.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    // What a column holds, which decides how its value is parsed and checked
+    private enum Kind {
+        TEXT,
+        STAT,
+        PERCENT,
+        COEFFICIENT,
+        HITS,
+        FLAG,
+        ELEMENT,
+        MODE,
+        FORMULA
+    }
+
+    // Open-addressed table from key bytes to Column, so JSON keys are matched without making Strings
+    private static final Column[] KEYS = new Column[128];
+
+    static {
+        for (Column column : Column.values()) {
+            int slot = keyHash(column.keyBytes, 0, column.keyBytes.length);
+            while (KEYS[slot] != null) {
+                slot = (slot + 1) & (KEYS.length - 1);
+            }
+            KEYS[slot] = column;
+        }
+    }
+
+    public record Summary(long rows, long badRows, long bytesRead) {
+    }
+
+    private DamageBatch() {
+    }
+
+    // Reads scenarios from in until end of stream and writes a result row for each to out; CSV or JSON
+    // Lines is told from the first non-blank line. Bad rows are reported to errors. out is flushed but
+    // not closed. A malformed CSV header (a column named twice) throws IllegalArgumentException.
+    public static Summary run(ReadableByteChannel in, OutputStream out, PrintStream errors, ForkJoinPool pool) throws IOException {
+        Run run = new Run(out, errors, Math.max(2, CHUNKS_PER_THREAD * pool.getParallelism()));
+        try {
+            Chunk previous = null;
+            boolean end = false;
+            while (!end) {
+                while (run.pending.size() >= run.window) {
+                    run.write(run.pending.poll());
+                }
+                Chunk chunk = run.spare.isEmpty() ? new Chunk() : run.spare.pop();
+                int filled = 0;
+                if (previous != null) {
+                    // the partial line after the previous chunk's last newline starts this one
+                    int carry = previous.filled - previous.length;
+                    if (carry > chunk.bytes.length) {
+                        chunk.bytes = new byte[Math.max(CHUNK_BYTES, Integer.highestOneBit(carry) << 1)];
+                    }
+                    System.arraycopy(previous.bytes, previous.length, chunk.bytes, 0, carry);
+                    filled = carry;
+                    if (!previous.submitted) {
+                        run.spare.push(previous);
+                    }
+                }
+                int length;
+                while (true) {
+                    while (filled < chunk.bytes.length) {
+                        int read = in.read(ByteBuffer.wrap(chunk.bytes, filled, chunk.bytes.length - filled));
+                        if (read < 0) {
+                            end = true;
+                            break;
+                        }
+                        filled += read;
+                        run.bytesRead += read;
+                    }
+                    length = end ? filled : lastNewline(chunk.bytes, filled) + 1;
+                    if (length > 0 || end) {
+                        break;
+                    }
+                    // a line longer than the buffer
+                    chunk.bytes = Arrays.copyOf(chunk.bytes, chunk.bytes.length * 2);
+                }
+                chunk.filled = filled;
+                chunk.length = length;
+                chunk.start = 0;
+                chunk.submitted = false;
+                if (run.layout == null) {
+                    run.begin(chunk);
+                }
+                if (run.layout != null && chunk.start < chunk.length) {
+                    Layout layout = run.layout;
+                    chunk.submitted = true;
+                    chunk.task = pool.submit(() -> process(chunk, layout));
+                    run.pending.add(chunk);
+                }
+                previous = chunk;
+            }
+            while (!run.pending.isEmpty()) {
+                run.write(run.pending.poll());
+            }
+            out.flush();
+            return new Summary(run.rows, run.badRows, run.bytesRead);
+        } finally {
+            // on an error, let the chunks being parsed finish before their buffers are dropped
+            for (Chunk chunk : run.pending) {
+                chunk.task.quietlyJoin();
+            }
+        }
+    }
+
+    // How the rows of a run are laid out: the format, and for CSV the column of each field (null if ignored)
+    private record Layout(Format format, Column[] header) {
+    }
+
+    // The calling thread's side of a run: the chunks in flight, oldest first, and the running totals
+    private static final class Run {
+        final OutputStream out;
+        final PrintStream errors;
+        final int window;
+        final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+        final ArrayDeque<Chunk> spare = new ArrayDeque<>();
+        final Set<String> unknownKeys = new HashSet<>();
+        Layout layout;
+        // input lines before the oldest pending chunk
+        long line;
+        long rows;
+        long badRows;
+        long bytesRead;
+
+        Run(OutputStream out, PrintStream errors, int window) {
+            this.out = out;
+            this.errors = errors;
+            this.window = window;
+        }
+
+        // Finds the first non-blank line: '{' starts JSON Lines, anything else is a CSV header, which
+        // is consumed here. A chunk of blank lines is skipped whole.
+        void begin(Chunk chunk) throws IOException {
+            byte[] b = chunk.bytes;
+            int from = 0;
+            if (line == 0 && chunk.length >= 3 && b[0] == (byte) 0xEF && b[1] == (byte) 0xBB && b[2] == (byte) 0xBF) {
+                from = 3;
+            }
+            while (from < chunk.length) {
+                int next = nextNewline(b, from, chunk.length);
+                int stop = trimLine(b, from, next);
+                int first = skipSpace(b, from, stop);
+                if (first < stop) {
+                    if (b[first] == '{') {
+                        layout = new Layout(Format.JSON_LINES, null);
+                        chunk.start = from;
+                    } else {
+                        layout = new Layout(Format.CSV, header(b, from, stop));
+                        line++;
+                        chunk.start = Math.min(next + 1, chunk.length);
+                        out.write(CSV_HEADER);
+                    }
+                    return;
+                }
+                line++;
+                from = next + 1;
+            }
+            chunk.start = chunk.length;
+        }
+
+        private Column[] header(byte[] b, int from, int to) {
+            Column[] columns = new Column[countFields(b, from, to)];
+            Set<Column> seen = new HashSet<>();
+            int field = 0;
+            int p = from;
+            while (true) {
+                int next = nextComma(b, p, to);
+                int start = skipSpace(b, p, next);
+                int stop = trimSpace(b, start, next);
+                if (stop - start >= 2 && b[start] == '"' && b[stop - 1] == '"') {
+                    start++;
+                    stop--;
+                }
+                Column column = lookup(b, start, stop);
+                if (column == null) {
+                    errors.println("note: ignoring unknown column \"" + new String(b, start, stop - start, StandardCharsets.UTF_8) + "\"");
+                } else if (!seen.add(column)) {
+                    throw new IllegalArgumentException("column named twice in the header: " + column.key());
+                }
+                columns[field++] = column;
+                if (next >= to) {
+                    return columns;
+                }
+                p = next + 1;
+            }
+        }
+
+        void write(Chunk chunk) throws IOException {
+            chunk.task.join();
+            out.write(chunk.out, 0, chunk.outLength);
+            for (int i = 0; i < chunk.badCount; i++) {
+                int row = chunk.bad[i];
+                errors.println("line " + (line + chunk.lineOf[row]) + ": " + chunk.errors[row]);
+                chunk.errors[row] = null;
+            }
+            if (chunk.unknownKey != null && unknownKeys.add(chunk.unknownKey)) {
+                errors.println("note: ignoring unknown key \"" + chunk.unknownKey + "\"");
+            }
+            rows += chunk.rows;
+            badRows += chunk.badCount;
+            line += chunk.lines;
+            chunk.task = null;
+            spare.push(chunk);
+        }
+    }
+
+    // A run of whole lines and everything parsed from it. A chunk is reused once written, so its
+    // column arrays and output buffer are allocated only when a chunk holds more rows than before.
+    private static final class Chunk {
+        byte[] bytes = new byte[CHUNK_BYTES];
+        // bytes read; whole lines end at length, and rows start at start (past a CSV header)
+        int filled;
+        int length;
+        int start;
+        boolean submitted;
+        ForkJoinTask<?> task;
+
+        int lines;
+        int rows;
+        int capacity;
+        UnitColumns attackers;
+        UnitColumns defenders;
+        SkillColumns skills;
+        byte[] formulas;
+        double[] noCrit;
+        double[] crit;
+        double[] average;
+        // line within the chunk, 1-based, and the report of each bad row
+        int[] lineOf;
+        String[] errors;
+        int[] bad;
+        int badCount;
+        // first key of the chunk that is not a Column
+        String unknownKey;
+
+        byte[] out = new byte[CHUNK_BYTES];
+        int outLength;
+
+        void ensureCapacity(int rows) {
+            if (rows <= capacity) {
+                return;
+            }
+            capacity = Math.max(rows, capacity * 2);
+            attackers = new UnitColumns(capacity);
+            defenders = new UnitColumns(capacity);
+            skills = new SkillColumns(capacity);
+            formulas = new byte[capacity];
+            noCrit = new double[capacity];
+            crit = new double[capacity];
+            average = new double[capacity];
+            lineOf = new int[capacity];
+            errors = new String[capacity];
+            bad = new int[capacity];
+        }
+
+        void ensureOut(int bytes) {
+            if (outLength + bytes > out.length) {
+                out = Arrays.copyOf(out, Math.max(outLength + bytes, out.length * 2));
+            }
+        }
+    }
+
+    // A bad row; carries only its message, so reporting one costs no stack trace
+    @SuppressWarnings("serial") // never serialized
+    private static final class RowException extends Exception {
+        RowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    // ============================================================================
+    // PARSING - runs on the pool, one chunk per task
+    // ============================================================================
+
+    private static void process(Chunk chunk, Layout layout) {
+        byte[] b = chunk.bytes;
+        int newlines = 0;
+        for (int i = chunk.start; i < chunk.length; i++) {
+            if (b[i] == '\n') {
+                newlines++;
+            }
+        }
+        chunk.ensureCapacity(newlines + 1);
+        chunk.rows = 0;
+        chunk.badCount = 0;
+        chunk.unknownKey = null;
+        int line = 0;
+        int p = chunk.start;
+        while (p < chunk.length) {
+            int next = nextNewline(b, p, chunk.length);
+            int stop = trimLine(b, p, next);
+            line++;
+            if (skipSpace(b, p, stop) < stop) {
+                int row = chunk.rows++;
+                setDefaults(chunk, row);
+                try {
+                    long seen = layout.format == Format.CSV
+                            ? parseCsvRow(chunk, row, b, p, stop, layout.header)
+                            : parseJsonRow(chunk, row, b, p, stop);
+                    setModeDefaults(chunk, row, seen);
+                } catch (RowException e) {
+                    chunk.lineOf[row] = line;
+                    chunk.errors[row] = e.getMessage();
+                    chunk.bad[chunk.badCount++] = row;
+                }
+            }
+            p = next + 1;
+        }
+        chunk.lines = line;
+
+        // a bad row is left with valid values, so it is computed with the rest and its result dropped
+        int from = 0;
+        while (from < chunk.rows) {
+            byte formula = chunk.formulas[from];
+            int to = from + 1;
+            while (to < chunk.rows && chunk.formulas[to] == formula) {
+                to++;
+            }
+            DamageCalculation.calculateDamage(chunk.attackers, chunk.defenders, chunk.skills, FORMULAS[formula],
+                    from, to, chunk.noCrit, chunk.crit, chunk.average);
+            from = to;
+        }
+        writeResults(chunk, layout.format);
+    }
+
+    // The prompts' defaults; coefficients that depend on the mode are filled in by setModeDefaults
+    private static void setDefaults(Chunk chunk, int row) {
+        UnitColumns a = chunk.attackers;
+        a.element[row] = (byte) Element.NONE.ordinal();
+        a.baseAtk[row] = DamageCalculation.DEFAULT_ATTACKER_ATK;
+        a.bonusAtk[row] = 0.0;
+        a.baseHp[row] = DamageCalculation.DEFAULT_ATTACKER_HP;
+        a.bonusHp[row] = 0.0;
+        a.baseDef[row] = DamageCalculation.DEFAULT_ATTACKER_DEF;
+        a.bonusDef[row] = 0.0;
+        a.baseSpd[row] = DamageCalculation.DEFAULT_ATTACKER_SPD;
+        a.bonusSpd[row] = 0.0;
+        a.attackBuffPercent[row] = 0.0;
+        a.flatAttack[row] = 0.0;
+        a.critRate[row] = 0.0;
+        a.critDamage[row] = 0.5;
+        a.defenseBreakPercent[row] = 0.0;
+        a.ignoreDefensePercent[row] = 0.0;
+        a.damageAmplifyPercent[row] = 0.0;
+        UnitColumns d = chunk.defenders;
+        d.element[row] = (byte) Element.NONE.ordinal();
+        d.baseHp[row] = DamageCalculation.DEFAULT_DEFENDER_HP;
+        d.bonusHp[row] = 0.0;
+        d.baseDef[row] = DamageCalculation.DEFAULT_DEFENDER_DEF;
+        d.bonusDef[row] = 0.0;
+        d.damageReductionPercent[row] = 0.0;
+        SkillColumns s = chunk.skills;
+        s.mode[row] = (byte) ScalingMode.ATK_COEF.ordinal();
+        s.multiplier[row] = 1.0;
+        s.flatDamage[row] = 0.0;
+        s.hits[row] = 1;
+        s.ignoreDefense[row] = false;
+        s.coef[row] = 1.0;
+        s.aCoef[row] = 1.0;
+        s.dCoef[row] = 0.0;
+        s.spdAdd[row] = DamageCalculation.DEFAULT_SPD_ADD;
+        s.spdDiv[row] = DamageCalculation.DEFAULT_SPD_DIV;
+        chunk.formulas[row] = (byte) FormulaType.GENERIC.ordinal();
+    }
+
+    private static void setModeDefaults(Chunk chunk, int row, long seen) {
+        SkillColumns s = chunk.skills;
+        ScalingMode mode = DamageCalculation.SCALING_MODES[s.mode[row]];
+        if ((seen & bit(Column.COEF)) == 0) {
+            s.coef[row] = switch (mode) {
+                case ATK_COEF -> DamageCalculation.DEFAULT_ATK_COEF;
+                case DEF_COEF -> DamageCalculation.DEFAULT_DEF_COEF;
+                case HP_COEF -> DamageCalculation.DEFAULT_HP_COEF;
+                default -> 1.0;
+            };
+        }
+        if (mode == ScalingMode.ATK_DEF_COMBO) {
+            if ((seen & bit(Column.A_COEF)) == 0) {
+                s.aCoef[row] = DamageCalculation.DEFAULT_ACO;
+            }
+            if ((seen & bit(Column.D_COEF)) == 0) {
+                s.dCoef[row] = DamageCalculation.DEFAULT_DEFOE;
+            }
+        }
+    }
+
+    private static long bit(Column column) {
+        return 1L << column.ordinal();
+    }
+
+    // Returns the columns given, as bits; a field that is empty keeps its default
+    private static long parseCsvRow(Chunk chunk, int row, byte[] b, int from, int to, Column[] header) throws RowException {
+        long seen = 0;
+        int field = 0;
+        int p = from;
+        while (true) {
+            int start = skipSpace(b, p, to);
+            int stop;
+            int next;
+            if (start < to && b[start] == '"') {
+                int quote = start + 1;
+                while (true) {
+                    if (quote >= to) {
+                        throw new RowException("unterminated quote in field " + (field + 1));
+                    }
+                    if (b[quote] == '"') {
+                        if (quote + 1 < to && b[quote + 1] == '"') {
+                            quote += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    quote++;
+                }
+                next = skipSpace(b, quote + 1, to);
+                if (next < to && b[next] != ',') {
+                    throw new RowException("text after the closing quote in field " + (field + 1));
+                }
+                start++;
+                stop = quote;
+            } else {
+                next = nextComma(b, start, to);
+                stop = trimSpace(b, start, next);
+            }
+            if (field == header.length) {
+                throw new RowException("more than " + header.length + " fields");
+            }
+            Column column = header[field++];
+            if (column != null && start < stop) {
+                setValue(chunk, row, column, b, start, stop);
+                seen |= bit(column);
+            }
+            if (next >= to) {
+                break;
+            }
+            p = next + 1;
+        }
+        if (field != header.length) {
+            throw new RowException("expected " + header.length + " fields, found " + field);
+        }
+        return seen;
+    }
+
+    // A flat object per line; null, "" and unknown keys are skipped, and nested values are a bad row
+    private static long parseJsonRow(Chunk chunk, int row, byte[] b, int from, int to) throws RowException {
+        long seen = 0;
+        int p = skipSpace(b, from, to);
+        if (p >= to || b[p] != '{') {
+            throw malformed(b, from, p, "expected '{'");
+        }
+        p = skipSpace(b, p + 1, to);
+        if (p < to && b[p] == '}') {
+            p++;
+        } else {
+            while (true) {
+                if (p >= to || b[p] != '"') {
+                    throw malformed(b, from, p, "expected a key");
+                }
+                int keyStart = p + 1;
+                int keyEnd = stringEnd(b, keyStart, to);
+                if (keyEnd < 0) {
+                    throw malformed(b, from, p, "unterminated key");
+                }
+                p = skipSpace(b, keyEnd + 1, to);
+                if (p >= to || b[p] != ':') {
+                    throw malformed(b, from, p, "expected ':'");
+                }
+                p = skipSpace(b, p + 1, to);
+                if (p >= to) {
+                    throw malformed(b, from, p, "expected a value");
+                }
+                int valueStart;
+                int valueEnd;
+                boolean quoted = b[p] == '"';
+                if (quoted) {
+                    valueStart = p + 1;
+                    valueEnd = stringEnd(b, valueStart, to);
+                    if (valueEnd < 0) {
+                        throw malformed(b, from, p, "unterminated string");
+                    }
+                    p = valueEnd + 1;
+                } else if (b[p] == '{' || b[p] == '[') {
+                    throw malformed(b, from, p, "nested values are not supported");
+                } else {
+                    valueStart = p;
+                    while (p < to && b[p] != ',' && b[p] != '}' && b[p] != ' ' && b[p] != '\t') {
+                        p++;
+                    }
+                    valueEnd = p;
+                }
+                Column column = lookup(b, keyStart, keyEnd);
+                if (column == null) {
+                    if (chunk.unknownKey == null) {
+                        chunk.unknownKey = new String(b, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8);
+                    }
+                } else if (valueStart < valueEnd && (quoted || !isNull(b, valueStart, valueEnd))) {
+                    setValue(chunk, row, column, b, valueStart, valueEnd);
+                    seen |= bit(column);
+                }
+                p = skipSpace(b, p, to);
+                if (p < to && b[p] == ',') {
+                    p = skipSpace(b, p + 1, to);
+                    continue;
+                }
+                if (p < to && b[p] == '}') {
+                    p++;
+                    break;
+                }
+                throw malformed(b, from, p, "expected ',' or '}'");
+            }
+        }
+        p = skipSpace(b, p, to);
+        if (p < to) {
+            throw malformed(b, from, p, "text after the closing '}'");
+        }
+        return seen;
+    }
+
+    private static RowException malformed(byte[] b, int lineStart, int at, String problem) {
+        return new RowException("malformed JSON at column " + (at - lineStart + 1) + ": " + problem);
+    }
+
+    // Index of the quote closing a JSON string that starts at from, or -1
+    private static int stringEnd(byte[] b, int from, int to) {
+        for (int p = from; p < to; p++) {
+            if (b[p] == '\\') {
+                p++;
+            } else if (b[p] == '"') {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNull(byte[] b, int from, int to) {
+        return to - from == 4 && b[from] == 'n' && b[from + 1] == 'u' && b[from + 2] == 'l' && b[from + 3] == 'l';
+    }
+
+    // Parses and checks one value with the same ranges as the prompts' validate* helpers, then stores it
+    private static void setValue(Chunk chunk, int row, Column column, byte[] b, int from, int to) throws RowException {
+        double value = 0.0;
+        int code = 0;
+        switch (column.kind) {
+            case TEXT -> {
+                return;
+            }
+            case STAT -> {
+                value = parseNumber(column, b, from, to);
+                if (!(value >= 0.0 && value <= Double.MAX_VALUE)) {
+                    throw invalid(column, "must be zero or more", b, from, to);
+                }
+            }
+            case PERCENT -> {
+                value = parseNumber(column, b, from, to);
+                if (!(value >= 0.0 && value <= 100.0)) {
+                    throw invalid(column, "must be between 0 and 100", b, from, to);
+                }
+                value /= 100.0;
+            }
+            case COEFFICIENT -> {
+                value = parseNumber(column, b, from, to);
+                if (!(value > 0.0 && value <= Double.MAX_VALUE)) {
+                    throw invalid(column, "must be positive", b, from, to);
+                }
+            }
+            case HITS -> {
+                code = wholeNumber(parseNumber(column, b, from, to));
+                if (code < 1) {
+                    throw invalid(column, "must be a whole number of at least 1", b, from, to);
+                }
+            }
+            case FLAG -> {
+                code = flag(b, from, to);
+                if (code < 0) {
+                    throw invalid(column, "must be true or false", b, from, to);
+                }
+            }
+            case ELEMENT -> {
+                code = isDigit(b[from]) ? wholeNumber(parseNumber(column, b, from, to)) : named(ELEMENT_NAMES, b, from, to);
+                if (code < 0 || code >= ELEMENT_NAMES.length) {
+                    throw invalid(column, "unknown element", b, from, to);
+                }
+            }
+            case MODE -> {
+                if (isDigit(b[from])) {
+                    int choice = wholeNumber(parseNumber(column, b, from, to));
+                    code = choice == 0 ? ScalingMode.NORMAL_ATK.ordinal() : choice >= 1 && choice <= 7 ? choice - 1 : -1;
+                } else {
+                    code = named(MODE_NAMES, b, from, to);
+                }
+                if (code < 0) {
+                    throw invalid(column, "unknown scaling mode", b, from, to);
+                }
+            }
+            case FORMULA -> {
+                code = isDigit(b[from]) ? wholeNumber(parseNumber(column, b, from, to)) - 1 : named(FORMULA_NAMES, b, from, to);
+                if (code < 0 || code >= FORMULAS.length) {
+                    throw invalid(column, "unknown formula", b, from, to);
+                }
+            }
+        }
+        UnitColumns a = chunk.attackers;
+        UnitColumns d = chunk.defenders;
+        SkillColumns s = chunk.skills;
+        switch (column) {
+            case ATTACKER_ELEMENT -> a.element[row] = (byte) code;
+            case ATTACKER_BASE_ATK -> a.baseAtk[row] = value;
+            case ATTACKER_BONUS_ATK -> a.bonusAtk[row] = value;
+            case ATTACKER_BASE_HP -> a.baseHp[row] = value;
+            case ATTACKER_BONUS_HP -> a.bonusHp[row] = value;
+            case ATTACKER_BASE_DEF -> a.baseDef[row] = value;
+            case ATTACKER_BONUS_DEF -> a.bonusDef[row] = value;
+            case ATTACKER_BASE_SPD -> a.baseSpd[row] = value;
+            case ATTACKER_BONUS_SPD -> a.bonusSpd[row] = value;
+            case ATTACK_BUFF -> a.attackBuffPercent[row] = value;
+            case FLAT_ATTACK -> a.flatAttack[row] = value;
+            case CRIT_RATE -> a.critRate[row] = value;
+            case CRIT_DAMAGE -> a.critDamage[row] = value;
+            case DEFENSE_BREAK -> a.defenseBreakPercent[row] = value;
+            case IGNORE_DEFENSE_PERCENT -> a.ignoreDefensePercent[row] = value;
+            case DAMAGE_AMPLIFY -> a.damageAmplifyPercent[row] = value;
+            case DEFENDER_ELEMENT -> d.element[row] = (byte) code;
+            case DEFENDER_BASE_HP -> d.baseHp[row] = value;
+            case DEFENDER_BONUS_HP -> d.bonusHp[row] = value;
+            case DEFENDER_BASE_DEF -> d.baseDef[row] = value;
+            case DEFENDER_BONUS_DEF -> d.bonusDef[row] = value;
+            case DAMAGE_REDUCTION -> d.damageReductionPercent[row] = value;
+            case MODE -> s.mode[row] = (byte) code;
+            case MULTIPLIER -> s.multiplier[row] = value;
+            case FLAT_DAMAGE -> s.flatDamage[row] = value;
+            case HITS -> s.hits[row] = code;
+            case IGNORE_DEFENSE -> s.ignoreDefense[row] = code == 1;
+            case COEF -> s.coef[row] = value;
+            case A_COEF -> s.aCoef[row] = value;
+            case D_COEF -> s.dCoef[row] = value;
+            case SPD_ADD -> s.spdAdd[row] = value;
+            case SPD_DIV -> s.spdDiv[row] = value;
+            case FORMULA -> chunk.formulas[row] = (byte) code;
+            default -> {
+            }
+        }
+    }
+
+    private static RowException invalid(Column column, String problem, byte[] b, int from, int to) {
+        int shown = Math.min(to - from, REPORTED_VALUE_BYTES);
+        String value = new String(b, from, shown, StandardCharsets.UTF_8) + (shown < to - from ? "..." : "");
+        return new RowException(column.key() + " " + problem + ": \"" + value + "\"");
+    }
+
+    // The value as an int if it is whole and in range, else -1
+    private static int wholeNumber(double value) {
+        return value >= 0 && value <= Integer.MAX_VALUE && value == Math.rint(value) ? (int) value : -1;
+    }
+
+    // 1 for true, 0 for false, -1 for anything else
+    private static int flag(byte[] b, int from, int to) {
+        return switch (to - from) {
+            case 1 -> b[from] == '1' || lower(b[from]) == 'y' ? 1 : b[from] == '0' || lower(b[from]) == 'n' ? 0 : -1;
+            case 2 -> matches("no", b, from, to) ? 0 : -1;
+            case 3 -> matches("yes", b, from, to) ? 1 : -1;
+            case 4 -> matches("true", b, from, to) ? 1 : -1;
+            case 5 -> matches("false", b, from, to) ? 0 : -1;
+            default -> -1;
+        };
+    }
+
+    private static boolean matches(String lowerCase, byte[] b, int from, int to) {
+        if (to - from != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (lower(b[from + i]) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Ordinal of the name matching b[from, to) in any case, or -1
+    private static int named(byte[][] names, byte[] b, int from, int to) {
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != to - from) {
+                continue;
+            }
+            int j = 0;
+            while (j < name.length && lower(b[from + j]) == name[j]) {
+                j++;
+            }
+            if (j == name.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[][] lowerCaseNames(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    private static int lower(byte c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // A decimal with an optional sign, fraction and exponent. Up to 15 significant digits and a power
+    // of ten within 22 is exact in a double, so m * 10^e (or m / 10^-e) is one correctly rounded
+    // operation; anything else goes to Double.parseDouble.
+    private static double parseNumber(Column column, byte[] b, int from, int to) throws RowException {
+        int p = from;
+        boolean negative = false;
+        if (p < to && (b[p] == '-' || b[p] == '+')) {
+            negative = b[p] == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+        while (p < to && isDigit(b[p])) {
+            any = true;
+            if (mantissa != 0 || b[p] != '0') {
+                mantissa = mantissa * 10 + (b[p] - '0');
+                digits++;
+            }
+            p++;
+            if (digits > 15) {
+                return parseSlow(column, b, from, to);
+            }
+        }
+        if (p < to && b[p] == '.') {
+            p++;
+            while (p < to && isDigit(b[p])) {
+                any = true;
+                if (mantissa != 0 || b[p] != '0') {
+                    mantissa = mantissa * 10 + (b[p] - '0');
+                    digits++;
+                }
+                scale--;
+                p++;
+                if (digits > 15) {
+                    return parseSlow(column, b, from, to);
+                }
+            }
+        }
+        if (!any) {
+            throw invalid(column, "is not a number", b, from, to);
+        }
+        if (p < to && (b[p] == 'e' || b[p] == 'E')) {
+            p++;
+            boolean negativeExponent = false;
+            if (p < to && (b[p] == '-' || b[p] == '+')) {
+                negativeExponent = b[p] == '-';
+                p++;
+            }
+            if (p >= to) {
+                throw invalid(column, "is not a number", b, from, to);
+            }
+            int exponent = 0;
+            while (p < to && isDigit(b[p])) {
+                if (exponent > 1000) {
+                    return parseSlow(column, b, from, to);
+                }
+                exponent = exponent * 10 + (b[p] - '0');
+                p++;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (p != to) {
+            throw invalid(column, "is not a number", b, from, to);
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (scale >= 0 && scale < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[scale];
+        } else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            return parseSlow(column, b, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(Column column, byte[] b, int from, int to) throws RowException {
+        for (int p = from; p < to; p++) {
+            // only what parseNumber accepts, so no NaN, Infinity, hex or type suffixes
+            if (!isDigit(b[p]) && b[p] != '.' && b[p] != '-' && b[p] != '+' && b[p] != 'e' && b[p] != 'E') {
+                throw invalid(column, "is not a number", b, from, to);
+            }
+        }
+        try {
+            return Double.parseDouble(new String(b, from, to - from, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw invalid(column, "is not a number", b, from, to);
+        }
+    }
+
+    // ============================================================================
+    // OUTPUT
+    // ============================================================================
+
+    // Totals rounded half-even to two decimals like the interactive result; a bad row is ",," in CSV and
+    // {"error": ...} in JSON Lines, so output row n is always input row n
+    private static void writeResults(Chunk chunk, Format format) {
+        chunk.outLength = 0;
+        int nextBad = 0;
+        for (int row = 0; row < chunk.rows; row++) {
+            String error = nextBad < chunk.badCount && chunk.bad[nextBad] == row ? chunk.errors[chunk.bad[nextBad++]] : null;
+            if (format == Format.CSV) {
+                if (error != null) {
+                    chunk.ensureOut(CSV_BAD_ROW.length);
+                    System.arraycopy(CSV_BAD_ROW, 0, chunk.out, chunk.outLength, CSV_BAD_ROW.length);
+                    chunk.outLength += CSV_BAD_ROW.length;
+                } else {
+                    chunk.ensureOut(3 * 32);
+                    putAmount(chunk, chunk.noCrit[row], false);
+                    chunk.out[chunk.outLength++] = ',';
+                    putAmount(chunk, chunk.crit[row], false);
+                    chunk.out[chunk.outLength++] = ',';
+                    putAmount(chunk, chunk.average[row], false);
+                    chunk.out[chunk.outLength++] = '\n';
+                }
+            } else if (error != null) {
+                byte[] message = error.getBytes(StandardCharsets.UTF_8);
+                chunk.ensureOut(6 * message.length + 16);
+                putAscii(chunk, "{\"error\":\"");
+                for (byte c : message) {
+                    if (c == '"' || c == '\\') {
+                        chunk.out[chunk.outLength++] = '\\';
+                        chunk.out[chunk.outLength++] = c;
+                    } else if (c >= 0 && c < 0x20) {
+                        putAscii(chunk, String.format("\\u%04x", (int) c));
+                    } else {
+                        chunk.out[chunk.outLength++] = c;
+                    }
+                }
+                putAscii(chunk, "\"}\n");
+            } else {
+                chunk.ensureOut(3 * 32 + 40);
+                putAscii(chunk, "{\"no_crit\":");
+                putAmount(chunk, chunk.noCrit[row], true);
+                putAscii(chunk, ",\"crit\":");
+                putAmount(chunk, chunk.crit[row], true);
+                putAscii(chunk, ",\"average\":");
+                putAmount(chunk, chunk.average[row], true);
+                putAscii(chunk, "}\n");
+            }
+        }
+    }
+
+    // At most 32 bytes
+    private static void putAmount(Chunk chunk, double value, boolean json) {
+        if (value >= 0.0 && value < 1e15) {
+            double scaled = value * 100.0;
+            double floor = Math.floor(scaled);
+            if (Math.abs(scaled - floor - 0.5) <= Math.ulp(scaled)) {
+                // value * 100 is off by up to half an ulp, so it cannot tell which side of a tie value is on
+                // (from about 4.5e13 up, where the ulp reaches 0.5, it never can); DecimalFormat settles it
+                putAscii(chunk, AMOUNT_FORMAT.get().format(value));
+                return;
+            }
+            long cents = (long) floor + (scaled - floor > 0.5 ? 1 : 0);
+            putLong(chunk, cents / 100);
+            long fraction = cents % 100;
+            chunk.out[chunk.outLength++] = '.';
+            chunk.out[chunk.outLength++] = (byte) ('0' + fraction / 10);
+            chunk.out[chunk.outLength++] = (byte) ('0' + fraction % 10);
+        } else {
+            // totals are floored at 0, so this is a huge, infinite or NaN total; JSON has no NaN or Infinity
+            putAscii(chunk, json && !Double.isFinite(value) ? "null" : Double.toString(value));
+        }
+    }
+
+    private static void putLong(Chunk chunk, long value) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int p = chunk.outLength + digits;
+        chunk.outLength = p;
+        do {
+            chunk.out[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private static void putAscii(Chunk chunk, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            chunk.out[chunk.outLength++] = (byte) s.charAt(i);
+        }
+    }
+
+    // ============================================================================
+    // SCANNING
+    // ============================================================================
+
+    private static int keyHash(byte[] b, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + b[i];
+        }
+        return (h * 0x9E3779B9) >>> 25;
+    }
+
+    private static Column lookup(byte[] b, int from, int to) {
+        int slot = keyHash(b, from, to);
+        Column column;
+        while ((column = KEYS[slot]) != null) {
+            if (Arrays.equals(column.keyBytes, 0, column.keyBytes.length, b, from, to)) {
+                return column;
+            }
+            slot = (slot + 1) & (KEYS.length - 1);
+        }
+        return null;
+    }
+
+    private static int lastNewline(byte[] b, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (b[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Index of the next '\n' at or after from, or to
+    private static int nextNewline(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int nextComma(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == ',') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int countFields(byte[] b, int from, int to) {
+        int fields = 1;
+        for (int i = from; i < to; i++) {
+            if (b[i] == ',') {
+                fields++;
+            }
+        }
+        return fields;
+    }
+
+    // End of a line without its '\r'
+    private static int trimLine(byte[] b, int from, int to) {
+        return to > from && b[to - 1] == '\r' ? to - 1 : to;
+    }
+
+    private static int skipSpace(byte[] b, int from, int to) {
+        while (from < to && (b[from] == ' ' || b[from] == '\t')) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimSpace(byte[] b, int from, int to) {
+        while (to > from && (b[to - 1] == ' ' || b[to - 1] == '\t')) {
+            to--;
+        }
+        return to;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = args.length > 0 ? args[0] : "-";
+        String output = args.length > 1 ? args[1] : "-";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Summary summary;
+        try (ReadableByteChannel in = input.equals("-")
+                     ? new FileInputStream(FileDescriptor.in).getChannel()
+                     : FileChannel.open(java.nio.file.Path.of(input), StandardOpenOption.READ);
+             OutputStream out = output.equals("-")
+                     ? new FileOutputStream(FileDescriptor.out)
+                     : Files.newOutputStream(java.nio.file.Path.of(output))) {
+            summary = run(in, out, System.err, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.err.printf("rows: %d (%d bad) on %d threads, %d ms (%.1f M rows/s, %.0f MB/s)%n",
+                summary.rows(), summary.badRows(), threads, elapsed / 1_000_000,
+                summary.rows() / (elapsed / 1e3), summary.bytesRead() / (elapsed / 1e3));
+    }
+}
@@ -1,7 +1,12 @@
+package game;
+
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,21 +26,21 @@ public class DamageCalculation {
     private static final String DEFAULT_SKILL_NAME = "Basic";
 
     // Default stat values
-    private static final double DEFAULT_ATTACKER_ATK = 1000.0;
-    private static final double DEFAULT_ATTACKER_HP = 4000.0;
-    private static final double DEFAULT_ATTACKER_DEF = 500.0;
-    private static final double DEFAULT_ATTACKER_SPD = 100.0;
-    private static final double DEFAULT_DEFENDER_HP = 8000.0;
-    private static final double DEFAULT_DEFENDER_DEF = 800.0;
+    static final double DEFAULT_ATTACKER_ATK = 1000.0;
+    static final double DEFAULT_ATTACKER_HP = 4000.0;
+    static final double DEFAULT_ATTACKER_DEF = 500.0;
+    static final double DEFAULT_ATTACKER_SPD = 100.0;
+    static final double DEFAULT_DEFENDER_HP = 8000.0;
+    static final double DEFAULT_DEFENDER_DEF = 800.0;
 
     // Default skill coefficients
-    private static final double DEFAULT_ATK_COEF = 1.7;
-    private static final double DEFAULT_DEF_COEF = 3.6;
-    private static final double DEFAULT_HP_COEF = 0.19;
-    private static final double DEFAULT_ACO = 1.7;
-    private static final double DEFAULT_DEFOE = 2.9;
-    private static final double DEFAULT_SPD_ADD = 60.0;
-    private static final double DEFAULT_SPD_DIV = 620.0;
+    static final double DEFAULT_ATK_COEF = 1.7;
+    static final double DEFAULT_DEF_COEF = 3.6;
+    static final double DEFAULT_HP_COEF = 0.19;
+    static final double DEFAULT_ACO = 1.7;
+    static final double DEFAULT_DEFOE = 2.9;
+    static final double DEFAULT_SPD_ADD = 60.0;
+    static final double DEFAULT_SPD_DIV = 620.0;
 
     // Elemental bonuses/penalties
     private static final double ELEMENT_STRONGER_DAMAGE_MUL = 1.05;
@@ -46,8 +51,8 @@ public class DamageCalculation {
     private static final double ELEMENT_WEAKER_GLANCE_MUL = 0.70 * 0.84; // 0.588
 
     // Defense formula constants
-    private static final double GENERIC_DEF_DIVISOR = 100.0;
-    private static final double EPSILON = 1e-9;
+    static final double GENERIC_DEF_DIVISOR = 100.0;
+    static final double EPSILON = 1e-9;
 
     // ============================================================================
     // ENUMS
@@ -155,6 +160,116 @@ public class DamageCalculation {
         }
     }
 
+    // Unit fields as parallel primitive arrays for the batch calculateDamage; row i is one unit and
+    // element holds Element ordinals
+    public static final class UnitColumns {
+        public final byte[] element;
+        public final double[] baseAtk;
+        public final double[] baseHp;
+        public final double[] baseDef;
+        public final double[] baseSpd;
+        public final double[] bonusAtk;
+        public final double[] bonusHp;
+        public final double[] bonusDef;
+        public final double[] bonusSpd;
+        public final double[] attackBuffPercent;
+        public final double[] flatAttack;
+        public final double[] critRate;
+        public final double[] critDamage;
+        public final double[] defenseBreakPercent;
+        public final double[] ignoreDefensePercent;
+        public final double[] damageAmplifyPercent;
+        public final double[] damageReductionPercent;
+
+        public UnitColumns(int rows) {
+            element = new byte[rows];
+            baseAtk = new double[rows];
+            baseHp = new double[rows];
+            baseDef = new double[rows];
+            baseSpd = new double[rows];
+            bonusAtk = new double[rows];
+            bonusHp = new double[rows];
+            bonusDef = new double[rows];
+            bonusSpd = new double[rows];
+            attackBuffPercent = new double[rows];
+            flatAttack = new double[rows];
+            critRate = new double[rows];
+            critDamage = new double[rows];
+            defenseBreakPercent = new double[rows];
+            ignoreDefensePercent = new double[rows];
+            damageAmplifyPercent = new double[rows];
+            damageReductionPercent = new double[rows];
+        }
+
+        public int rows() {
+            return element.length;
+        }
+
+        public void set(int row, Unit unit) {
+            element[row] = (byte) unit.element.ordinal();
+            baseAtk[row] = unit.baseAtk;
+            baseHp[row] = unit.baseHp;
+            baseDef[row] = unit.baseDef;
+            baseSpd[row] = unit.baseSpd;
+            bonusAtk[row] = unit.bonusAtk;
+            bonusHp[row] = unit.bonusHp;
+            bonusDef[row] = unit.bonusDef;
+            bonusSpd[row] = unit.bonusSpd;
+            attackBuffPercent[row] = unit.attackBuffPercent;
+            flatAttack[row] = unit.flatAttack;
+            critRate[row] = unit.critRate;
+            critDamage[row] = unit.critDamage;
+            defenseBreakPercent[row] = unit.defenseBreakPercent;
+            ignoreDefensePercent[row] = unit.ignoreDefensePercent;
+            damageAmplifyPercent[row] = unit.damageAmplifyPercent;
+            damageReductionPercent[row] = unit.damageReductionPercent;
+        }
+    }
+
+    // Skill fields as parallel primitive arrays; mode holds ScalingMode ordinals
+    public static final class SkillColumns {
+        public final double[] multiplier;
+        public final double[] flatDamage;
+        public final byte[] mode;
+        public final int[] hits;
+        public final boolean[] ignoreDefense;
+        public final double[] coef;
+        public final double[] aCoef;
+        public final double[] dCoef;
+        public final double[] spdAdd;
+        public final double[] spdDiv;
+
+        public SkillColumns(int rows) {
+            multiplier = new double[rows];
+            flatDamage = new double[rows];
+            mode = new byte[rows];
+            hits = new int[rows];
+            ignoreDefense = new boolean[rows];
+            coef = new double[rows];
+            aCoef = new double[rows];
+            dCoef = new double[rows];
+            spdAdd = new double[rows];
+            spdDiv = new double[rows];
+        }
+
+        public int rows() {
+            return mode.length;
+        }
+
+        public void set(int row, Skill skill) {
+            multiplier[row] = skill.multiplier;
+            flatDamage[row] = skill.flatDamage;
+            mode[row] = (byte) skill.mode.ordinal();
+            hits[row] = skill.hits;
+            ignoreDefense[row] = skill.ignoreDefense;
+            coef[row] = skill.coef;
+            aCoef[row] = skill.aCoef;
+            dCoef[row] = skill.dCoef;
+            spdAdd[row] = skill.spdAdd;
+            spdDiv[row] = skill.spdDiv;
+        }
+    }
+
     // Element relationship chart using Map for maintainability
     private static final Map<String, ElemRelation> ELEMENT_RELATIONS = initElementRelations();
 
@@ -174,29 +289,51 @@ public class DamageCalculation {
         return map;
     }
 
-    // Helper: determine relation of attacker element vs defender element using Map lookup
+    // The chart flattened into a table indexed by attacker.ordinal() * ELEMENTS.length + defender.ordinal(),
+    // holding ElemRelation ordinals, so a lookup builds no key and walks no map
+    private static final Element[] ELEMENTS = Element.values();
+    private static final ElemRelation[] RELATIONS = ElemRelation.values();
+    static final ScalingMode[] SCALING_MODES = ScalingMode.values();
+    private static final byte[] RELATION_TABLE = initRelationTable();
+
+    private static byte[] initRelationTable() {
+        byte[] table = new byte[ELEMENTS.length * ELEMENTS.length];
+        for (Element attacker : ELEMENTS) {
+            for (Element defender : ELEMENTS) {
+                ElemRelation rel = ElemRelation.NEUTRAL;
+                if (attacker != Element.NONE && defender != Element.NONE) {
+                    rel = ELEMENT_RELATIONS.getOrDefault(attacker + "_vs_" + defender, ElemRelation.NEUTRAL);
+                }
+                table[attacker.ordinal() * ELEMENTS.length + defender.ordinal()] = (byte) rel.ordinal();
+            }
+        }
+        return table;
+    }
+
+    // Helper: determine relation of attacker element vs defender element using the ordinal table
     private static ElemRelation elementRelation(Element attacker, Element defender) {
-        if (attacker == Element.NONE || defender == Element.NONE) return ElemRelation.NEUTRAL;
-        String key = attacker + "_vs_" + defender;
-        return ELEMENT_RELATIONS.getOrDefault(key, ElemRelation.NEUTRAL);
+        return RELATIONS[relationOrdinal(attacker.ordinal(), defender.ordinal())];
+    }
+
+    private static int relationOrdinal(int attackerElement, int defenderElement) {
+        return RELATION_TABLE[attackerElement * ELEMENTS.length + defenderElement];
     }
 
     // Container for elemental modifiers
-        private record ElementalModifiers(double elemDamageMul, double elemCritDelta, double glancingProb,
-                                          double nonGlanceMultiplier, double glancingMultiplier) {
+        record ElementalModifiers(double elemDamageMul, double elemCritDelta, double glancingProb,
+                                  double nonGlanceMultiplier, double glancingMultiplier) {
     }
 
-    // Extracted helper: compute elemental interaction modifiers
-    private static ElementalModifiers computeElementalModifiers(Element attackerElem, Element defenderElem) {
-        ElemRelation rel = elementRelation(attackerElem, defenderElem);
+    // One shared instance per relation, indexed by ElemRelation ordinal
+    private static final ElementalModifiers[] MODIFIERS_BY_RELATION = {
+            new ElementalModifiers(1.0, 0.0, 0.0, 1.0, 1.0),
+            new ElementalModifiers(ELEMENT_STRONGER_DAMAGE_MUL, ELEMENT_STRONGER_CRIT_DELTA, 0.0, 1.0, 1.0),
+            new ElementalModifiers(1.0, ELEMENT_WEAKER_CRIT_DELTA, ELEMENT_WEAKER_GLANCE_PROB, ELEMENT_WEAKER_NORMAL_MUL, ELEMENT_WEAKER_GLANCE_MUL)
+    };
 
-        if (rel == ElemRelation.STRONGER) {
-            return new ElementalModifiers(ELEMENT_STRONGER_DAMAGE_MUL, ELEMENT_STRONGER_CRIT_DELTA, 0.0, 1.0, 1.0);
-        } else if (rel == ElemRelation.WEAKER) {
-            return new ElementalModifiers(1.0, ELEMENT_WEAKER_CRIT_DELTA, ELEMENT_WEAKER_GLANCE_PROB, ELEMENT_WEAKER_NORMAL_MUL, ELEMENT_WEAKER_GLANCE_MUL);
-        } else {
-            return new ElementalModifiers(1.0, 0.0, 0.0, 1.0, 1.0);
-        }
+    // Extracted helper: compute elemental interaction modifiers
+    static ElementalModifiers computeElementalModifiers(Element attackerElem, Element defenderElem) {
+        return MODIFIERS_BY_RELATION[relationOrdinal(attackerElem.ordinal(), defenderElem.ordinal())];
     }
 
     // Extracted helper: compute defense factor based on formula type
@@ -232,6 +369,20 @@ public class DamageCalculation {
         };
     }
 
+    // Extracted helper: attacker/defender global amplify/reduction (multiplicative) and the elemental damage multiplier
+    private static double computePerHitBase(Unit attacker, Unit defender, double damageBeforeCritAndDefPerHit, double elemDamageMul) {
+        double netDamageMul = (1.0 + attacker.damageAmplifyPercent) * (1.0 - defender.damageReductionPercent);
+        return damageBeforeCritAndDefPerHit * netDamageMul * elemDamageMul;
+    }
+
+    // Extracted helper: defender DEF after defense break and ignore, never negative
+    private static double computeEffectiveDefense(Unit attacker, Unit defender) {
+        double effectiveDef = defender.totalDef() * (1.0 - attacker.defenseBreakPercent);
+        effectiveDef = effectiveDef * (1.0 - attacker.ignoreDefensePercent);
+        if (effectiveDef < 0) effectiveDef = 0;
+        return effectiveDef;
+    }
+
     // returns {noCritTotal, critTotal, averageTotal} — totals already summed across hits
     public static double[] calculateDamage(Unit attacker, Unit defender, Skill skill, FormulaType formulaType) {
         // Effective attack and base scaled per hit
@@ -256,11 +407,8 @@ public class DamageCalculation {
         double avgCritFactor_nonGlance = 1.0 + adjustedCritRate * (critMultiplier - 1.0);
         double avgCritFactor_glance = 1.0 + adjustedCritRate * (critMultiplier - 1.0);
 
-        // Apply attacker/defender global amplify/reduction (multiplicative)
-        double netDamageMul = (1.0 + attacker.damageAmplifyPercent) * (1.0 - defender.damageReductionPercent);
-
-        // Combine netDamageMul with elemDamageMul into a pre-defense per-hit base
-        double perHitBase = damageBeforeCritAndDefPerHit * netDamageMul * elemDamageMul;
+        // Apply attacker/defender global amplify/reduction and elemDamageMul into a pre-defense per-hit base
+        double perHitBase = computePerHitBase(attacker, defender, damageBeforeCritAndDefPerHit, elemDamageMul);
         // perHitBase is the non-glancing, non-crit per-hit amount before applying the non-glance or glancing multipliers and defense
 
         // Per-hit variants - incorporate non-glance / glancing multipliers
@@ -273,9 +421,7 @@ public class DamageCalculation {
         // -------------------------
         // Compute effective defense after defense break and ignore (only apply if we are NOT skipping defense entirely)
         // -------------------------
-        double effectiveDef = defender.totalDef() * (1.0 - attacker.defenseBreakPercent);
-        effectiveDef = effectiveDef * (1.0 - attacker.ignoreDefensePercent);
-        if (effectiveDef < 0) effectiveDef = 0;
+        double effectiveDef = computeEffectiveDefense(attacker, defender);
 
         // Apply defense formula (unless skill ignores defense)
         double afterNoCrit_nonGlance, afterCrit_nonGlance, afterAvg_nonGlance;
@@ -314,6 +460,159 @@ public class DamageCalculation {
         return new double[] { totalNoCrit, totalCrit, totalAvg };
     }
 
+    // Per-hit damage after defense for each roll a hit can get: a hit glances with probability
+    // glanceChance and, independently, crits with probability critChance. The values are the ones
+    // calculateDamage mixes into its totals, so simulations and exact distributions agree with it.
+    public record HitOutcomes(double normal, double crit, double glance, double glanceCrit,
+                              double critChance, double glanceChance, int hits) {
+        public double damage(boolean glancing, boolean critical) {
+            if (glancing) {
+                return critical ? glanceCrit : glance;
+            }
+            return critical ? crit : normal;
+        }
+    }
+
+    public static HitOutcomes hitOutcomes(Unit attacker, Unit defender, Skill skill, FormulaType formulaType) {
+        double effectiveAttack = computeEffectiveAttack(attacker);
+        double baseScaledPerHit = computeBaseScaledPerHit(attacker, defender, skill, effectiveAttack);
+        double damageBeforeCritAndDefPerHit = baseScaledPerHit * skill.multiplier + skill.flatDamage;
+
+        ElementalModifiers elemMod = computeElementalModifiers(attacker.element, defender.element);
+        double adjustedCritRate = clamp(attacker.critRate + elemMod.elemCritDelta, 0.0, 1.0);
+        double critMultiplier = 1.0 + attacker.critDamage;
+        double perHitBase = computePerHitBase(attacker, defender, damageBeforeCritAndDefPerHit, elemMod.elemDamageMul);
+
+        double noCrit_nonGlance = perHitBase * elemMod.nonGlanceMultiplier;
+        double noCrit_glance = perHitBase * elemMod.glancingMultiplier;
+        double crit_nonGlance = noCrit_nonGlance * critMultiplier;
+        double crit_glance = noCrit_glance * critMultiplier;
+        if (!skill.ignoreDefense) {
+            double factorToUse = computeDefenseFactor(effectiveAttack, computeEffectiveDefense(attacker, defender), formulaType);
+            noCrit_nonGlance = noCrit_nonGlance * factorToUse;
+            crit_nonGlance = crit_nonGlance * factorToUse;
+            noCrit_glance = noCrit_glance * factorToUse;
+            crit_glance = crit_glance * factorToUse;
+        }
+        return new HitOutcomes(noCrit_nonGlance, crit_nonGlance, noCrit_glance, crit_glance,
+                adjustedCritRate, elemMod.glancingProb, skill.hits);
+    }
+
+    // ============================================================================
+    // BATCH - calculateDamage over column arrays
+    // ============================================================================
+
+    // Row i of attackers, defenders and skills gives the same totals as calculateDamage, bit for bit,
+    // written to noCritTotals[i], critTotals[i] and averageTotals[i] for every i in [from, to).
+    // Nothing is allocated per row. The steps below mirror calculateDamage one for one; keep them in step.
+    public static void calculateDamage(UnitColumns attackers, UnitColumns defenders, SkillColumns skills,
+                                       FormulaType formulaType, int from, int to,
+                                       double[] noCritTotals, double[] critTotals, double[] averageTotals) {
+        int rows = Math.min(Math.min(attackers.rows(), defenders.rows()), skills.rows());
+        rows = Math.min(rows, Math.min(noCritTotals.length, Math.min(critTotals.length, averageTotals.length)));
+        Objects.checkFromToIndex(from, to, rows);
+
+        // columns in locals, so the loop reads plain arrays
+        byte[] attackerElement = attackers.element;
+        double[] attackerBaseAtk = attackers.baseAtk;
+        double[] attackerBaseHp = attackers.baseHp;
+        double[] attackerBaseSpd = attackers.baseSpd;
+        double[] attackerBonusAtk = attackers.bonusAtk;
+        double[] attackerBonusHp = attackers.bonusHp;
+        double[] attackerBonusSpd = attackers.bonusSpd;
+        double[] attackerAttackBuffPercent = attackers.attackBuffPercent;
+        double[] attackerFlatAttack = attackers.flatAttack;
+        double[] attackerCritRate = attackers.critRate;
+        double[] attackerCritDamage = attackers.critDamage;
+        double[] attackerDefenseBreakPercent = attackers.defenseBreakPercent;
+        double[] attackerIgnoreDefensePercent = attackers.ignoreDefensePercent;
+        double[] attackerDamageAmplifyPercent = attackers.damageAmplifyPercent;
+        byte[] defenderElement = defenders.element;
+        double[] defenderBaseDef = defenders.baseDef;
+        double[] defenderBonusDef = defenders.bonusDef;
+        double[] defenderDamageReductionPercent = defenders.damageReductionPercent;
+        double[] skillMultiplier = skills.multiplier;
+        double[] skillFlatDamage = skills.flatDamage;
+        byte[] skillMode = skills.mode;
+        int[] skillHits = skills.hits;
+        boolean[] skillIgnoreDefense = skills.ignoreDefense;
+        double[] skillCoef = skills.coef;
+        double[] skillACoef = skills.aCoef;
+        double[] skillDCoef = skills.dCoef;
+        double[] skillSpdAdd = skills.spdAdd;
+        double[] skillSpdDiv = skills.spdDiv;
+
+        for (int i = from; i < to; i++) {
+            double atkTot = attackerBaseAtk[i] + attackerBonusAtk[i];
+            double effectiveAttack = (atkTot * (1.0 + attackerAttackBuffPercent[i])) + attackerFlatAttack[i];
+            double attackerHp = attackerBaseHp[i] + attackerBonusHp[i];
+            double spdTot = attackerBaseSpd[i] + attackerBonusSpd[i];
+            double defenderDef = defenderBaseDef[i] + defenderBonusDef[i];
+            double baseScaledPerHit = switch (SCALING_MODES[skillMode[i]]) {
+                case ATK_COEF -> skillCoef[i] * effectiveAttack;
+                case DEF_COEF -> skillCoef[i] * defenderDef;
+                case HP_COEF -> skillCoef[i] * attackerHp;
+                case ATK_DEF_COMBO -> skillACoef[i] * effectiveAttack + skillDCoef[i] * defenderDef;
+                case SPD_WITH_ATK -> effectiveAttack * ((spdTot + skillSpdAdd[i]) / skillSpdDiv[i]);
+                case SPD_WITH_DEF -> defenderDef * ((spdTot + skillSpdAdd[i]) / skillSpdDiv[i]);
+                case SPD_WITH_HP -> attackerHp * ((spdTot + skillSpdAdd[i]) / skillSpdDiv[i]);
+                default -> effectiveAttack;
+            };
+            double damageBeforeCritAndDefPerHit = baseScaledPerHit * skillMultiplier[i] + skillFlatDamage[i];
+
+            ElementalModifiers elemMod = MODIFIERS_BY_RELATION[relationOrdinal(attackerElement[i], defenderElement[i])];
+            double glancingProb = elemMod.glancingProb;
+            double nonGlanceMultiplier = elemMod.nonGlanceMultiplier;
+            double glancingMultiplier = elemMod.glancingMultiplier;
+
+            double adjustedCritRate = clamp(attackerCritRate[i] + elemMod.elemCritDelta, 0.0, 1.0);
+            double critMultiplier = 1.0 + attackerCritDamage[i];
+            double avgCritFactor = 1.0 + adjustedCritRate * (critMultiplier - 1.0);
+
+            double netDamageMul = (1.0 + attackerDamageAmplifyPercent[i]) * (1.0 - defenderDamageReductionPercent[i]);
+            double perHitBase = damageBeforeCritAndDefPerHit * netDamageMul * elemMod.elemDamageMul;
+
+            double perHitNoCrit_nonGlance = perHitBase * nonGlanceMultiplier;
+            double perHitNoCrit_glance = perHitBase * glancingMultiplier;
+            double perHitCrit_nonGlance = perHitNoCrit_nonGlance * critMultiplier;
+            double perHitCrit_glance = perHitNoCrit_glance * critMultiplier;
+
+            double afterNoCrit_nonGlance, afterCrit_nonGlance, afterAvg_nonGlance;
+            double afterNoCrit_glance, afterCrit_glance, afterAvg_glance;
+            if (skillIgnoreDefense[i]) {
+                afterNoCrit_nonGlance = perHitNoCrit_nonGlance;
+                afterCrit_nonGlance = perHitCrit_nonGlance;
+                afterAvg_nonGlance = perHitBase * nonGlanceMultiplier * avgCritFactor;
+
+                afterNoCrit_glance = perHitNoCrit_glance;
+                afterCrit_glance = perHitCrit_glance;
+                afterAvg_glance = perHitBase * glancingMultiplier * avgCritFactor;
+            } else {
+                double effectiveDef = defenderDef * (1.0 - attackerDefenseBreakPercent[i]);
+                effectiveDef = effectiveDef * (1.0 - attackerIgnoreDefensePercent[i]);
+                if (effectiveDef < 0) effectiveDef = 0;
+                double factorToUse = computeDefenseFactor(effectiveAttack, effectiveDef, formulaType);
+
+                afterNoCrit_nonGlance = perHitNoCrit_nonGlance * factorToUse;
+                afterCrit_nonGlance = perHitCrit_nonGlance * factorToUse;
+                afterAvg_nonGlance = (perHitBase * nonGlanceMultiplier) * avgCritFactor * factorToUse;
+
+                afterNoCrit_glance = perHitNoCrit_glance * factorToUse;
+                afterCrit_glance = perHitCrit_glance * factorToUse;
+                afterAvg_glance = (perHitBase * glancingMultiplier) * avgCritFactor * factorToUse;
+            }
+
+            int hits = skillHits[i];
+            double totalNoCrit = ( (1.0 - glancingProb) * afterNoCrit_nonGlance + glancingProb * afterNoCrit_glance ) * hits;
+            double totalCrit   = ( (1.0 - glancingProb) * afterCrit_nonGlance   + glancingProb * afterCrit_glance ) * hits;
+            double totalAvg    = ( (1.0 - glancingProb) * afterAvg_nonGlance    + glancingProb * afterAvg_glance ) * hits;
+
+            noCritTotals[i] = Math.max(0.0, totalNoCrit);
+            critTotals[i] = Math.max(0.0, totalCrit);
+            averageTotals[i] = Math.max(0.0, totalAvg);
+        }
+    }
+
     // ============================================================================
     // HELPER METHODS - Input Processing
     // ============================================================================
@@ -533,7 +832,12 @@ public class DamageCalculation {
         return skill;
     }
 
-    public static void main(String[] args) {
+    // --batch [in] [out] [threads] runs DamageBatch instead of the prompts
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            DamageBatch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         System.out.println("Damage Calculator (primary-stat scaling, SPD pairing allowed, multi-hit skills, elemental interactions).");
         System.out.println();
 
@@ -0,0 +1,190 @@
+package game;
+
+import java.util.Arrays;
+
+import game.DamageCalculation.FormulaType;
+import game.DamageCalculation.HitOutcomes;
+import game.DamageCalculation.Skill;
+import game.DamageCalculation.Unit;
+
+// Exact distribution of a skill's total damage over its hits, built by convolving the per-hit outcome
+// distribution (normal, crit, glance, glance+crit) once per hit. The totals are kept sorted, so
+// adding one hit merges four shifted copies of them, and totals closer than the resolution are merged
+// into their probability-weighted mean. Cost therefore grows with the number of distinct totals (at
+// most (hits + 3) choose 3) rather than with 4^hits. Totals are floored at 0, as in calculateDamage.
+public final class DamageDistribution {
+    // totals this close, relative to their size, only differ by the order the hits were added in
+    private static final double SAME_TOTAL = 1e-12;
+
+    private final double[] values;
+    private final double[] probabilities;
+    private final double[] cumulative;
+
+    private DamageDistribution(double[] values, double[] probabilities) {
+        this.values = values;
+        this.probabilities = probabilities;
+        this.cumulative = new double[values.length];
+        double sum = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += probabilities[i];
+            cumulative[i] = sum;
+        }
+    }
+
+    public static DamageDistribution of(Unit attacker, Unit defender, Skill skill, FormulaType formulaType) {
+        return of(DamageCalculation.hitOutcomes(attacker, defender, skill, formulaType), 0.0);
+    }
+
+    // With resolution 0 only totals that are equal up to rounding are merged; a positive resolution
+    // buckets totals that much apart, trading precision for speed on long multi-hit skills
+    public static DamageDistribution of(HitOutcomes outcomes, double resolution) {
+        if (!(resolution >= 0)) {
+            throw new IllegalArgumentException("resolution must be >= 0: " + resolution);
+        }
+        double glance = outcomes.glanceChance();
+        double crit = outcomes.critChance();
+        double[] hitValues = {outcomes.normal(), outcomes.crit(), outcomes.glance(), outcomes.glanceCrit()};
+        double[] hitProbabilities = {(1 - glance) * (1 - crit), (1 - glance) * crit, glance * (1 - crit), glance * crit};
+        // outcomes that cannot happen would only add zero-probability totals
+        int kinds = 0;
+        for (int k = 0; k < hitValues.length; k++) {
+            if (hitProbabilities[k] > 0) {
+                hitValues[kinds] = hitValues[k];
+                hitProbabilities[kinds] = hitProbabilities[k];
+                kinds++;
+            }
+        }
+
+        double[] values = {0.0};
+        double[] probabilities = {1.0};
+        int size = 1;
+        int[] next = new int[kinds];
+        for (int hit = 0; hit < outcomes.hits(); hit++) {
+            double[] mergedValues = new double[size * kinds];
+            double[] mergedProbabilities = new double[size * kinds];
+            int merged = 0;
+            Arrays.fill(next, 0);
+            // k-way merge of the current totals shifted by each outcome; every run is already sorted
+            while (true) {
+                int best = -1;
+                double bestValue = 0.0;
+                for (int k = 0; k < kinds; k++) {
+                    if (next[k] < size) {
+                        double value = values[next[k]] + hitValues[k];
+                        if (best < 0 || value < bestValue) {
+                            best = k;
+                            bestValue = value;
+                        }
+                    }
+                }
+                if (best < 0) {
+                    break;
+                }
+                double probability = probabilities[next[best]] * hitProbabilities[best];
+                next[best]++;
+                merged = append(mergedValues, mergedProbabilities, merged, bestValue, probability, resolution);
+            }
+            values = mergedValues;
+            probabilities = mergedProbabilities;
+            size = merged;
+        }
+
+        // floor at 0: every negative total becomes a total of 0
+        int negative = 0;
+        double atZero = 0.0;
+        while (negative < size && values[negative] < 0) {
+            atZero += probabilities[negative++];
+        }
+        if (negative > 0) {
+            negative--;
+            values[negative] = 0.0;
+            probabilities[negative] = atZero;
+            if (negative + 1 < size && values[negative + 1] == 0.0) {
+                probabilities[negative + 1] += atZero;
+                negative++;
+            }
+        }
+        return new DamageDistribution(Arrays.copyOfRange(values, negative, size),
+                Arrays.copyOfRange(probabilities, negative, size));
+    }
+
+    // Adds a total to the sorted output, folding it into the last one when they are close enough
+    private static int append(double[] values, double[] probabilities, int size, double value, double probability,
+                              double resolution) {
+        if (size > 0) {
+            int last = size - 1;
+            double tolerance = Math.max(resolution, SAME_TOTAL * Math.abs(value));
+            if (value - values[last] <= tolerance) {
+                double total = probabilities[last] + probability;
+                // equal totals keep their exact value; the weighted mean of two equal values can be an ulp off
+                if (total > 0 && value != values[last]) {
+                    values[last] = (values[last] * probabilities[last] + value * probability) / total;
+                }
+                probabilities[last] = total;
+                return size;
+            }
+        }
+        values[size] = value;
+        probabilities[size] = probability;
+        return size + 1;
+    }
+
+    // Number of distinct totals
+    public int size() {
+        return values.length;
+    }
+
+    // Totals in ascending order
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public double getProbability(int index) {
+        return probabilities[index];
+    }
+
+    // P(total <= getValue(index))
+    public double getCumulativeProbability(int index) {
+        return cumulative[index];
+    }
+
+    // P(total <= damage)
+    public double cdf(double damage) {
+        int index = Arrays.binarySearch(values, damage);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 0.0 : cumulative[index];
+    }
+
+    // Smallest total whose cumulative probability reaches the given fraction
+    public double getPercentile(double percentile) {
+        for (int i = 0; i < values.length; i++) {
+            if (cumulative[i] >= percentile) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    public double getMean() {
+        double mean = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            mean += values[i] * probabilities[i];
+        }
+        return mean;
+    }
+
+    // P(total >= hp), summed from the top so small tail probabilities keep their precision
+    public double killProbability(double hp) {
+        double probability = 0.0;
+        for (int i = values.length - 1; i >= 0 && values[i] >= hp; i--) {
+            probability += probabilities[i];
+        }
+        return probability;
+    }
+
+    public double killProbability(Unit defender) {
+        return killProbability(defender.totalHp());
+    }
+}
@@ -0,0 +1,100 @@
+package game;
+
+import java.util.Arrays;
+
+// Fixed-width histogram of damage totals over [0, range]; values outside the range land in the first or
+// last bucket. Count, sum, sum of squares, minimum and maximum are kept exactly alongside the buckets,
+// so means and confidence intervals do not depend on the bucket width. Not thread-safe: give each
+// worker its own histogram and combine them with add.
+public final class DamageHistogram {
+    private final double range;
+    private final double bucketsPerUnit;
+    private final long[] counts;
+    private long count;
+    private double sum;
+    private double sumSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public DamageHistogram(double range, int buckets) {
+        if (!(range >= 0) || buckets < 1) {
+            throw new IllegalArgumentException("range must be >= 0 and buckets positive: " + range + ", " + buckets);
+        }
+        this.range = range;
+        this.bucketsPerUnit = range > 0 ? buckets / range : 0;
+        this.counts = new long[buckets];
+    }
+
+    public void record(double value) {
+        int index = (int) Math.min(counts.length - 1, Math.max(0, value * bucketsPerUnit));
+        counts[index]++;
+        count++;
+        sum += value;
+        sumSquares += value * value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Adds the other histogram's values to this one; both must have the same range and bucket count
+    public void add(DamageHistogram other) {
+        if (other.range != range || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("histograms have different buckets");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    // Sample standard deviation
+    public double getStandardDeviation() {
+        if (count < 2) {
+            return 0.0;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0.0, (sumSquares - mean * sum) / (count - 1)));
+    }
+
+    public double getMin() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0.0 : max;
+    }
+
+    // Interpolated within the bucket holding the given fraction of recorded values, so it is within one
+    // bucket width (range / buckets) of the true percentile, and always within [min, max]
+    public double getPercentile(double percentile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (seen + counts[i] >= rank) {
+                double width = range / counts.length;
+                double value = i * width + width * (rank - seen) / counts[i];
+                return Math.max(min, Math.min(max, value));
+            }
+            seen += counts[i];
+        }
+        return max;
+    }
+
+    public long[] getBucketCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+}
@@ -1,3 +1,5 @@
+package game;
+
 public class DirtBlock extends Block {
     public DirtBlock() {
         this.name = "Dirt";
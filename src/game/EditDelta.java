@@ -0,0 +1,127 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+// Old/new block ids of one bulk edit, run-length encoded per chunk in row-major cell order.
+// Record: chunkX (int), chunkY (int), run count (short), then per run: length - 1, (oldId << 4) | newId.
+// Runs where old == new mark untouched cells, so an edit costs memory in proportion to what it changed.
+public class EditDelta {
+    private final byte[] data;
+    private final int changedCells;
+
+    private EditDelta(byte[] data, int changedCells) {
+        this.data = data;
+        this.changedCells = changedCells;
+    }
+
+    public int getChangedCells() {
+        return changedCells;
+    }
+
+    public int sizeInBytes() {
+        return data.length;
+    }
+
+    public boolean isEmpty() {
+        return changedCells == 0;
+    }
+
+    public void undo(World world) {
+        apply(world, true);
+    }
+
+    public void redo(World world) {
+        apply(world, false);
+    }
+
+    private void apply(World world, boolean undo) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        while (in.hasRemaining()) {
+            int left = in.getInt() << Chunk.SHIFT;
+            int top = in.getInt() << Chunk.SHIFT;
+            int runs = in.getShort();
+            int index = 0;
+            for (int run = 0; run < runs; run++) {
+                int length = (in.get() & 0xFF) + 1;
+                int ids = in.get() & 0xFF;
+                int oldId = ids >> 4;
+                int newId = ids & 0xF;
+                if (oldId != newId) {
+                    for (int i = index; i < index + length; i++) {
+                        world.setBlockId(left + (i & Chunk.MASK), top + (i >> Chunk.SHIFT), undo ? oldId : newId);
+                    }
+                }
+                index += length;
+            }
+        }
+    }
+
+    public static class Builder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final byte[] runs = new byte[Chunk.CELLS * 2];
+        private int runBytes;
+        private int chunkX;
+        private int chunkY;
+        private int runLength;
+        private int runIds = -1;
+        private int chunkChanges;
+        private int changedCells;
+
+        public void beginChunk(int chunkX, int chunkY) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+            runBytes = 0;
+            runLength = 0;
+            runIds = -1;
+            chunkChanges = 0;
+        }
+
+        // Called once per cell of the chunk, in row-major order
+        public void cell(int oldId, int newId) {
+            int ids = (oldId << 4) | newId;
+            if (ids == runIds && runLength < Chunk.CELLS) {
+                runLength++;
+            } else {
+                flushRun();
+                runIds = ids;
+                runLength = 1;
+            }
+            if (oldId != newId) {
+                chunkChanges++;
+            }
+        }
+
+        public void endChunk() {
+            flushRun();
+            if (chunkChanges == 0) {
+                return;
+            }
+            writeInt(chunkX);
+            writeInt(chunkY);
+            int runCount = runBytes / 2;
+            out.write(runCount >> 8);
+            out.write(runCount);
+            out.write(runs, 0, runBytes);
+            changedCells += chunkChanges;
+        }
+
+        private void flushRun() {
+            if (runLength > 0) {
+                runs[runBytes++] = (byte) (runLength - 1);
+                runs[runBytes++] = (byte) runIds;
+            }
+        }
+
+        private void writeInt(int value) {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        public EditDelta build() {
+            return new EditDelta(out.toByteArray(), changedCells);
+        }
+    }
+}
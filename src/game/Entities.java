@@ -0,0 +1,142 @@
+package game;
+
+import java.util.Arrays;
+
+// Structure-of-arrays entity storage: entity i is column i of every array. Ids are slot indexes and
+// stay stable until the entity is despawned, after which the slot is reused. Positions and
+// velocities are in cells and cells per second; the entity occupies the cell floor(x), floor(y).
+// Not thread-safe: spawning and despawning happen on the tick thread, between system runs.
+public final class Entities {
+    public static final byte PLAYER = 0;
+    public static final byte MOB = 1;
+    public static final byte FALLING_BLOCK = 2;
+
+    static final int ALIVE = 1;
+    static final int GROUNDED = 1 << 1;
+    // a falling block that came to rest and waits for EntityPhysics.settle
+    static final int LANDED = 1 << 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    float[] x = new float[INITIAL_CAPACITY];
+    float[] y = new float[INITIAL_CAPACITY];
+    float[] vx = new float[INITIAL_CAPACITY];
+    float[] vy = new float[INITIAL_CAPACITY];
+    byte[] type = new byte[INITIAL_CAPACITY];
+    int[] flags = new int[INITIAL_CAPACITY];
+    // per type: the block id a falling block carries, unused otherwise
+    int[] data = new int[INITIAL_CAPACITY];
+
+    // slots [0, highWater) have been used; dead ones wait on the freeSlots stack for reuse
+    int highWater;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int count;
+
+    public int spawn(byte entityType, float spawnX, float spawnY) {
+        int id;
+        if (freeCount > 0) {
+            id = freeSlots[--freeCount];
+        } else {
+            if (highWater == x.length) {
+                grow(highWater * 2);
+            }
+            id = highWater++;
+        }
+        x[id] = spawnX;
+        y[id] = spawnY;
+        vx[id] = 0;
+        vy[id] = 0;
+        type[id] = entityType;
+        flags[id] = ALIVE;
+        data[id] = 0;
+        count++;
+        return id;
+    }
+
+    public int spawnFallingBlock(int blockId, float spawnX, float spawnY) {
+        int id = spawn(FALLING_BLOCK, spawnX, spawnY);
+        data[id] = blockId;
+        return id;
+    }
+
+    public void despawn(int id) {
+        if (!isAlive(id)) {
+            throw new IllegalArgumentException("no entity " + id);
+        }
+        flags[id] = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = id;
+        count--;
+    }
+
+    // Player-style grid step in a W/A/S/D direction: moves one whole cell if the target is walkable
+    public boolean step(int id, char direction, World world) {
+        int cellX = getCellX(id) + (direction == 'A' ? -1 : direction == 'D' ? 1 : 0);
+        int cellY = getCellY(id) + (direction == 'W' ? -1 : direction == 'S' ? 1 : 0);
+        if (!world.isWalkable(cellX, cellY)) {
+            return false;
+        }
+        x[id] += cellX - getCellX(id);
+        y[id] += cellY - getCellY(id);
+        flags[id] &= ~GROUNDED;
+        return true;
+    }
+
+    public boolean isAlive(int id) {
+        return id >= 0 && id < highWater && (flags[id] & ALIVE) != 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte getType(int id) {
+        return type[id];
+    }
+
+    public float getX(int id) {
+        return x[id];
+    }
+
+    public float getY(int id) {
+        return y[id];
+    }
+
+    public int getCellX(int id) {
+        return (int) Math.floor(x[id]);
+    }
+
+    public int getCellY(int id) {
+        return (int) Math.floor(y[id]);
+    }
+
+    public float getVelocityX(int id) {
+        return vx[id];
+    }
+
+    public float getVelocityY(int id) {
+        return vy[id];
+    }
+
+    public void setVelocity(int id, float velocityX, float velocityY) {
+        vx[id] = velocityX;
+        vy[id] = velocityY;
+    }
+
+    public boolean isGrounded(int id) {
+        return (flags[id] & GROUNDED) != 0;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        type = Arrays.copyOf(type, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        data = Arrays.copyOf(data, capacity);
+    }
+}
@@ -0,0 +1,141 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Bulk movement for Entities: gravity, integration and collision against World walkability, one axis
+// at a time. Entities do not interact with each other, so any split of the id range gives the same
+// result as a serial pass; the parallel step only reads the world.
+public final class EntityPhysics {
+    // cells per second squared, y grows downward
+    public static final float GRAVITY = 40f;
+    public static final float TERMINAL_VELOCITY = 20f;
+    // entities per fork/join leaf
+    private static final int SLICE = 8192;
+
+    private EntityPhysics() {
+    }
+
+    public static void step(Entities entities, World world, float dt) {
+        stepRange(entities, world, dt, 0, entities.highWater);
+    }
+
+    public static void step(Entities entities, World world, float dt, ForkJoinPool pool) {
+        if (entities.highWater <= SLICE) {
+            step(entities, world, dt);
+            return;
+        }
+        pool.invoke(new StepTask(entities, world, dt, 0, entities.highWater));
+    }
+
+    // Turns falling blocks that have come to rest back into world blocks; run after step, on the tick thread
+    public static int settle(Entities entities, World world) {
+        int settled = 0;
+        int[] flags = entities.flags;
+        for (int i = 0; i < entities.highWater; i++) {
+            if ((flags[i] & Entities.LANDED) == 0) {
+                continue;
+            }
+            int cellX = entities.getCellX(i);
+            int cellY = entities.getCellY(i);
+            if (world.isWalkable(cellX, cellY)) {
+                world.setBlockId(cellX, cellY, entities.data[i]);
+            }
+            entities.despawn(i);
+            settled++;
+        }
+        return settled;
+    }
+
+    private static void stepRange(Entities entities, World world, float dt, int from, int to) {
+        float[] xs = entities.x;
+        float[] ys = entities.y;
+        float[] vxs = entities.vx;
+        float[] vys = entities.vy;
+        byte[] types = entities.type;
+        int[] flags = entities.flags;
+        for (int i = from; i < to; i++) {
+            int flag = flags[i];
+            if ((flag & Entities.ALIVE) == 0 || (flag & Entities.LANDED) != 0) {
+                continue;
+            }
+            byte type = types[i];
+            float vx = vxs[i];
+            float vy = vys[i];
+            // players are moved cell by cell from commands, like Player
+            if (type != Entities.PLAYER) {
+                vy = Math.min(vy + GRAVITY * dt, TERMINAL_VELOCITY);
+            }
+            float x = xs[i];
+            float y = ys[i];
+            int cellX = (int) Math.floor(x);
+            int cellY = (int) Math.floor(y);
+
+            // at most one cell per axis per step, so only the neighbouring cell needs checking
+            float nextX = x + clampStep(vx * dt);
+            int nextCellX = (int) Math.floor(nextX);
+            if (nextCellX != cellX && !world.isWalkable(nextCellX, cellY)) {
+                nextX = x;
+                nextCellX = cellX;
+                // mobs patrol: turn around at walls
+                vx = type == Entities.MOB ? -vx : 0;
+            }
+
+            float nextY = y + clampStep(vy * dt);
+            int nextCellY = (int) Math.floor(nextY);
+            if (nextCellY != cellY && !world.isWalkable(nextCellX, nextCellY)) {
+                if (vy > 0) {
+                    flag |= Entities.GROUNDED;
+                    if (type == Entities.FALLING_BLOCK) {
+                        flag |= Entities.LANDED;
+                    }
+                }
+                nextY = y;
+                vy = 0;
+                // a block settled into the entity's cell: climb out on top of it
+                if (!world.isWalkable(nextCellX, cellY) && world.isWalkable(nextCellX, cellY - 1)) {
+                    nextY = y - 1;
+                }
+            } else if (nextCellY != cellY) {
+                flag &= ~Entities.GROUNDED;
+            }
+
+            xs[i] = nextX;
+            ys[i] = nextY;
+            vxs[i] = vx;
+            vys[i] = vy;
+            flags[i] = flag;
+        }
+    }
+
+    private static float clampStep(float delta) {
+        return Math.max(-1f, Math.min(1f, delta));
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class StepTask extends RecursiveAction {
+        private final Entities entities;
+        private final World world;
+        private final float dt;
+        private final int from;
+        private final int to;
+
+        StepTask(Entities entities, World world, float dt, int from, int to) {
+            this.entities = entities;
+            this.world = world;
+            this.dt = dt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SLICE) {
+                stepRange(entities, world, dt, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StepTask(entities, world, dt, from, mid), new StepTask(entities, world, dt, mid, to));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package game;
+
+// Air above the surface row, Dirt below it
+public class FlatTerrainGenerator implements TerrainGenerator {
+    private final int surface;
+
+    public FlatTerrainGenerator(int surface) {
+        this.surface = surface;
+    }
+
+    @Override
+    public Chunk generate(int chunkX, int chunkY) {
+        int top = chunkY << Chunk.SHIFT;
+        if (top > surface) {
+            return new Chunk(BlockRegistry.DIRT);
+        }
+        Chunk chunk = new Chunk(BlockRegistry.AIR);
+        for (int ly = 0; ly < Chunk.SIZE; ly++) {
+            if (top + ly > surface) {
+                for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                    chunk.set(lx, ly, BlockRegistry.DIRT);
+                }
+            }
+        }
+        return chunk;
+    }
+}
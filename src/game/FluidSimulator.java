@@ -0,0 +1,250 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Cellular-automaton flow for Water and Lava. Only cells next to a recent change are simulated, so
+// quiet fluid costs nothing. Chunks are processed in nine passes by (chunkX mod 3, chunkY mod 3):
+// chunks in one pass are at least three apart, so their one-cell neighbourhoods never overlap and
+// can run in parallel. Writes are applied after each pass, which keeps the result independent of
+// the thread count.
+public final class FluidSimulator implements BlockChangeListener {
+    private static final int WINDOW = Chunk.SIZE * 3;
+    private static final int BITSET_WORDS = Chunk.CELLS / 64;
+
+    private final World world;
+    private final ForkJoinPool pool;
+    // chunk key -> bitset of active cells in that chunk
+    private Map<Long, long[]> active = new HashMap<>();
+    private long tick;
+
+    private int lastSimulatedCells;
+    private int lastChangedCells;
+    private long lastTickNanos;
+
+    public FluidSimulator(World world) {
+        this(world, ForkJoinPool.commonPool());
+    }
+
+    public FluidSimulator(World world, ForkJoinPool pool) {
+        this.world = world;
+        this.pool = pool;
+        world.addListener(this);
+    }
+
+    // World may notify from several writer threads at once
+    @Override
+    public synchronized void blockChanged(int x, int y, int oldId, int newId) {
+        activate(x, y);
+        activate(x - 1, y);
+        activate(x + 1, y);
+        activate(x, y - 1);
+        activate(x, y + 1);
+    }
+
+    public synchronized void activate(int x, int y) {
+        long key = World.chunkKey(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+        long[] bits = active.get(key);
+        if (bits == null) {
+            bits = new long[BITSET_WORDS];
+            active.put(key, bits);
+        }
+        int index = ((y & Chunk.MASK) << Chunk.SHIFT) | (x & Chunk.MASK);
+        bits[index >> 6] |= 1L << index;
+    }
+
+    public synchronized int getActiveChunkCount() {
+        return active.size();
+    }
+
+    public void tick() {
+        long start = System.nanoTime();
+        Map<Long, long[]> current;
+        synchronized (this) {
+            current = active;
+            active = new HashMap<>();
+        }
+        int simulated = 0;
+        int changed = 0;
+
+        List<List<ChunkTask>> passes = new ArrayList<>(9);
+        for (int i = 0; i < 9; i++) {
+            passes.add(new ArrayList<>());
+        }
+        for (Map.Entry<Long, long[]> entry : current.entrySet()) {
+            long key = entry.getKey();
+            int chunkX = (int) (key >> 32);
+            int chunkY = (int) key;
+            Chunk chunk = world.getChunk(chunkX, chunkY);
+            if (!chunk.containsAny(BlockRegistry.FLUID_MASK)) {
+                continue;
+            }
+            passes.get(Math.floorMod(chunkY, 3) * 3 + Math.floorMod(chunkX, 3)).add(new ChunkTask(chunkX, chunkY, entry.getValue()));
+        }
+
+        for (List<ChunkTask> pass : passes) {
+            if (pass.isEmpty()) {
+                continue;
+            }
+            // chunk lookups go through the world's cache, so resolve them before going parallel
+            for (ChunkTask task : pass) {
+                task.loadWindow();
+            }
+            if (pass.size() == 1) {
+                pass.get(0).simulate(tick);
+            } else {
+                pool.submit(() -> pass.parallelStream().forEach(task -> task.simulate(tick))).join();
+            }
+            for (ChunkTask task : pass) {
+                simulated += task.simulated;
+                changed += task.apply();
+            }
+        }
+
+        tick++;
+        lastSimulatedCells = simulated;
+        lastChangedCells = changed;
+        lastTickNanos = System.nanoTime() - start;
+    }
+
+    // Same as calling tick() that many times while nothing is active, without the per-tick setup
+    public synchronized void skipIdleTicks(long ticks) {
+        if (!active.isEmpty()) {
+            throw new IllegalStateException(active.size() + " chunks still have active cells");
+        }
+        tick += ticks;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getLastSimulatedCells() {
+        return lastSimulatedCells;
+    }
+
+    public int getLastChangedCells() {
+        return lastChangedCells;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    private static boolean isFluid(int blockId) {
+        return blockId == BlockRegistry.WATER || blockId == BlockRegistry.LAVA;
+    }
+
+    private final class ChunkTask {
+        private final int chunkX;
+        private final int chunkY;
+        private final long[] activeBits;
+        // the chunk and its eight neighbours as block ids, row-major
+        private final byte[] window = new byte[WINDOW * WINDOW];
+        private final byte[] original = new byte[WINDOW * WINDOW];
+        private final boolean[] moved = new boolean[WINDOW * WINDOW];
+        private int simulated;
+
+        ChunkTask(int chunkX, int chunkY, long[] activeBits) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+            this.activeBits = activeBits;
+        }
+
+        void loadWindow() {
+            for (int dy = 0; dy < 3; dy++) {
+                for (int dx = 0; dx < 3; dx++) {
+                    Chunk chunk = world.getChunk(chunkX + dx - 1, chunkY + dy - 1);
+                    for (int ly = 0; ly < Chunk.SIZE; ly++) {
+                        int row = (dy * Chunk.SIZE + ly) * WINDOW + dx * Chunk.SIZE;
+                        for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                            window[row + lx] = (byte) chunk.get(lx, ly);
+                        }
+                    }
+                }
+            }
+            System.arraycopy(window, 0, original, 0, window.length);
+        }
+
+        // Bottom row first so a falling column moves one cell per tick
+        void simulate(long tick) {
+            for (int ly = Chunk.MASK; ly >= 0; ly--) {
+                for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                    int index = (ly << Chunk.SHIFT) | lx;
+                    if ((activeBits[index >> 6] & (1L << index)) != 0) {
+                        step(Chunk.SIZE + lx, Chunk.SIZE + ly, tick);
+                    }
+                }
+            }
+        }
+
+        private void step(int wx, int wy, long tick) {
+            int i = wy * WINDOW + wx;
+            int id = window[i];
+            if (moved[i] || !isFluid(id)) {
+                return;
+            }
+            simulated++;
+
+            // water touching lava hardens into stone
+            if (id == BlockRegistry.WATER) {
+                if (window[i - 1] == BlockRegistry.LAVA || window[i + 1] == BlockRegistry.LAVA
+                        || window[i - WINDOW] == BlockRegistry.LAVA || window[i + WINDOW] == BlockRegistry.LAVA) {
+                    window[i] = BlockRegistry.STONE;
+                    return;
+                }
+            } else if (harden(i - 1) | harden(i + 1) | harden(i - WINDOW) | harden(i + WINDOW)) {
+                return;
+            }
+
+            int below = i + WINDOW;
+            if (window[below] == BlockRegistry.AIR) {
+                move(i, below, id);
+                return;
+            }
+            // spread sideways under the weight of fluid above, or towards a drop
+            boolean pressured = window[i - WINDOW] == id;
+            int first = ((wx + wy + tick) & 1) == 0 ? -1 : 1;
+            if (canSpread(i + first, pressured)) {
+                move(i, i + first, id);
+            } else if (canSpread(i - first, pressured)) {
+                move(i, i - first, id);
+            }
+        }
+
+        private boolean harden(int i) {
+            if (window[i] == BlockRegistry.WATER) {
+                window[i] = BlockRegistry.STONE;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean canSpread(int side, boolean pressured) {
+            return window[side] == BlockRegistry.AIR && (pressured || window[side + WINDOW] == BlockRegistry.AIR);
+        }
+
+        private void move(int from, int to, int id) {
+            window[from] = BlockRegistry.AIR;
+            window[to] = (byte) id;
+            moved[to] = true;
+        }
+
+        // Writes the changed cells back through the world, which re-activates their neighbourhoods
+        int apply() {
+            int left = (chunkX - 1) << Chunk.SHIFT;
+            int top = (chunkY - 1) << Chunk.SHIFT;
+            int changed = 0;
+            for (int i = 0; i < window.length; i++) {
+                if (window[i] != original[i]) {
+                    world.setBlockId(left + i % WINDOW, top + i / WINDOW, window[i]);
+                    changed++;
+                }
+            }
+            return changed;
+        }
+    }
+}
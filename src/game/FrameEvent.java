@@ -0,0 +1,13 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("game.Frame")
+@Label("Frame")
+@Category("Game")
+final class FrameEvent extends jdk.jfr.Event {
+    @Label("Frame")
+    long frame;
+}
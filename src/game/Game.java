@@ -0,0 +1,208 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+// Usage: Game [saveDirectory] [ticksPerSecond] [metricsPort]
+// Every command is appended to commands.journal in the save directory; JournalReplay re-runs it.
+// With a metrics port, tick/frame/world metrics are served at http://127.0.0.1:<port>/metrics.
+public class Game {
+    private static final long WORLD_SEED = 20240611L;
+    private static final int WORLD_WIDTH = 100;
+    private static final int WORLD_HEIGHT = 100;
+    private static final int VIEW_WIDTH = 60;
+    private static final int VIEW_HEIGHT = 20;
+    private static final int SPAWN_X = 5;
+    private static final int PLAYER_ID = 0;
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int FRAMES_PER_SECOND = 15;
+    private static final int AUTOSAVE_SECONDS = 30;
+    private static final String INVALID_INPUT = "Invalid input. Please enter W, A, S, D, B, or Q.";
+
+    private final World world;
+    private final Player player;
+    private final TickScheduler scheduler;
+    private final CommandJournal journal;
+    private final TerminalRenderer renderer = new TerminalRenderer(System.out, VIEW_WIDTH, VIEW_HEIGHT);
+    private String message = "";
+    // set once a command has been entered, so the next frame draws a fresh prompt over the echoed line
+    private boolean promptDirty = true;
+    // commands queued behind Q, such as the one sent at end of input, are dropped
+    private boolean quitting;
+    // autosaves write from a snapshot on this thread while the loop keeps ticking
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<Integer> pendingSave = CompletableFuture.completedFuture(0);
+
+    private Game(World world, Player player, TickScheduler scheduler, CommandJournal journal) {
+        this.world = world;
+        this.player = player;
+        this.scheduler = scheduler;
+        this.journal = journal;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path saveDirectory = Paths.get(args.length > 0 ? args[0] : "world");
+        int ticksPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : TICKS_PER_SECOND;
+        int metricsPort = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+        CommandJournal.Header header = new CommandJournal.Header(WORLD_SEED, WORLD_WIDTH, WORLD_HEIGHT,
+                WORLD_HEIGHT / 2, WORLD_HEIGHT - 4, SPAWN_X);
+        try (RegionChunkStore store = new RegionChunkStore(saveDirectory);
+             CommandJournal journal = new CommandJournal(saveDirectory.resolve("commands.journal"), header)) {
+            TerrainGenerator generator = new NoiseTerrainGenerator(header.seed(), header.surfaceLevel(), header.bedrockLevel());
+            World world = new World(WORLD_WIDTH, WORLD_HEIGHT, generator, World.DEFAULT_MAX_LOADED_CHUNKS, store);
+            world.pregenerate(0, 0, (WORLD_WIDTH + Chunk.MASK) >> Chunk.SHIFT, (WORLD_HEIGHT + Chunk.MASK) >> Chunk.SHIFT,
+                    ForkJoinPool.commonPool());
+            FluidSimulator fluids = new FluidSimulator(world);
+            Player player = Player.spawnAt(world, SPAWN_X);
+            player.setVerbose(false);
+
+            TickScheduler scheduler = new TickScheduler(ticksPerSecond, FRAMES_PER_SECOND);
+            Metrics metrics = new Metrics(world, scheduler);
+            if (metricsPort >= 0) {
+                metrics.serve(metricsPort);
+            }
+            Game game = new Game(world, player, scheduler, journal);
+            scheduler.onTick(tick -> fluids.tick());
+            scheduler.onTick(tick -> game.flushJournal());
+            long autosaveTicks = (long) ticksPerSecond * AUTOSAVE_SECONDS;
+            scheduler.onTick(tick -> {
+                if (tick > 0 && tick % autosaveTicks == 0) {
+                    game.autosave();
+                }
+            });
+            scheduler.setFrameTask(game::drawFrame);
+
+            // the world keeps ticking while this thread waits for a line
+            Thread input = new Thread(game::readInput, "input");
+            input.setDaemon(true);
+            input.start();
+            scheduler.run();
+            metrics.close();
+            // saved after the loop so the state on disk includes the final tick
+            game.finishAutosave();
+            world.save();
+
+            System.out.printf("Ticks: %d at %.1f/%d TPS, tick p50 %.2f ms, p99 %.2f ms, %d overruns, %d skipped%n",
+                    scheduler.getTick(), scheduler.getAchievedTps(), scheduler.getTargetTps(),
+                    scheduler.getTickPercentileNanos(0.50) / 1e6, scheduler.getTickPercentileNanos(0.99) / 1e6,
+                    scheduler.getOverruns(), scheduler.getSkippedTicks());
+            System.out.println("Metrics: " + metrics.summaryLine());
+            System.out.printf("World checksum: %016x%n", world.checksum());
+            System.out.println("Thanks for playing!");
+        }
+    }
+
+    private void readInput() {
+        try (Scanner sc = new Scanner(System.in)) {
+            while (sc.hasNextLine()) {
+                String line = sc.nextLine();
+                scheduler.submit(() -> handle(line));
+            }
+        }
+        scheduler.submit(() -> handle("Q"));
+    }
+
+    // Runs on the tick thread
+    private void handle(String line) {
+        if (quitting) {
+            return;
+        }
+        promptDirty = true;
+        String inputStr = line.trim().toUpperCase();
+        if (inputStr.isEmpty()) {
+            message = INVALID_INPUT;
+            return;
+        }
+
+        char input = inputStr.charAt(0);
+        if ("WASDBQ".indexOf(input) >= 0) {
+            record(input);
+        }
+
+        switch (input) {
+            case 'Q':
+                quitting = true;
+                scheduler.stop();
+                break;
+            case 'B':
+                Block block = world.getBlockForPosition(player.getX(), player.getY());
+                message = player.BreakBlock(world)
+                        ? "Broke " + block.getName() + " block."
+                        : block.getName() + " block cannot be broken.";
+                break;
+            case 'W':
+            case 'A':
+            case 'S':
+            case 'D':
+                message = player.move(input, world)
+                        ? "Moved to (" + player.getX() + ", " + player.getY() + ")"
+                        : "Cannot move there.";
+                break;
+            default:
+                message = INVALID_INPUT;
+        }
+    }
+
+    private void record(char command) {
+        try {
+            journal.append(scheduler.getTick(), PLAYER_ID, command, (char) 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Skipped while the previous autosave is still writing
+    private void autosave() {
+        if (pendingSave.isDone()) {
+            pendingSave = world.saveAsync(saver);
+        }
+    }
+
+    private void finishAutosave() {
+        pendingSave.join();
+        saver.shutdown();
+    }
+
+    private void flushJournal() {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Between commands the cursor is parked where the player is typing, so each frame restores it
+    private void drawFrame() {
+        if (!promptDirty) {
+            System.out.print(TerminalRenderer.SAVE_CURSOR);
+        }
+        renderer.render(world, player);
+        System.out.println("Player position: (" + player.getX() + ", " + player.getY() + ")"
+                + String.format("   frame: %.2f ms, %d bytes", renderer.getLastBuildNanos() / 1e6, renderer.getLastFrameBytes())
+                + TerminalRenderer.CLEAR_LINE);
+        System.out.println(String.format("Tick %d: %.1f/%d TPS, p50 %.2f ms, p99 %.2f ms, %d overruns",
+                scheduler.getTick(), scheduler.getAchievedTps(), scheduler.getTargetTps(),
+                scheduler.getTickPercentileNanos(0.50) / 1e6, scheduler.getTickPercentileNanos(0.99) / 1e6,
+                scheduler.getOverruns()) + TerminalRenderer.CLEAR_LINE);
+        System.out.println(message + TerminalRenderer.CLEAR_LINE);
+        System.out.println("Controls: W/A/S/D to move, B to break block, Q to quit" + TerminalRenderer.CLEAR_LINE);
+        if (promptDirty) {
+            System.out.print("Move (WASD/B/Q): " + TerminalRenderer.CLEAR_BELOW);
+            promptDirty = false;
+        } else {
+            System.out.print(TerminalRenderer.RESTORE_CURSOR);
+        }
+        System.out.flush();
+    }
+}
@@ -0,0 +1,297 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serves one shared World to many clients over TCP on localhost. Every session reads its commands on
+// its own virtual thread and answers them straight away; block changes and player moves are collected
+// and sent once per tick, batched by 64x64 area, to the sessions in or next to that area. A second
+// virtual thread per session drains its outbound queue, so a slow client is dropped instead of stalling
+// the tick.
+//
+// Client lines: W/A/S/D move, B breaks the block the player stands in, B followed by a direction breaks
+// the neighbouring block, Q quits. Replies are "R <1|0> <x> <y>"; a tick sends each nearby area with news
+// as "T <tick> <blocks> <players>" followed by that many "B <x> <y> <id>" and "P <player> <x> <y>" lines.
+public final class GameServer implements BlockChangeListener, AutoCloseable {
+    public static final int DEFAULT_TICK_MILLIS = 50;
+    private static final int OUTBOUND_CAPACITY = 256;
+    // sessions hear about changes within one area of their own, areas being 64x64 cells
+    private static final int AREA_SHIFT = 6;
+    private static final byte[] CLOSE = new byte[0];
+
+    private final World world;
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    // packed cell coordinates changed since the last tick; the id is read when the batch is built
+    private final Set<Long> changedCells = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextPlayerId = new AtomicInteger();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong droppedSessions = new AtomicLong();
+    private long tick;
+    private long broadcastBytes;
+
+    public GameServer(World world, int port) throws IOException {
+        this(world, port, DEFAULT_TICK_MILLIS);
+    }
+
+    public GameServer(World world, int port, int tickMillis) throws IOException {
+        this.world = world;
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        world.addListener(this);
+        threads.submit(this::acceptLoop);
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public long getCommands() {
+        return commands.get();
+    }
+
+    public long getDroppedSessions() {
+        return droppedSessions.get();
+    }
+
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    public synchronized long getBroadcastBytes() {
+        return broadcastBytes;
+    }
+
+    @Override
+    public void blockChanged(int x, int y, int oldId, int newId) {
+        changedCells.add(World.chunkKey(x, y));
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+                // replies are tiny and latency-bound; don't let Nagle hold them back for an ACK
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                return;
+            }
+            Session session = new Session(nextPlayerId.getAndIncrement(), socket);
+            sessions.put(session.id, session);
+            threads.submit(session::writeLoop);
+            threads.submit(session::readLoop);
+        }
+    }
+
+    // Players spawn on the surface of a column picked from their id
+    private Player spawn(int playerId) {
+        Player player = Player.spawnAt(world, Math.floorMod(playerId * 7, Math.max(1, world.getWidth())));
+        player.setVerbose(false);
+        return player;
+    }
+
+    private synchronized void tick() {
+        tick++;
+        // news is grouped by area and each area's batch is encoded once, then shared by every session nearby
+        Map<Long, AreaBatch> areas = new HashMap<>();
+        for (Iterator<Long> it = changedCells.iterator(); it.hasNext(); ) {
+            long cell = it.next();
+            it.remove();
+            int x = (int) (cell >> 32);
+            int y = (int) cell;
+            areas.computeIfAbsent(areaKey(x, y), k -> new AreaBatch())
+                    .block(x, y, world.getBlockId(x, y));
+        }
+        for (Session session : sessions.values()) {
+            if (session.moved) {
+                session.moved = false;
+                int x = session.player.getX();
+                int y = session.player.getY();
+                areas.computeIfAbsent(areaKey(x, y), k -> new AreaBatch()).player(session.id, x, y);
+            }
+        }
+        if (areas.isEmpty()) {
+            return;
+        }
+        Map<Long, byte[]> encoded = new HashMap<>();
+        for (Map.Entry<Long, AreaBatch> entry : areas.entrySet()) {
+            encoded.put(entry.getKey(), entry.getValue().encode(tick));
+        }
+        for (Session session : sessions.values()) {
+            int areaX = session.player.getX() >> AREA_SHIFT;
+            int areaY = session.player.getY() >> AREA_SHIFT;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    byte[] batch = encoded.get(World.chunkKey(areaX + dx, areaY + dy));
+                    if (batch != null && session.send(batch)) {
+                        broadcastBytes += batch.length;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long areaKey(int x, int y) {
+        return World.chunkKey(x >> AREA_SHIFT, y >> AREA_SHIFT);
+    }
+
+    private static final class AreaBatch {
+        private final StringBuilder lines = new StringBuilder();
+        private int blocks;
+        private int players;
+
+        void block(int x, int y, int id) {
+            lines.append("B ").append(x).append(' ').append(y).append(' ').append(id).append('\n');
+            blocks++;
+        }
+
+        void player(int id, int x, int y) {
+            lines.append("P ").append(id).append(' ').append(x).append(' ').append(y).append('\n');
+            players++;
+        }
+
+        byte[] encode(long tick) {
+            return ("T " + tick + ' ' + blocks + ' ' + players + '\n' + lines).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (Session session : sessions.values()) {
+                session.close();
+            }
+            threads.close();
+            world.removeListener(this);
+        }
+    }
+
+    private final class Session {
+        private final int id;
+        private final Socket socket;
+        private final Player player;
+        private final BlockingQueue<byte[]> outbound = new ArrayBlockingQueue<>(OUTBOUND_CAPACITY);
+        private volatile boolean moved;
+        private volatile boolean closed;
+
+        Session(int id, Socket socket) {
+            this.id = id;
+            this.socket = socket;
+            player = spawn(id);
+            moved = true;
+        }
+
+        void readLoop() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = in.readLine()) != null && !closed) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    char command = Character.toUpperCase(line.charAt(0));
+                    if (command == 'Q') {
+                        break;
+                    }
+                    commands.incrementAndGet();
+                    boolean ok = switch (command) {
+                        case 'W', 'A', 'S', 'D' -> {
+                            boolean stepped = player.move(command, world);
+                            if (stepped) {
+                                moved = true;
+                            }
+                            yield stepped;
+                        }
+                        case 'B' -> line.length() > 1
+                                ? player.BreakBlock(Character.toUpperCase(line.charAt(1)), world)
+                                : player.BreakBlock(world);
+                        default -> false;
+                    };
+                    send(("R " + (ok ? 1 : 0) + ' ' + player.getX() + ' ' + player.getY() + '\n').getBytes(StandardCharsets.US_ASCII));
+                }
+            } catch (IOException e) {
+                // the client went away; fall through and clean up
+            } finally {
+                close();
+            }
+        }
+
+        // Coalesces whatever is queued into one flush
+        void writeLoop() {
+            try (OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+                while (true) {
+                    byte[] message = outbound.take();
+                    do {
+                        if (message == CLOSE) {
+                            return;
+                        }
+                        out.write(message);
+                    } while ((message = outbound.poll()) != null);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                close();
+            }
+        }
+
+        // False if the message was not queued: the session is closed, or its queue was full and it is closed now
+        boolean send(byte[] message) {
+            if (closed) {
+                return false;
+            }
+            if (!outbound.offer(message)) {
+                droppedSessions.incrementAndGet();
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sessions.remove(id);
+            outbound.clear();
+            outbound.offer(CLOSE);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package game;
+
 public class GrassBlock extends Block {
     public GrassBlock() {
         this.name = "Grass";
@@ -0,0 +1,122 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+// Replays a command journal against a freshly generated world as fast as the CPU allows, with no
+// console output from the players, and prints a checksum of the resulting world. Ticks are replayed
+// with the same fluid simulation as Game, so the checksum matches the one Game prints on quit.
+// Usage: JournalReplay <journal> [expectedChecksumHex]
+public class JournalReplay {
+    private final World world;
+    private final CommandJournal.Header header;
+    private final Map<Integer, Player> players = new HashMap<>();
+    private FluidSimulator fluids;
+    // the tick whose commands are being applied; fluids have run for every tick before it
+    private long tick;
+    private boolean sessionEnded;
+    private int sessions;
+    private long ticks;
+
+    public JournalReplay(CommandJournal.Header header) {
+        this.header = header;
+        TerrainGenerator generator = new NoiseTerrainGenerator(header.seed(), header.surfaceLevel(), header.bedrockLevel());
+        world = new World(header.width(), header.height(), generator, World.DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+        startSession();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JournalReplay <journal> [expectedChecksumHex]");
+            System.exit(2);
+        }
+        try (CommandJournal.Reader journal = new CommandJournal.Reader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            JournalReplay replay = new JournalReplay(journal.getHeader());
+            replay.replay(journal);
+            long checksum = replay.world.checksum();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Commands: %d in %d sessions, %d ticks%n", journal.getRecordCount(), replay.sessions, replay.ticks);
+            System.out.printf("Replay:   %.1f ms, %.0f commands/s, %.0f ticks/s%n",
+                    seconds * 1e3, journal.getRecordCount() / seconds, replay.ticks / seconds);
+            System.out.printf("Checksum: %016x%n", checksum);
+            if (args.length > 1 && Long.parseUnsignedLong(args[1], 16) != checksum) {
+                System.out.println("Checksum MISMATCH, expected " + args[1]);
+                System.exit(1);
+            }
+        }
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public void replay(CommandJournal.Reader journal) {
+        while (journal.next()) {
+            // Game restarts tick numbering, players and fluid state with every session
+            if (sessionEnded || journal.tick() < tick) {
+                endSession();
+                startSession();
+            }
+            advanceTo(journal.tick());
+            apply(journal.playerId(), journal.command(), journal.argument());
+        }
+        endSession();
+    }
+
+    private void startSession() {
+        if (fluids != null) {
+            world.removeListener(fluids);
+        }
+        fluids = new FluidSimulator(world);
+        players.clear();
+        tick = 0;
+        sessionEnded = false;
+        sessions++;
+    }
+
+    // Runs the fluid step of the current tick, as Game does after draining its commands
+    private void endSession() {
+        fluids.tick();
+        ticks++;
+    }
+
+    private void advanceTo(long target) {
+        while (tick < target) {
+            if (fluids.getActiveChunkCount() == 0) {
+                fluids.skipIdleTicks(target - tick);
+                ticks += target - tick;
+                tick = target;
+                return;
+            }
+            fluids.tick();
+            ticks++;
+            tick++;
+        }
+    }
+
+    private void apply(int playerId, char command, char argument) {
+        // only commands change the world while a session's fluids are idle, so joining on the first
+        // command spawns where Game spawned the player at the session start
+        Player player = players.computeIfAbsent(playerId, id -> {
+            Player spawned = Player.spawnAt(world, header.spawnX());
+            spawned.setVerbose(false);
+            return spawned;
+        });
+        switch (command) {
+            case 'W', 'A', 'S', 'D' -> player.move(command, world);
+            case 'B' -> {
+                if (argument == 0) {
+                    player.BreakBlock(world);
+                } else {
+                    player.BreakBlock(argument, world);
+                }
+            }
+            case 'Q' -> sessionEnded = true;
+            default -> throw new IllegalArgumentException("Unknown command in journal: " + (int) command);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package game;
+
 public class LavaBlock extends Block {
     public LavaBlock() {
         this.name = "Lava";
@@ -0,0 +1,428 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// Renders a rectangle of the world as an RGB image with one colour per block type, either one pixel
+// per cell or zoomed out, where each pixel shows the most common block of a scale x scale square.
+// The image is drawn one band (a row of tiles) at a time: the tiles of a band are rasterised in
+// parallel straight into a byte buffer, and a band is written out while the next one is drawn, so
+// memory stays at two bands whatever the size of the image. A World is read as it is while the export
+// runs; export a WorldSnapshot for a consistent picture of a world that keeps changing (the snapshot
+// holds on to every chunk it reads until it is closed, so very large areas are best exported from a World).
+// Usage: MapExporter <out.png|out.ppm> [width] [height] [scale] [seed]
+public final class MapExporter {
+    // world cells per tile side, so tiles span fewer pixels the further out the zoom
+    private static final int TILE_CELLS = 256;
+    private static final int IDAT_BYTES = 1 << 16;
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int[] PALETTE = new int[BlockRegistry.size()];
+
+    static {
+        for (int id = 0; id < PALETTE.length; id++) {
+            PALETTE[id] = colourOf(BlockRegistry.get(id));
+        }
+    }
+
+    public enum Format {
+        PNG,
+        PPM;
+
+        public static Format forFile(java.nio.file.Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".png")) {
+                return PNG;
+            }
+            if (name.endsWith(".ppm")) {
+                return PPM;
+            }
+            throw new IllegalArgumentException("expected a .png or .ppm file: " + file);
+        }
+    }
+
+    private final ChunkSource source;
+    private final ForkJoinPool pool;
+
+    public MapExporter(World world, ForkJoinPool pool) {
+        this(world::getChunk, pool);
+    }
+
+    public MapExporter(WorldSnapshot snapshot, ForkJoinPool pool) {
+        this(snapshot::getChunk, pool);
+    }
+
+    public MapExporter(ChunkSource source, ForkJoinPool pool) {
+        this.source = source;
+        this.pool = pool;
+    }
+
+    // 0xRRGGBB for a block id
+    public static int rgb(int blockId) {
+        return PALETTE[blockId];
+    }
+
+    // Known symbols get fixed colours; any other block a stable one derived from its name
+    private static int colourOf(Block block) {
+        return switch (block.getSymbol()) {
+            case ' ' -> 0x8ECAE6;
+            case 'D' -> 0x866043;
+            case 'G' -> 0x5FA03A;
+            case 'S' -> 0x7D7D7D;
+            case 'W' -> 0x6B4F2A;
+            case '~' -> 0x2F5FE0;
+            case '^' -> 0xE0581B;
+            case 'B' -> 0x2B2B2B;
+            default -> (int) (World.spread(block.getName().hashCode()) >>> 40);
+        };
+    }
+
+    public void export(int x, int y, int width, int height, int scale, java.nio.file.Path file) throws IOException {
+        Format format = Format.forFile(file);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), IDAT_BYTES)) {
+            export(x, y, width, height, scale, format, out);
+        }
+    }
+
+    // Writes the cells [x, x + width) x [y, y + height) as a ceil(width / scale) x ceil(height / scale)
+    // image; a pixel on the right or bottom edge covers whatever part of its square is inside the area.
+    // Ties in a square go to the lower block id. The stream is flushed but not closed.
+    public void export(int x, int y, int width, int height, int scale, Format format, OutputStream out) throws IOException {
+        if (width < 1 || height < 1 || scale < 1) {
+            throw new IllegalArgumentException("width, height and scale must be positive: " + width + "x" + height + " / " + scale);
+        }
+        Math.addExact(x, width);
+        Math.addExact(y, height);
+        Area area = new Area(x, y, width, height, scale);
+        byte[][] bands = {new byte[area.bandBytes()], new byte[area.bandBytes()]};
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ForkJoinTask<?> pending = null;
+        try {
+            RowWriter writer = format == Format.PNG
+                    ? new PngWriter(out, area.imageWidth, area.imageHeight, deflater)
+                    : new PpmWriter(out, area.imageWidth, area.imageHeight);
+            pending = drawBand(area, 0, bands[0]);
+            for (int band = 0; band < area.bandCount; band++) {
+                pending.join();
+                pending = band + 1 < area.bandCount ? drawBand(area, band + 1, bands[(band + 1) & 1]) : null;
+                writer.write(bands[band & 1], area.bandRows(band));
+            }
+            writer.finish();
+        } finally {
+            // on a write error, let the band being drawn finish before its buffer is dropped
+            if (pending != null) {
+                pending.quietlyJoin();
+            }
+            deflater.end();
+        }
+    }
+
+    private ForkJoinTask<?> drawBand(Area area, int band, byte[] pixels) {
+        return pool.submit(() -> IntStream.range(0, area.tilesAcross).parallel().forEach(tile -> {
+            if (area.scale == 1) {
+                drawTile(area, band, tile, pixels);
+            } else {
+                drawScaledTile(area, band, tile, pixels);
+            }
+        }));
+    }
+
+    // One pixel per cell: chunk colours are copied straight into the band
+    private void drawTile(Area area, int band, int tile, byte[] pixels) {
+        int fromX = area.x + tile * area.tilePixels;
+        int toX = Math.min(fromX + area.tilePixels, area.x + area.width);
+        int fromY = area.y + band * area.tilePixels;
+        int toY = Math.min(fromY + area.tilePixels, area.y + area.height);
+        for (int cy = fromY >> Chunk.SHIFT; cy <= (toY - 1) >> Chunk.SHIFT; cy++) {
+            int rowFrom = Math.max(fromY, cy << Chunk.SHIFT);
+            int rowTo = Math.min(toY, (cy << Chunk.SHIFT) + Chunk.SIZE);
+            for (int cx = fromX >> Chunk.SHIFT; cx <= (toX - 1) >> Chunk.SHIFT; cx++) {
+                int colFrom = Math.max(fromX, cx << Chunk.SHIFT);
+                int colTo = Math.min(toX, (cx << Chunk.SHIFT) + Chunk.SIZE);
+                Chunk chunk = source.getChunk(cx, cy);
+                boolean uniform = chunk.isUniform();
+                int colour = PALETTE[chunk.get(0, 0)];
+                for (int cellY = rowFrom; cellY < rowTo; cellY++) {
+                    int offset = ((cellY - fromY) * area.imageWidth + colFrom - area.x) * 3;
+                    for (int cellX = colFrom; cellX < colTo; cellX++, offset += 3) {
+                        if (!uniform) {
+                            colour = PALETTE[chunk.get(cellX & Chunk.MASK, cellY & Chunk.MASK)];
+                        }
+                        pixels[offset] = (byte) (colour >> 16);
+                        pixels[offset + 1] = (byte) (colour >> 8);
+                        pixels[offset + 2] = (byte) colour;
+                    }
+                }
+            }
+        }
+    }
+
+    // Zoomed out: block counts per pixel, then the majority block's colour
+    private void drawScaledTile(Area area, int band, int tile, byte[] pixels) {
+        int scale = area.scale;
+        int ids = PALETTE.length;
+        int pixelFrom = tile * area.tilePixels;
+        int tileWidth = Math.min(area.tilePixels, area.imageWidth - pixelFrom);
+        int tileHeight = area.bandRows(band);
+        int fromX = area.x + pixelFrom * scale;
+        int toX = (int) Math.min((long) fromX + (long) tileWidth * scale, area.x + area.width);
+        int fromY = area.y + band * area.tilePixels * scale;
+        int toY = (int) Math.min((long) fromY + (long) tileHeight * scale, area.y + area.height);
+        int[] counts = new int[tileWidth * tileHeight * ids];
+
+        for (int cy = fromY >> Chunk.SHIFT; cy <= (toY - 1) >> Chunk.SHIFT; cy++) {
+            int rowFrom = Math.max(fromY, cy << Chunk.SHIFT);
+            int rowTo = Math.min(toY, (cy << Chunk.SHIFT) + Chunk.SIZE);
+            for (int cx = fromX >> Chunk.SHIFT; cx <= (toX - 1) >> Chunk.SHIFT; cx++) {
+                int colFrom = Math.max(fromX, cx << Chunk.SHIFT);
+                int colTo = Math.min(toX, (cx << Chunk.SHIFT) + Chunk.SIZE);
+                Chunk chunk = source.getChunk(cx, cy);
+                if (chunk.isUniform()) {
+                    addUniform(counts, chunk.get(0, 0), tileWidth, scale, fromX, fromY, colFrom, colTo, rowFrom, rowTo);
+                } else if (colTo - colFrom == Chunk.SIZE && rowTo - rowFrom == Chunk.SIZE
+                        && (colFrom - fromX) / scale == (colTo - 1 - fromX) / scale
+                        && (rowFrom - fromY) / scale == (rowTo - 1 - fromY) / scale) {
+                    // the whole chunk falls in one pixel: its palette counts are all that matter
+                    int base = ((rowFrom - fromY) / scale * tileWidth + (colFrom - fromX) / scale) * ids;
+                    for (int mask = chunk.getTypeMask(); mask != 0; mask &= mask - 1) {
+                        int id = Integer.numberOfTrailingZeros(mask);
+                        counts[base + id] += chunk.count(id);
+                    }
+                } else {
+                    for (int cellY = rowFrom; cellY < rowTo; cellY++) {
+                        int rowBase = (cellY - fromY) / scale * tileWidth;
+                        for (int cellX = colFrom; cellX < colTo; cellX++) {
+                            int pixel = rowBase + (cellX - fromX) / scale;
+                            counts[pixel * ids + chunk.get(cellX & Chunk.MASK, cellY & Chunk.MASK)]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int row = 0; row < tileHeight; row++) {
+            int offset = (row * area.imageWidth + pixelFrom) * 3;
+            for (int col = 0; col < tileWidth; col++, offset += 3) {
+                int base = (row * tileWidth + col) * ids;
+                int best = 0;
+                for (int id = 1; id < ids; id++) {
+                    if (counts[base + id] > counts[base + best]) {
+                        best = id;
+                    }
+                }
+                int colour = PALETTE[best];
+                pixels[offset] = (byte) (colour >> 16);
+                pixels[offset + 1] = (byte) (colour >> 8);
+                pixels[offset + 2] = (byte) colour;
+            }
+        }
+    }
+
+    // Adds the overlap of a single-block chunk part with each pixel it touches
+    private static void addUniform(int[] counts, int id, int tileWidth, int scale, int fromX, int fromY,
+                                   int colFrom, int colTo, int rowFrom, int rowTo) {
+        int ids = PALETTE.length;
+        for (int row = (rowFrom - fromY) / scale; row <= (rowTo - 1 - fromY) / scale; row++) {
+            int pixelTop = fromY + row * scale;
+            int cellsHigh = Math.min(rowTo, pixelTop + scale) - Math.max(rowFrom, pixelTop);
+            for (int col = (colFrom - fromX) / scale; col <= (colTo - 1 - fromX) / scale; col++) {
+                int pixelLeft = fromX + col * scale;
+                int cellsWide = Math.min(colTo, pixelLeft + scale) - Math.max(colFrom, pixelLeft);
+                counts[(row * tileWidth + col) * ids + id] += cellsWide * cellsHigh;
+            }
+        }
+    }
+
+    // Image geometry shared by every tile of one export
+    private static final class Area {
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final int scale;
+        final int imageWidth;
+        final int imageHeight;
+        // pixels per tile side; a band is one row of tiles
+        final int tilePixels;
+        final int tilesAcross;
+        final int bandCount;
+
+        Area(int x, int y, int width, int height, int scale) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+            imageWidth = ceilDiv(width, scale);
+            imageHeight = ceilDiv(height, scale);
+            tilePixels = Math.max(1, TILE_CELLS / scale);
+            tilesAcross = ceilDiv(imageWidth, tilePixels);
+            bandCount = ceilDiv(imageHeight, tilePixels);
+        }
+
+        int bandRows(int band) {
+            return Math.min(tilePixels, imageHeight - band * tilePixels);
+        }
+
+        int bandBytes() {
+            return Math.multiplyExact(Math.multiplyExact(imageWidth, tilePixels), 3);
+        }
+
+        private static int ceilDiv(int value, int divisor) {
+            return (int) (((long) value + divisor - 1) / divisor);
+        }
+    }
+
+    private interface RowWriter {
+        // rows of imageWidth RGB pixels from the start of the band
+        void write(byte[] pixels, int rows) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // Binary PPM (P6): a text header and then the raw rows
+    private static final class PpmWriter implements RowWriter {
+        private final OutputStream out;
+        private final int rowBytes;
+
+        PpmWriter(OutputStream out, int imageWidth, int imageHeight) throws IOException {
+            this.out = out;
+            this.rowBytes = imageWidth * 3;
+            out.write(("P6\n" + imageWidth + " " + imageHeight + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void write(byte[] pixels, int rows) throws IOException {
+            out.write(pixels, 0, rows * rowBytes);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    // 8-bit RGB PNG. Rows go through the deflater unfiltered as they arrive and leave as a run of IDAT
+    // chunks, so nothing is held back beyond one row and one chunk; maps are mostly long runs of one
+    // colour and compress well even at the fastest level.
+    private static final class PngWriter extends OutputStream implements RowWriter {
+        private final OutputStream out;
+        private final DeflaterOutputStream deflated;
+        private final byte[] row;
+        private final byte[] idat = new byte[IDAT_BYTES];
+        private int idatLength;
+        private final CRC32 crc = new CRC32();
+
+        PngWriter(OutputStream out, int imageWidth, int imageHeight, Deflater deflater) throws IOException {
+            this.out = out;
+            this.deflated = new DeflaterOutputStream(this, deflater, IDAT_BYTES);
+            this.row = new byte[1 + imageWidth * 3];
+            out.write(PNG_SIGNATURE);
+            byte[] header = new byte[13];
+            putInt(header, 0, imageWidth);
+            putInt(header, 4, imageHeight);
+            header[8] = 8; // bit depth
+            header[9] = 2; // colour type: RGB
+            writeChunk("IHDR", header, header.length);
+        }
+
+        @Override
+        public void write(byte[] pixels, int rows) throws IOException {
+            int rowBytes = row.length - 1;
+            for (int r = 0; r < rows; r++) {
+                // row[0] stays 0: filter type None
+                System.arraycopy(pixels, r * rowBytes, row, 1, rowBytes);
+                deflated.write(row, 0, row.length);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            deflated.finish();
+            flushIdat();
+            writeChunk("IEND", idat, 0);
+            out.flush();
+        }
+
+        // Compressed bytes from the deflater, collected into IDAT chunks
+        @Override
+        public void write(int b) throws IOException {
+            if (idatLength == idat.length) {
+                flushIdat();
+            }
+            idat[idatLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (idatLength == idat.length) {
+                    flushIdat();
+                }
+                int n = Math.min(length, idat.length - idatLength);
+                System.arraycopy(bytes, offset, idat, idatLength, n);
+                idatLength += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void flushIdat() throws IOException {
+            if (idatLength > 0) {
+                writeChunk("IDAT", idat, idatLength);
+                idatLength = 0;
+            }
+        }
+
+        private void writeChunk(String type, byte[] data, int length) throws IOException {
+            byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+            byte[] lengthBytes = new byte[4];
+            putInt(lengthBytes, 0, length);
+            out.write(lengthBytes);
+            out.write(typeBytes);
+            out.write(data, 0, length);
+            crc.reset();
+            crc.update(typeBytes);
+            crc.update(data, 0, length);
+            byte[] crcBytes = new byte[4];
+            putInt(crcBytes, 0, (int) crc.getValue());
+            out.write(crcBytes);
+        }
+
+        private static void putInt(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) (value >>> 24);
+            bytes[offset + 1] = (byte) (value >>> 16);
+            bytes[offset + 2] = (byte) (value >>> 8);
+            bytes[offset + 3] = (byte) value;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: MapExporter <out.png|out.ppm> [width] [height] [scale] [seed]");
+            return;
+        }
+        java.nio.file.Path file = java.nio.file.Path.of(args[0]);
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        int scale = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+
+        // generated chunks are clean, so the cache drops them as the export moves on
+        TerrainGenerator generator = new NoiseTerrainGenerator(seed, height / 2, height - 4);
+        World world = new World(width, height, generator, World.DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+        long start = System.nanoTime();
+        new MapExporter(world, ForkJoinPool.commonPool()).export(0, 0, width, height, scale, file);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %dx%d cells at 1:%d in %d ms, %d bytes, %d chunks loaded%n",
+                file, width, height, scale, elapsed / 1_000_000, Files.size(file), world.getChunkLoads());
+    }
+}
@@ -0,0 +1,22 @@
+package game;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MemoryChunkStore implements ChunkStore {
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+
+    @Override
+    public Chunk load(int chunkX, int chunkY) {
+        return chunks.get(World.chunkKey(chunkX, chunkY));
+    }
+
+    @Override
+    public void save(int chunkX, int chunkY, Chunk chunk) {
+        chunks.put(World.chunkKey(chunkX, chunkY), chunk);
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+}
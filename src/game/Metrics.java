@@ -0,0 +1,122 @@
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.FlightRecorder;
+
+// Read side of the game's instrumentation. The counters and histograms themselves live in World and
+// TickScheduler and cost a few atomic adds per event; this class only samples them, so nothing here
+// runs unless a recording, a log line or a scrape asks for it.
+//
+// Exposes: the periodic game.WorldStatistics JFR event (alongside game.Tick, game.Frame and
+// game.ChunkLoad, which are emitted at the source), a one-line summary for logs, and an optional
+// plain-text endpoint at http://127.0.0.1:<port>/metrics.
+public final class Metrics implements AutoCloseable {
+    private final World world;
+    private final TickScheduler scheduler;
+    private final Runnable statisticsHook = this::emitStatistics;
+    private HttpServer server;
+
+    // rates in summaryLine() are over the interval since its previous call
+    private long lastSampleNanos = System.nanoTime();
+    private long lastBlockWrites;
+    private long lastChunkLoads;
+
+    public Metrics(World world, TickScheduler scheduler) {
+        this.world = world;
+        this.scheduler = scheduler;
+        FlightRecorder.addPeriodicEvent(WorldStatisticsEvent.class, statisticsHook);
+    }
+
+    // Serves /metrics on the loopback interface; port 0 picks a free one
+    public synchronized int serve(int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("already serving on port " + server.getAddress().getPort());
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = exposition().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public synchronized String summaryLine() {
+        long now = System.nanoTime();
+        long blockWrites = world.getBlockWrites();
+        long chunkLoads = world.getChunkLoads();
+        double seconds = Math.max(1e-9, (now - lastSampleNanos) / 1e9);
+        String line = String.format("tick %d: p50 %.2f ms, p99 %.2f ms, max %.2f ms | frame p99 %.2f ms"
+                        + " | setBlock %.0f/s | chunk loads %.0f/s, %d loaded | queue %d",
+                scheduler.getTick(),
+                scheduler.getTickTimes().getPercentile(0.50) / 1e6, scheduler.getTickTimes().getPercentile(0.99) / 1e6,
+                scheduler.getTickTimes().getMax() / 1e6, scheduler.getFrameTimes().getPercentile(0.99) / 1e6,
+                (blockWrites - lastBlockWrites) / seconds, (chunkLoads - lastChunkLoads) / seconds,
+                world.getLoadedChunkCount(), scheduler.getQueueDepth());
+        lastSampleNanos = now;
+        lastBlockWrites = blockWrites;
+        lastChunkLoads = chunkLoads;
+        return line;
+    }
+
+    // One "name value" pair per line; counters are totals, so rates are left to whoever scrapes them
+    private String exposition() {
+        StringBuilder out = new StringBuilder(1024);
+        append(out, "game_ticks_total", scheduler.getTick());
+        append(out, "game_tick_overruns_total", scheduler.getOverruns());
+        append(out, "game_ticks_skipped_total", scheduler.getSkippedTicks());
+        appendHistogram(out, "game_tick_seconds", scheduler.getTickTimes());
+        append(out, "game_frames_total", scheduler.getFrames());
+        appendHistogram(out, "game_frame_seconds", scheduler.getFrameTimes());
+        append(out, "game_command_queue_depth", scheduler.getQueueDepth());
+        append(out, "game_block_writes_total", world.getBlockWrites());
+        append(out, "game_chunk_loads_total", world.getChunkLoads());
+        append(out, "game_chunk_evictions_total", world.getChunkEvictions());
+        append(out, "game_chunk_hits_total", world.getChunkHits());
+        append(out, "game_chunks_loaded", world.getLoadedChunkCount());
+        return out.toString();
+    }
+
+    private static void append(StringBuilder out, String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, Histogram histogram) {
+        for (double quantile : new double[] {0.5, 0.9, 0.99}) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentile(quantile) / 1e9).append('\n');
+        }
+        out.append(name).append("_max ").append(histogram.getMax() / 1e9).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+
+    private void emitStatistics() {
+        WorldStatisticsEvent event = new WorldStatisticsEvent();
+        event.loadedChunks = world.getLoadedChunkCount();
+        event.chunkLoads = world.getChunkLoads();
+        event.chunkEvictions = world.getChunkEvictions();
+        event.blockWrites = world.getBlockWrites();
+        event.commandQueueDepth = scheduler.getQueueDepth();
+        event.commit();
+    }
+
+    @Override
+    public synchronized void close() {
+        FlightRecorder.removePeriodicEvent(statisticsHook);
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package game;
+
+// Seeded value-noise hills with grass, dirt, stone, bedrock, water pools, lava pockets and trees.
+// Every cell is a pure function of (seed, x, y), so chunks never depend on each other.
+public class NoiseTerrainGenerator implements TerrainGenerator {
+    private static final int HILL_AMPLITUDE = 12;
+    private static final int HILL_PERIOD = 48;
+    private static final int HILL_OCTAVES = 3;
+    // largest possible distance of the surface from the mean surface level
+    private static final int MAX_HILL = HILL_AMPLITUDE + HILL_AMPLITUDE / 2 + HILL_AMPLITUDE / 4;
+
+    private static final int SEA_DEPTH = 4;
+    private static final int MIN_DIRT_DEPTH = 2;
+    private static final int TREE_CHANCE = 11;
+    private static final int MIN_TREE_HEIGHT = 3;
+    private static final int MAX_TREE_HEIGHT = 5;
+    private static final int LAVA_DEPTH = 20;
+    private static final int LAVA_PERIOD = 10;
+    private static final double LAVA_THRESHOLD = 0.75;
+
+    private static final long SALT_HILLS = 1;
+    private static final long SALT_DIRT = 2;
+    private static final long SALT_TREES = 3;
+    private static final long SALT_LAVA = 4;
+    private static final long SALT_BEDROCK = 5;
+
+    private final long seed;
+    private final int surfaceLevel;
+    private final int seaLevel;
+    private final int bedrockLevel;
+
+    public NoiseTerrainGenerator(long seed, int surfaceLevel, int bedrockLevel) {
+        this.seed = seed;
+        this.surfaceLevel = surfaceLevel;
+        this.seaLevel = surfaceLevel + SEA_DEPTH;
+        this.bedrockLevel = bedrockLevel;
+    }
+
+    @Override
+    public Chunk generate(int chunkX, int chunkY) {
+        int left = chunkX << Chunk.SHIFT;
+        int top = chunkY << Chunk.SHIFT;
+        int bottom = top + Chunk.MASK;
+        if (bottom < surfaceLevel - MAX_HILL - MAX_TREE_HEIGHT) {
+            return new Chunk(BlockRegistry.AIR);
+        }
+        if (top > bedrockLevel) {
+            return new Chunk(BlockRegistry.BEDROCK);
+        }
+        Chunk chunk = new Chunk(BlockRegistry.AIR);
+        for (int lx = 0; lx < Chunk.SIZE; lx++) {
+            int x = left + lx;
+            int surface = surfaceAt(x);
+            for (int ly = 0; ly < Chunk.SIZE; ly++) {
+                chunk.set(lx, ly, blockAt(x, top + ly, surface));
+            }
+        }
+        return chunk;
+    }
+
+    public int surfaceAt(int x) {
+        double height = 0.0;
+        double amplitude = HILL_AMPLITUDE;
+        double period = HILL_PERIOD;
+        for (int octave = 0; octave < HILL_OCTAVES; octave++) {
+            height += amplitude * (valueNoise(x / period, SALT_HILLS + octave) * 2.0 - 1.0);
+            amplitude /= 2;
+            period /= 2;
+        }
+        return surfaceLevel - (int) Math.round(height);
+    }
+
+    private int blockAt(int x, int y, int surface) {
+        if (y > bedrockLevel || (y == bedrockLevel && (hash(x, SALT_BEDROCK) & 1) == 0)) {
+            return BlockRegistry.BEDROCK;
+        }
+        if (y < surface) {
+            if (y >= seaLevel) {
+                return BlockRegistry.WATER;
+            }
+            if (surface < seaLevel && y >= surface - treeHeight(x)) {
+                return BlockRegistry.WOOD;
+            }
+            return BlockRegistry.AIR;
+        }
+        if (y == surface) {
+            return surface < seaLevel ? BlockRegistry.GRASS : BlockRegistry.DIRT;
+        }
+        if (y <= surface + MIN_DIRT_DEPTH + (hash(x, SALT_DIRT) & 3)) {
+            return BlockRegistry.DIRT;
+        }
+        if (y >= surfaceLevel + LAVA_DEPTH && valueNoise2(x / (double) LAVA_PERIOD, y / (double) LAVA_PERIOD) > LAVA_THRESHOLD) {
+            return BlockRegistry.LAVA;
+        }
+        return BlockRegistry.STONE;
+    }
+
+    // 0 when the column has no tree
+    private int treeHeight(int x) {
+        long h = hash(x, SALT_TREES);
+        if (Long.remainderUnsigned(h, TREE_CHANCE) != 0) {
+            return 0;
+        }
+        return MIN_TREE_HEIGHT + (int) ((h >>> 32) % (MAX_TREE_HEIGHT - MIN_TREE_HEIGHT + 1));
+    }
+
+    private double valueNoise(double x, long salt) {
+        long x0 = (long) Math.floor(x);
+        double t = smooth(x - x0);
+        return lerp(unit(hash(x0, salt)), unit(hash(x0 + 1, salt)), t);
+    }
+
+    private double valueNoise2(double x, double y) {
+        long x0 = (long) Math.floor(x);
+        long y0 = (long) Math.floor(y);
+        double tx = smooth(x - x0);
+        double ty = smooth(y - y0);
+        long row0 = hash(y0, SALT_LAVA);
+        long row1 = hash(y0 + 1, SALT_LAVA);
+        double top = lerp(unit(hash(x0, row0)), unit(hash(x0 + 1, row0)), tx);
+        double bottom = lerp(unit(hash(x0, row1)), unit(hash(x0 + 1, row1)), tx);
+        return lerp(top, bottom, ty);
+    }
+
+    private long hash(long value, long salt) {
+        return mix(seed + mix(salt) + value * 0x9E3779B97F4A7C15L);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unit(long h) {
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private static double smooth(double t) {
+        return t * t * (3.0 - 2.0 * t);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
@@ -0,0 +1,31 @@
+package game;
+
+// A route of 4-connected steps, start and goal included
+public class Path {
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] chunkKeys;
+
+    public Path(int[] xs, int[] ys, long[] chunkKeys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.chunkKeys = chunkKeys;
+    }
+
+    public int length() {
+        return xs.length;
+    }
+
+    public int getX(int step) {
+        return xs[step];
+    }
+
+    public int getY(int step) {
+        return ys[step];
+    }
+
+    // Distinct chunks the route passes through
+    public long[] getChunkKeys() {
+        return chunkKeys;
+    }
+}
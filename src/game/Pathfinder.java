@@ -0,0 +1,434 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// A* over walkable cells. Walkability is kept as a 256-bit set per chunk, updated from block changes,
+// and each query copies the bits of its search window into a flat bitset before searching. Found
+// paths are cached; a walkability change drops only the cached paths crossing the changed chunk.
+// World calls blockChanged on its writing threads, so queries and updates share this object's lock.
+public final class Pathfinder implements BlockChangeListener {
+    public static final int DEFAULT_MARGIN = 16;
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    public static final int MAX_SEARCH_AREA = 1 << 22;
+    // chunks whose walkability is kept; enough for the largest search window
+    private static final int MAX_WALKABLE_CHUNKS = MAX_SEARCH_AREA / Chunk.CELLS;
+
+    private record PathKey(int fromX, int fromY, int toX, int toY) {
+    }
+
+    private final World world;
+    private final int margin;
+    private final int cacheSize;
+    // least recently used first; an evicted chunk is read from the world again when a search needs it
+    private final Map<Long, long[]> walkableBits = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > MAX_WALKABLE_CHUNKS;
+        }
+    };
+    private final Map<PathKey, Path> cache;
+    private final Map<Long, Set<PathKey>> pathsByChunk = new HashMap<>();
+
+    // search state, reused between queries and grown on demand
+    private long[] window = new long[0];
+    private int[] gScore = new int[0];
+    private int[] parent = new int[0];
+    private int[] seen = new int[0];
+    private int[] heapNodes = new int[64];
+    private int[] heapCosts = new int[64];
+    private int heapSize;
+    private int searchStamp;
+
+    private int lastNodesExpanded;
+    private long lastQueryNanos;
+    private long cacheHits;
+    private long cacheMisses;
+    private long invalidatedPaths;
+
+    public Pathfinder(World world) {
+        this(world, DEFAULT_MARGIN, DEFAULT_CACHE_SIZE);
+    }
+
+    public Pathfinder(World world, int margin, int cacheSize) {
+        this.world = world;
+        this.margin = margin;
+        this.cacheSize = cacheSize;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PathKey, Path> eldest) {
+                if (size() <= Pathfinder.this.cacheSize) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        world.addListener(this);
+    }
+
+    @Override
+    public synchronized void blockChanged(int x, int y, int oldId, int newId) {
+        boolean walkable = BlockRegistry.isWalkable(newId);
+        if (BlockRegistry.isWalkable(oldId) == walkable) {
+            return;
+        }
+        long chunkKey = World.chunkKey(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+        long[] bits = walkableBits.get(chunkKey);
+        if (bits != null) {
+            int index = ((y & Chunk.MASK) << Chunk.SHIFT) | (x & Chunk.MASK);
+            if (walkable) {
+                bits[index >> 6] |= 1L << index;
+            } else {
+                bits[index >> 6] &= ~(1L << index);
+            }
+        }
+        Set<PathKey> crossing = pathsByChunk.remove(chunkKey);
+        if (crossing != null) {
+            for (PathKey key : crossing) {
+                Path path = cache.remove(key);
+                if (path != null) {
+                    unindex(key, path);
+                    invalidatedPaths++;
+                }
+            }
+        }
+    }
+
+    private void unindex(PathKey key, Path path) {
+        for (long chunkKey : path.getChunkKeys()) {
+            Set<PathKey> crossing = pathsByChunk.get(chunkKey);
+            if (crossing != null) {
+                crossing.remove(key);
+                if (crossing.isEmpty()) {
+                    pathsByChunk.remove(chunkKey);
+                }
+            }
+        }
+    }
+
+    private long[] chunkBits(int chunkX, int chunkY) {
+        long key = World.chunkKey(chunkX, chunkY);
+        long[] bits = walkableBits.get(key);
+        if (bits == null) {
+            bits = new long[Chunk.CELLS / 64];
+            Chunk chunk = world.getChunk(chunkX, chunkY);
+            if (chunk.isUniform()) {
+                if (BlockRegistry.isWalkable(chunk.get(0, 0))) {
+                    Arrays.fill(bits, -1L);
+                }
+            } else {
+                for (int index = 0; index < Chunk.CELLS; index++) {
+                    if (BlockRegistry.isWalkable(chunk.get(index & Chunk.MASK, index >> Chunk.SHIFT))) {
+                        bits[index >> 6] |= 1L << index;
+                    }
+                }
+            }
+            walkableBits.put(key, bits);
+        }
+        return bits;
+    }
+
+    // Returns null when the goal cannot be reached inside the search window
+    public synchronized Path findPath(int fromX, int fromY, int toX, int toY) {
+        long start = System.nanoTime();
+        PathKey key = new PathKey(fromX, fromY, toX, toY);
+        Path path = cache.get(key);
+        if (path != null) {
+            cacheHits++;
+            lastNodesExpanded = 0;
+        } else {
+            cacheMisses++;
+            path = search(fromX, fromY, toX, toY);
+            if (path != null) {
+                cache.put(key, path);
+                for (long chunkKey : path.getChunkKeys()) {
+                    pathsByChunk.computeIfAbsent(chunkKey, k -> new HashSet<>()).add(key);
+                }
+            }
+        }
+        lastQueryNanos = System.nanoTime() - start;
+        return path;
+    }
+
+    private Path search(int fromX, int fromY, int toX, int toY) {
+        int left = Math.min(fromX, toX) - margin;
+        int top = Math.min(fromY, toY) - margin;
+        int width = Math.abs(toX - fromX) + 2 * margin + 1;
+        int height = Math.abs(toY - fromY) + 2 * margin + 1;
+        if ((long) width * height > MAX_SEARCH_AREA) {
+            lastNodesExpanded = 0;
+            return null;
+        }
+        int area = width * height;
+        loadWindow(left, top, width, height);
+
+        int startNode = (fromY - top) * width + (fromX - left);
+        int goalNode = (toY - top) * width + (toX - left);
+        if (!isOpen(startNode) || !isOpen(goalNode)) {
+            lastNodesExpanded = 0;
+            return null;
+        }
+        if (gScore.length < area) {
+            gScore = new int[area];
+            parent = new int[area];
+            seen = new int[area];
+        }
+        // stamps tell fresh and stale entries apart, so the arrays are never cleared; odd = open, even = closed
+        searchStamp += 2;
+        if (searchStamp < 0) {
+            Arrays.fill(seen, 0);
+            searchStamp = 2;
+        }
+        int open = searchStamp - 1;
+        int closed = searchStamp;
+
+        heapSize = 0;
+        gScore[startNode] = 0;
+        parent[startNode] = -1;
+        seen[startNode] = open;
+        push(startNode, heuristic(startNode, goalNode, width));
+        int expanded = 0;
+        while (heapSize > 0) {
+            int node = pop();
+            if (seen[node] == closed) {
+                continue;
+            }
+            seen[node] = closed;
+            expanded++;
+            if (node == goalNode) {
+                lastNodesExpanded = expanded;
+                return buildPath(goalNode, left, top, width);
+            }
+            int x = node % width;
+            int y = node / width;
+            int g = gScore[node] + 1;
+            if (x > 0) {
+                relax(node, node - 1, g, goalNode, width, open, closed);
+            }
+            if (x < width - 1) {
+                relax(node, node + 1, g, goalNode, width, open, closed);
+            }
+            if (y > 0) {
+                relax(node, node - width, g, goalNode, width, open, closed);
+            }
+            if (y < height - 1) {
+                relax(node, node + width, g, goalNode, width, open, closed);
+            }
+        }
+        lastNodesExpanded = expanded;
+        return null;
+    }
+
+    private void relax(int from, int to, int g, int goal, int width, int open, int closed) {
+        if (!isOpen(to) || seen[to] == closed || (seen[to] == open && gScore[to] <= g)) {
+            return;
+        }
+        seen[to] = open;
+        gScore[to] = g;
+        parent[to] = from;
+        push(to, g + heuristic(to, goal, width));
+    }
+
+    private static int heuristic(int node, int goal, int width) {
+        return Math.abs(node % width - goal % width) + Math.abs(node / width - goal / width);
+    }
+
+    private boolean isOpen(int node) {
+        return (window[node >> 6] & (1L << node)) != 0;
+    }
+
+    private void loadWindow(int left, int top, int width, int height) {
+        int words = (width * height + 63) >> 6;
+        if (window.length < words) {
+            window = new long[words];
+        } else {
+            Arrays.fill(window, 0, words, 0L);
+        }
+        for (int chunkY = top >> Chunk.SHIFT; chunkY <= (top + height - 1) >> Chunk.SHIFT; chunkY++) {
+            for (int chunkX = left >> Chunk.SHIFT; chunkX <= (left + width - 1) >> Chunk.SHIFT; chunkX++) {
+                long[] bits = chunkBits(chunkX, chunkY);
+                int chunkLeft = chunkX << Chunk.SHIFT;
+                int chunkTop = chunkY << Chunk.SHIFT;
+                int fromX = Math.max(left, chunkLeft);
+                int toX = Math.min(left + width, chunkLeft + Chunk.SIZE);
+                int fromY = Math.max(top, chunkTop);
+                int toY = Math.min(top + height, chunkTop + Chunk.SIZE);
+                int rowMask = ((1 << (toX - fromX)) - 1) << (fromX - chunkLeft);
+                for (int y = fromY; y < toY; y++) {
+                    int ly = y - chunkTop;
+                    long rowBits = ((bits[ly >> 2] >>> ((ly & 3) << 4)) & rowMask) >>> (fromX - chunkLeft);
+                    if (rowBits == 0) {
+                        continue;
+                    }
+                    // at most 16 bits, so they span at most two words of the window
+                    int node = (y - top) * width + (fromX - left);
+                    int offset = node & 63;
+                    window[node >> 6] |= rowBits << offset;
+                    if (offset > 48) {
+                        window[(node >> 6) + 1] |= rowBits >>> (64 - offset);
+                    }
+                }
+            }
+        }
+    }
+
+    private Path buildPath(int goalNode, int left, int top, int width) {
+        int length = gScore[goalNode] + 1;
+        int[] xs = new int[length];
+        int[] ys = new int[length];
+        Set<Long> chunks = new HashSet<>();
+        int node = goalNode;
+        for (int step = length - 1; step >= 0; step--) {
+            xs[step] = left + node % width;
+            ys[step] = top + node / width;
+            chunks.add(World.chunkKey(xs[step] >> Chunk.SHIFT, ys[step] >> Chunk.SHIFT));
+            node = parent[node];
+        }
+        long[] chunkKeys = new long[chunks.size()];
+        int i = 0;
+        for (long chunkKey : chunks) {
+            chunkKeys[i++] = chunkKey;
+        }
+        return new Path(xs, ys, chunkKeys);
+    }
+
+    private void push(int node, int cost) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            if (heapCosts[up] <= cost) {
+                break;
+            }
+            heapNodes[i] = heapNodes[up];
+            heapCosts[i] = heapCosts[up];
+            i = up;
+        }
+        heapNodes[i] = node;
+        heapCosts[i] = cost;
+    }
+
+    private int pop() {
+        int top = heapNodes[0];
+        int lastNode = heapNodes[--heapSize];
+        int lastCost = heapCosts[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child]) {
+                child++;
+            }
+            if (heapCosts[child] >= lastCost) {
+                break;
+            }
+            heapNodes[i] = heapNodes[child];
+            heapCosts[i] = heapCosts[child];
+            i = child;
+        }
+        heapNodes[i] = lastNode;
+        heapCosts[i] = lastCost;
+        return top;
+    }
+
+    // Reference implementation: same search over a HashMap, asking each Block whether it is walkable
+    public synchronized Path findPathNaive(int fromX, int fromY, int toX, int toY) {
+        long start = System.nanoTime();
+        int minX = Math.min(fromX, toX) - margin;
+        int maxX = Math.max(fromX, toX) + margin;
+        int minY = Math.min(fromY, toY) - margin;
+        int maxY = Math.max(fromY, toY) + margin;
+        Map<Long, Integer> g = new HashMap<>();
+        Map<Long, Long> cameFrom = new HashMap<>();
+        Set<Long> closedSet = new HashSet<>();
+        PriorityQueue<long[]> openQueue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        // cells are packed into longs the same way chunk coordinates are
+        long startKey = World.chunkKey(fromX, fromY);
+        long goalKey = World.chunkKey(toX, toY);
+        Path path = null;
+        int expanded = 0;
+        if (world.getBlockForPosition(fromX, fromY).isWalkable() && world.getBlockForPosition(toX, toY).isWalkable()) {
+            g.put(startKey, 0);
+            openQueue.add(new long[] {Math.abs(toX - fromX) + Math.abs(toY - fromY), startKey});
+            int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+            while (!openQueue.isEmpty()) {
+                long current = openQueue.poll()[1];
+                if (!closedSet.add(current)) {
+                    continue;
+                }
+                expanded++;
+                if (current == goalKey) {
+                    List<Long> steps = new ArrayList<>();
+                    for (Long step = current; step != null; step = cameFrom.get(step)) {
+                        steps.add(0, step);
+                    }
+                    int[] xs = new int[steps.size()];
+                    int[] ys = new int[steps.size()];
+                    for (int i = 0; i < xs.length; i++) {
+                        xs[i] = (int) (steps.get(i) >> 32);
+                        ys[i] = (int) (long) steps.get(i);
+                    }
+                    path = new Path(xs, ys, new long[0]);
+                    break;
+                }
+                int x = (int) (current >> 32);
+                int y = (int) current;
+                for (int[] d : directions) {
+                    int nx = x + d[0];
+                    int ny = y + d[1];
+                    if (nx < minX || nx > maxX || ny < minY || ny > maxY || !world.getBlockForPosition(nx, ny).isWalkable()) {
+                        continue;
+                    }
+                    long next = World.chunkKey(nx, ny);
+                    int tentative = g.get(current) + 1;
+                    Integer known = g.get(next);
+                    if (known == null || tentative < known) {
+                        g.put(next, tentative);
+                        cameFrom.put(next, current);
+                        openQueue.add(new long[] {tentative + Math.abs(toX - nx) + Math.abs(toY - ny), next});
+                    }
+                }
+            }
+        }
+        lastNodesExpanded = expanded;
+        lastQueryNanos = System.nanoTime() - start;
+        return path;
+    }
+
+    public synchronized int getLastNodesExpanded() {
+        return lastNodesExpanded;
+    }
+
+    public synchronized long getLastQueryNanos() {
+        return lastQueryNanos;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public synchronized long getInvalidatedPaths() {
+        return invalidatedPaths;
+    }
+
+    public int getCachedPathCount() {
+        return cache.size();
+    }
+}
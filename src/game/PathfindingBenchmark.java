@@ -0,0 +1,66 @@
+package game;
+
+import java.util.Random;
+
+// Compares the bitset A* against the naive Block-based search on random routes, then measures cached repeats
+public class PathfindingBenchmark {
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int span = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 7L;
+        World world = new World(span, span, new NoiseTerrainGenerator(seed, span / 2, span - 4),
+                World.DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+        Pathfinder pathfinder = new Pathfinder(world, Pathfinder.DEFAULT_MARGIN, queries);
+        Random random = new Random(seed);
+
+        int[][] routes = new int[queries][];
+        for (int i = 0; i < queries; i++) {
+            routes[i] = new int[] {random.nextInt(span), 0, random.nextInt(span), 0};
+            routes[i][1] = surfaceAir(world, routes[i][0], span);
+            routes[i][3] = surfaceAir(world, routes[i][2], span);
+        }
+
+        long fastNanos = 0;
+        long fastExpanded = 0;
+        long naiveNanos = 0;
+        long naiveExpanded = 0;
+        int found = 0;
+        for (int[] r : routes) {
+            Path fast = pathfinder.findPath(r[0], r[1], r[2], r[3]);
+            fastNanos += pathfinder.getLastQueryNanos();
+            fastExpanded += pathfinder.getLastNodesExpanded();
+            Path naive = pathfinder.findPathNaive(r[0], r[1], r[2], r[3]);
+            naiveNanos += pathfinder.getLastQueryNanos();
+            naiveExpanded += pathfinder.getLastNodesExpanded();
+            if ((fast == null) != (naive == null) || (fast != null && fast.length() != naive.length())) {
+                System.out.println("Route mismatch for " + r[0] + "," + r[1] + " -> " + r[2] + "," + r[3]);
+                System.exit(1);
+            }
+            if (fast != null) {
+                found++;
+            }
+        }
+        long cachedNanos = 0;
+        for (int round = 0; round < 10; round++) {
+            cachedNanos = 0;
+            for (int[] r : routes) {
+                pathfinder.findPath(r[0], r[1], r[2], r[3]);
+                cachedNanos += pathfinder.getLastQueryNanos();
+            }
+        }
+
+        System.out.println("Queries: " + queries + " (" + found + " reachable), span " + span);
+        System.out.printf("Bitset A*: %8.1f us/query, %8.1f nodes/query%n", fastNanos / 1e3 / queries, fastExpanded / (double) queries);
+        System.out.printf("Naive A*:  %8.1f us/query, %8.1f nodes/query%n", naiveNanos / 1e3 / queries, naiveExpanded / (double) queries);
+        System.out.printf("Cached:    %8.1f us/query, hits %d%n", cachedNanos / 1e3 / queries, pathfinder.getCacheHits());
+    }
+
+    // First air cell above the surface of column x
+    private static int surfaceAir(World world, int x, int span) {
+        int y = 0;
+        while (y < span && world.isWalkable(x, y + 1)) {
+            y++;
+        }
+        return y;
+    }
+}
@@ -0,0 +1,90 @@
+package game;
+
+// A player is moved by one thread at a time; its position may be read from others (e.g. a server tick)
+public class Player {
+    private volatile int x;
+    private volatile int y;
+    private boolean verbose = true;
+
+    public Player(int startX, int startY) {
+        this.x = startX;
+        this.y = startY;
+    }
+
+    // Standing on the surface of column x, so a player never starts inside a block
+    public static Player spawnAt(World world, int x) {
+        return new Player(x, world.getSurfaceY(x) - 1);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    // When false, actions report only through their return values
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // Returns true when a block was broken
+    public boolean BreakBlock(World world) {
+        return breakAt(x, y, world);
+    }
+
+    // Breaks the neighbouring block in a W/A/S/D direction, e.g. 'S' digs down
+    public boolean BreakBlock(char direction, World world) {
+        return breakAt(x + stepX(direction), y + stepY(direction), world);
+    }
+
+    private boolean breakAt(int targetX, int targetY, World world) {
+        int id = world.getBlockId(targetX, targetY);
+        Block block = BlockRegistry.get(id);
+        if (!block.isBreakable()) {
+            if (verbose) {
+                System.out.println(block.getName() + " block cannot be broken.");
+            }
+            return false;
+        }
+        // another player may have changed the cell since it was read
+        if (!world.compareAndSetBlockId(targetX, targetY, id, BlockRegistry.AIR)) {
+            if (verbose) {
+                System.out.println("The block changed before it could be broken.");
+            }
+            return false;
+        }
+        if (verbose) {
+            System.out.println("Broke " + block.getName() + " block.");
+        }
+        return true;
+    }
+
+    // Returns true when the player moved
+    public boolean move(char direction, World world) {
+        int newX = x + stepX(direction);
+        int newY = y + stepY(direction);
+        Block target = world.getBlockForPosition(newX, newY);
+        if (target != null && target.isWalkable()) {
+            x = newX;
+            y = newY;
+            if (verbose) {
+                System.out.println("Moved to (" + x + ", " + y + ")");
+            }
+            return true;
+        }
+        if (verbose) {
+            System.out.println("Cannot move to (" + newX + ", " + newY + ")");
+        }
+        return false;
+    }
+
+    private static int stepX(char direction) {
+        return direction == 'A' ? -1 : direction == 'D' ? 1 : 0;
+    }
+
+    private static int stepY(char direction) {
+        return direction == 'W' ? -1 : direction == 'S' ? 1 : 0;
+    }
+}
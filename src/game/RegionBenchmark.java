@@ -0,0 +1,70 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Saves a size x size world with one edited cell per chunk and times reloading it; RegionFileTest checks
+// the round trip
+public class RegionBenchmark {
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        boolean keepFiles = args.length > 1;
+        Path directory = keepFiles ? Paths.get(args[1]) : Files.createTempDirectory("regions");
+        int chunks = (size + Chunk.MASK) >> Chunk.SHIFT;
+
+        long start = System.nanoTime();
+        long bytesOnDisk;
+        try (RegionChunkStore store = new RegionChunkStore(directory)) {
+            World world = new World(size, size, World.DEFAULT_MAX_LOADED_CHUNKS, store);
+            for (int cy = 0; cy < chunks; cy++) {
+                for (int cx = 0; cx < chunks; cx++) {
+                    world.setBlockId(editedX(cx, cy), editedY(cx, cy), editedId(cx, cy));
+                }
+            }
+            world.save();
+            bytesOnDisk = store.sizeOnDisk();
+        }
+        long saveNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long loads;
+        try (RegionChunkStore store = new RegionChunkStore(directory)) {
+            World world = new World(size, size, World.DEFAULT_MAX_LOADED_CHUNKS, store);
+            for (int cy = 0; cy < chunks; cy++) {
+                for (int cx = 0; cx < chunks; cx++) {
+                    world.getBlockId(cx << Chunk.SHIFT, cy << Chunk.SHIFT);
+                }
+            }
+            loads = world.getChunkLoads();
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        System.out.println("World:        " + size + " x " + size + " (" + (long) chunks * chunks + " chunks)");
+        System.out.println("On disk:      " + bytesOnDisk / 1024 + " KiB");
+        System.out.printf("Save:         %.1f ms%n", saveNanos / 1e6);
+        System.out.printf("Load:         %.1f ms, %.0f chunks/s, %.1f MiB/s%n", loadNanos / 1e6,
+                loads / (loadNanos / 1e9), bytesOnDisk / (1024.0 * 1024.0) / (loadNanos / 1e9));
+
+        if (!keepFiles) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static int editedX(int cx, int cy) {
+        return (cx << Chunk.SHIFT) | ((cx * 7 + cy * 3) & Chunk.MASK);
+    }
+
+    private static int editedY(int cx, int cy) {
+        return (cy << Chunk.SHIFT) | ((cx * 5 + cy * 11) & Chunk.MASK);
+    }
+
+    private static int editedId(int cx, int cy) {
+        return (cx + cy) % BlockRegistry.size();
+    }
+}
@@ -0,0 +1,101 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class RegionChunkStore implements ChunkStore, Closeable {
+    private static final int MAX_OPEN_REGIONS = 64;
+
+    private final Path directory;
+    private final Map<Long, RegionFile> regions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RegionFile> eldest) {
+            if (size() <= MAX_OPEN_REGIONS) {
+                return false;
+            }
+            try {
+                eldest.getValue().close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    };
+
+    public RegionChunkStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    private RegionFile region(int chunkX, int chunkY, boolean create) throws IOException {
+        int regionX = chunkX >> RegionFile.SHIFT;
+        int regionY = chunkY >> RegionFile.SHIFT;
+        long key = World.chunkKey(regionX, regionY);
+        RegionFile region = regions.get(key);
+        if (region == null) {
+            Path path = directory.resolve("r." + regionX + "." + regionY + ".region");
+            if (!create && !Files.exists(path)) {
+                return null;
+            }
+            region = new RegionFile(path);
+            regions.put(key, region);
+        }
+        return region;
+    }
+
+    @Override
+    public Chunk load(int chunkX, int chunkY) {
+        try {
+            RegionFile region = region(chunkX, chunkY, false);
+            return region == null ? null : region.read(chunkX & RegionFile.MASK, chunkY & RegionFile.MASK);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void save(int chunkX, int chunkY, Chunk chunk) {
+        try {
+            region(chunkX, chunkY, true).write(chunkX & RegionFile.MASK, chunkY & RegionFile.MASK, chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            for (RegionFile region : regions.values()) {
+                region.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long sizeOnDisk() throws IOException {
+        flush();
+        try (Stream<Path> files = Files.list(directory)) {
+            long total = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".region")) {
+                    total += Files.size(file);
+                }
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (RegionFile region : regions.values()) {
+            region.close();
+        }
+        regions.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One file holding REGION_SIZE x REGION_SIZE chunks behind an offset table
+public class RegionFile implements Closeable {
+    public static final int SHIFT = 5;
+    public static final int REGION_SIZE = 1 << SHIFT;
+    public static final int MASK = REGION_SIZE - 1;
+
+    private static final int MAGIC = 0x52474E31; // "RGN1"
+    private static final int ENTRIES = REGION_SIZE * REGION_SIZE;
+    // magic, then (offset, length) per chunk
+    private static final int HEADER_BYTES = 4 + ENTRIES * 8;
+    private static final int SLOT_ALIGN = 64;
+
+    private static final byte ENCODING_RAW = 0;
+    private static final byte ENCODING_DEFLATE = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer data;
+    private long fileEnd;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer raw = ByteBuffer.allocate(1 + Chunk.CELLS + BlockRegistry.size());
+    private ByteBuffer packed = ByteBuffer.allocate(64 + 2 * raw.capacity());
+
+    public RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (created) {
+            header.putInt(0, MAGIC);
+        } else if (header.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Not a region file: " + path);
+        }
+        fileEnd = align(Math.max(channel.size(), HEADER_BYTES));
+    }
+
+    private static int entry(int localX, int localY) {
+        return 4 + ((localY << SHIFT) | localX) * 8;
+    }
+
+    public boolean contains(int localX, int localY) {
+        return header.getInt(entry(localX, localY) + 4) > 0;
+    }
+
+    // Returns null if the chunk was never written
+    public Chunk read(int localX, int localY) throws IOException {
+        int offset = header.getInt(entry(localX, localY));
+        int length = header.getInt(entry(localX, localY) + 4);
+        if (length == 0) {
+            return null;
+        }
+        if (data == null || data.capacity() < offset + length) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer slice = data.slice(offset + 1, length - 1);
+        if (data.get(offset) == ENCODING_RAW) {
+            return Chunk.readFrom(slice);
+        }
+        inflater.reset();
+        inflater.setInput(slice);
+        raw.clear();
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(raw) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated chunk data at offset " + offset);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk data at offset " + offset, e);
+        }
+        raw.flip();
+        return Chunk.readFrom(raw);
+    }
+
+    public void write(int localX, int localY, Chunk chunk) throws IOException {
+        raw.clear();
+        chunk.writeTo(raw);
+        raw.flip();
+        packed.clear();
+        if (chunk.isUniform()) {
+            packed.put(ENCODING_RAW).put(raw);
+        } else {
+            packed.put(ENCODING_DEFLATE);
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!packed.hasRemaining()) {
+                    packed = ByteBuffer.allocate(packed.capacity() * 2).put(packed.flip());
+                }
+                deflater.deflate(packed);
+            }
+        }
+        packed.flip();
+
+        int length = packed.remaining();
+        int slot = entry(localX, localY);
+        int offset = header.getInt(slot);
+        int oldLength = header.getInt(slot + 4);
+        // reuse the old slot if the new payload still fits its aligned size
+        if (oldLength == 0 || align(length) > align(oldLength)) {
+            offset = (int) fileEnd;
+            fileEnd += align(length);
+        }
+        while (packed.hasRemaining()) {
+            channel.write(packed, offset + packed.position());
+        }
+        header.putInt(slot, offset);
+        header.putInt(slot + 4, length);
+    }
+
+    private static long align(long length) {
+        return (length + SLOT_ALIGN - 1) & -SLOT_ALIGN;
+    }
+
+    public void flush() throws IOException {
+        header.force();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        deflater.end();
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,218 @@
+package game;
+
+// Aggregate queries over World regions. Chunks lying wholly inside a region are answered from their
+// per-type counts and type masks; only the cells of edge chunks are scanned. Regions are inclusive
+// corner pairs in any order. Results are not atomic with respect to concurrent writers.
+public class RegionQuery {
+    private final World world;
+
+    public record Hit(int x, int y, int blockId) {
+    }
+
+    public RegionQuery(World world) {
+        this.world = world;
+    }
+
+    public long count(int x1, int y1, int x2, int y2, int blockId) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        long total = 0;
+        for (int chunkY = minY >> Chunk.SHIFT; chunkY <= maxY >> Chunk.SHIFT; chunkY++) {
+            for (int chunkX = minX >> Chunk.SHIFT; chunkX <= maxX >> Chunk.SHIFT; chunkX++) {
+                Chunk chunk = world.getChunk(chunkX, chunkY);
+                if (!chunk.contains(blockId)) {
+                    continue;
+                }
+                int left = Math.max(minX, chunkX << Chunk.SHIFT);
+                int right = Math.min(maxX, (chunkX << Chunk.SHIFT) + Chunk.MASK);
+                int top = Math.max(minY, chunkY << Chunk.SHIFT);
+                int bottom = Math.min(maxY, (chunkY << Chunk.SHIFT) + Chunk.MASK);
+                if (right - left == Chunk.MASK && bottom - top == Chunk.MASK) {
+                    total += chunk.count(blockId);
+                    continue;
+                }
+                for (int y = top; y <= bottom; y++) {
+                    for (int x = left; x <= right; x++) {
+                        if (chunk.get(x & Chunk.MASK, y & Chunk.MASK) == blockId) {
+                            total++;
+                        }
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    // Counts per block id, indexed like BlockRegistry
+    public long[] countAll(int x1, int y1, int x2, int y2) {
+        long[] counts = new long[BlockRegistry.size()];
+        for (int id = 0; id < counts.length; id++) {
+            counts[id] = count(x1, y1, x2, y2, id);
+        }
+        return counts;
+    }
+
+    public boolean isAll(int x1, int y1, int x2, int y2, int blockId) {
+        return !containsOther(x1, y1, x2, y2, ~BlockRegistry.mask(blockId));
+    }
+
+    // True if any cell in the region holds a block id from the BlockRegistry mask
+    public boolean containsAny(int x1, int y1, int x2, int y2, int mask) {
+        return containsOther(x1, y1, x2, y2, mask);
+    }
+
+    private boolean containsOther(int x1, int y1, int x2, int y2, int mask) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        for (int chunkY = minY >> Chunk.SHIFT; chunkY <= maxY >> Chunk.SHIFT; chunkY++) {
+            for (int chunkX = minX >> Chunk.SHIFT; chunkX <= maxX >> Chunk.SHIFT; chunkX++) {
+                Chunk chunk = world.getChunk(chunkX, chunkY);
+                if (!chunk.containsAny(mask)) {
+                    continue;
+                }
+                int left = Math.max(minX, chunkX << Chunk.SHIFT);
+                int right = Math.min(maxX, (chunkX << Chunk.SHIFT) + Chunk.MASK);
+                int top = Math.max(minY, chunkY << Chunk.SHIFT);
+                int bottom = Math.min(maxY, (chunkY << Chunk.SHIFT) + Chunk.MASK);
+                if (right - left == Chunk.MASK && bottom - top == Chunk.MASK) {
+                    return true;
+                }
+                for (int y = top; y <= bottom; y++) {
+                    for (int x = left; x <= right; x++) {
+                        if ((mask & BlockRegistry.mask(chunk.get(x & Chunk.MASK, y & Chunk.MASK))) != 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // First non-walkable cell on the line from (x0, y0) to (x1, y1), or null
+    public Hit raycastSolid(int x0, int y0, int x1, int y1) {
+        return raycast(x0, y0, x1, y1, BlockRegistry.SOLID_MASK);
+    }
+
+    // First cell on the line from (x0, y0) to (x1, y1), both included, whose block id is in the mask, or
+    // null. The line visits every cell the segment between the two cell centres passes through, and
+    // chunks without any masked block are crossed in one step.
+    public Hit raycast(int x0, int y0, int x1, int y1, int mask) {
+        // Integer DDA: the i-th x boundary is crossed at t = (2i + 1) / 2dx and the j-th y boundary at
+        // (2j + 1) / 2dy, so comparing (2i + 1) * dy with (2j + 1) * dx orders the steps exactly
+        long dx = Math.abs((long) x1 - x0);
+        long dy = Math.abs((long) y1 - y0);
+        int stepX = x1 > x0 ? 1 : -1;
+        int stepY = y1 > y0 ? 1 : -1;
+        long i = 0;
+        long j = 0;
+        while (true) {
+            int x = (int) (x0 + stepX * i);
+            int y = (int) (y0 + stepY * j);
+            Chunk chunk = world.getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+            if (!chunk.containsAny(mask)) {
+                // steps left before the line leaves this chunk on each axis
+                long exitI = i + (stepX > 0 ? Chunk.SIZE - (x & Chunk.MASK) : (x & Chunk.MASK) + 1) - 1;
+                long exitJ = j + (stepY > 0 ? Chunk.SIZE - (y & Chunk.MASK) : (y & Chunk.MASK) + 1) - 1;
+                boolean xExits = exitI < dx;
+                boolean yExits = exitJ < dy;
+                if (!xExits && !yExits) {
+                    return null;
+                }
+                if (xExits && (!yExits || xFirst(exitI, exitJ, dx, dy))) {
+                    // the y steps taken before the x step at exitI, ties going to y as in the step rule
+                    long before = dy == 0 ? 0 : ((2 * exitI + 1) * dy + dx) / (2 * dx);
+                    j = Math.max(j, Math.min(before, dy));
+                    i = exitI + 1;
+                } else {
+                    long before = dx == 0 ? 0 : ((2 * exitJ + 1) * dx + dy - 1) / (2 * dy);
+                    i = Math.max(i, Math.min(before, dx));
+                    j = exitJ + 1;
+                }
+                continue;
+            }
+            int id = chunk.get(x & Chunk.MASK, y & Chunk.MASK);
+            if ((mask & BlockRegistry.mask(id)) != 0) {
+                return new Hit(x, y, id);
+            }
+            if (i == dx && j == dy) {
+                return null;
+            }
+            if (j == dy || (i < dx && xFirst(i, j, dx, dy))) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static boolean xFirst(long i, long j, long dx, long dy) {
+        return (2 * i + 1) * dy < (2 * j + 1) * dx;
+    }
+
+    // Closest cell holding blockId by Euclidean distance within maxRadius cells, or null. Chunks are
+    // visited in rings around the origin and skipped unless they contain the type and could beat the
+    // best distance so far.
+    public Hit nearest(int x, int y, int blockId, int maxRadius) {
+        int originChunkX = x >> Chunk.SHIFT;
+        int originChunkY = y >> Chunk.SHIFT;
+        long maxDistance = (long) maxRadius * maxRadius;
+        long best = Long.MAX_VALUE;
+        int bestX = 0;
+        int bestY = 0;
+        int maxRing = (maxRadius >> Chunk.SHIFT) + 1;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every chunk in this ring is at least this far away on one axis
+            long ringGap = Math.max(0, (long) (ring - 1) * Chunk.SIZE + 1);
+            if (ring > 0 && ringGap * ringGap > Math.min(best, maxDistance)) {
+                break;
+            }
+            for (int chunkY = originChunkY - ring; chunkY <= originChunkY + ring; chunkY++) {
+                boolean edgeRow = chunkY == originChunkY - ring || chunkY == originChunkY + ring;
+                for (int chunkX = originChunkX - ring; chunkX <= originChunkX + ring;
+                     chunkX += edgeRow ? 1 : 2 * ring) {
+                    long gapX = axisGap(x, chunkX << Chunk.SHIFT);
+                    long gapY = axisGap(y, chunkY << Chunk.SHIFT);
+                    long lowerBound = gapX * gapX + gapY * gapY;
+                    if (lowerBound > Math.min(best, maxDistance)) {
+                        continue;
+                    }
+                    Chunk chunk = world.getChunk(chunkX, chunkY);
+                    if (!chunk.contains(blockId)) {
+                        continue;
+                    }
+                    int left = chunkX << Chunk.SHIFT;
+                    int top = chunkY << Chunk.SHIFT;
+                    for (int ly = 0; ly < Chunk.SIZE; ly++) {
+                        for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                            if (chunk.get(lx, ly) != blockId) {
+                                continue;
+                            }
+                            long ddx = left + lx - (long) x;
+                            long ddy = top + ly - (long) y;
+                            long distance = ddx * ddx + ddy * ddy;
+                            if (distance < best || (distance == best && (top + ly < bestY || (top + ly == bestY && left + lx < bestX)))) {
+                                best = distance;
+                                bestX = left + lx;
+                                bestY = top + ly;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best <= maxDistance ? new Hit(bestX, bestY, blockId) : null;
+    }
+
+    // Distance along one axis from coordinate to the chunk starting at start
+    private static long axisGap(int coordinate, int start) {
+        if (coordinate < start) {
+            return (long) start - coordinate;
+        }
+        return Math.max(0, (long) coordinate - (start + Chunk.MASK));
+    }
+}
@@ -0,0 +1,140 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Starts a GameServer on a free localhost port and drives it with simulated players, each on its own
+// virtual thread, sending a random mix of moves and digs and timing the reply to every command.
+// Usage: ServerLoadTest [clients] [seconds] [thinkMillis]
+public class ServerLoadTest {
+    private static final long SEED = 42L;
+    private static final int WORLD_WIDTH = 1024;
+    private static final int WORLD_HEIGHT = 128;
+    private static final String[] COMMANDS = {"W", "A", "S", "D", "A", "D", "BS", "BA", "BD", "B"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int thinkMillis = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        TerrainGenerator generator = new NoiseTerrainGenerator(SEED, WORLD_HEIGHT / 2, WORLD_HEIGHT - 4);
+        World world = new World(WORLD_WIDTH, WORLD_HEIGHT, generator, World.DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+        world.pregenerate(0, 0, WORLD_WIDTH >> Chunk.SHIFT, WORLD_HEIGHT >> Chunk.SHIFT, ForkJoinPool.commonPool());
+
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong broadcastBytes = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(clients);
+
+        try (GameServer server = new GameServer(world, 0)) {
+            long finish;
+            long start;
+            try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+                long[] startAt = new long[1];
+                CountDownLatch go = new CountDownLatch(1);
+                for (int i = 0; i < clients; i++) {
+                    int client = i;
+                    players.submit(() -> {
+                        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+                            socket.setTcpNoDelay(true);
+                            connected.countDown();
+                            go.await();
+                            play(socket, client, startAt[0], seconds, thinkMillis, latencies, counts, broadcastBytes);
+                        } catch (IOException | UncheckedIOException e) {
+                            failures.incrementAndGet();
+                            connected.countDown();
+                        }
+                        return null;
+                    });
+                }
+                connected.await();
+                start = System.nanoTime();
+                startAt[0] = start;
+                go.countDown();
+            }
+            finish = System.nanoTime();
+
+            long total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            long[] all = new long[(int) total];
+            int at = 0;
+            for (int i = 0; i < clients; i++) {
+                if (latencies[i] != null) {
+                    System.arraycopy(latencies[i], 0, all, at, counts[i]);
+                    at += counts[i];
+                }
+            }
+            Arrays.sort(all);
+            double elapsed = (finish - start) / 1e9;
+            System.out.printf("clients: %d (%d failed), %.1f s, think %d ms%n", clients, failures.get(), elapsed, thinkMillis);
+            System.out.printf("commands: %d, %.0f/s; reply latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    total, total / elapsed, percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6,
+                    all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+            System.out.printf("ticks: %d, broadcast sent %.1f MB, received %.1f MB, dropped sessions %d%n",
+                    server.getTick(), server.getBroadcastBytes() / 1e6, broadcastBytes.get() / 1e6, server.getDroppedSessions());
+            System.out.printf("chunks loaded: %d, evicted: %d%n", world.getChunkLoads(), world.getChunkEvictions());
+        }
+    }
+
+    private static void play(Socket socket, int client, long start, int seconds, int thinkMillis,
+                             long[][] latencies, int[] counts, AtomicLong broadcastBytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED + client);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        OutputStream out = socket.getOutputStream();
+        long[] samples = new long[256];
+        int count = 0;
+        long received = 0;
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            byte[] command = (COMMANDS[random.nextInt(COMMANDS.length)] + '\n').getBytes(StandardCharsets.US_ASCII);
+            long sent = System.nanoTime();
+            out.write(command);
+            out.flush();
+            // tick batches arrive interleaved with replies
+            String line;
+            while ((line = in.readLine()) != null && (line.isEmpty() || line.charAt(0) != 'R')) {
+                received += line.length() + 1;
+            }
+            if (line == null) {
+                break;
+            }
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = System.nanoTime() - sent;
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(random.nextInt(thinkMillis * 2 + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        out.write("Q\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        latencies[client] = samples;
+        counts[client] = count;
+        broadcastBytes.addAndGet(received);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
@@ -0,0 +1,324 @@
+package game;
+
+import java.util.Arrays;
+
+// Uniform-grid broadphase over integer ids (Entities slots, player ids) at integer cells. Cells are
+// grouped into square buckets of 2^bucketShift cells on a side; each bucket keeps an unordered id list,
+// and every id remembers its bucket and slot, so a move that stays inside a bucket only rewrites the
+// position and one that crosses into another is two O(1) list edits. Queries visit only the buckets
+// overlapping the query area. A bucket is freed when its last id leaves, and its index and list are
+// reused by the next new bucket, so the table tracks the occupied area rather than every bucket ever
+// visited, and nothing allocates once the arrays have grown to the working set.
+// Not thread-safe.
+public final class SpatialHash {
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+    private static final int INITIAL_IDS = 64;
+    private static final int INITIAL_MEMBERS = 4;
+
+    private final int bucketShift;
+
+    // per id
+    private int[] cellX = new int[INITIAL_IDS];
+    private int[] cellY = new int[INITIAL_IDS];
+    private int[] bucketOf = new int[INITIAL_IDS];
+    private int[] slotOf = new int[INITIAL_IDS];
+    private int count;
+
+    // bucket key -> bucket index, open addressing with linear probing and backward-shift deletion
+    private long[] tableKeys;
+    private int[] tableBuckets;
+    private int liveBuckets;
+    // per bucket index; indices of freed buckets wait in freeBuckets
+    private int bucketCount;
+    private int[][] members = new int[16][];
+    private int[] memberCounts = new int[16];
+    private long[] bucketKeys = new long[16];
+    private int[] freeBuckets = new int[16];
+    private int freeCount;
+
+    public SpatialHash(int bucketShift) {
+        if (bucketShift < 0 || bucketShift > 16) {
+            throw new IllegalArgumentException("bucketShift must be in [0, 16]: " + bucketShift);
+        }
+        this.bucketShift = bucketShift;
+        tableKeys = new long[64];
+        tableBuckets = new int[64];
+        Arrays.fill(tableKeys, NO_BUCKET);
+        Arrays.fill(bucketOf, -1);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < bucketOf.length && bucketOf[id] >= 0;
+    }
+
+    public int getX(int id) {
+        return cellX[id];
+    }
+
+    public int getY(int id) {
+        return cellY[id];
+    }
+
+    public void insert(int id, int x, int y) {
+        if (id < 0) {
+            throw new IllegalArgumentException("negative id " + id);
+        }
+        if (id >= bucketOf.length) {
+            growIds(Math.max(id + 1, bucketOf.length * 2));
+        }
+        if (bucketOf[id] >= 0) {
+            throw new IllegalArgumentException("id " + id + " is already present");
+        }
+        cellX[id] = x;
+        cellY[id] = y;
+        add(id, bucketFor(x, y));
+        count++;
+    }
+
+    public void remove(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("no id " + id);
+        }
+        unlink(id);
+        bucketOf[id] = -1;
+        count--;
+    }
+
+    // Returns true when the id changed bucket
+    public boolean move(int id, int x, int y) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("no id " + id);
+        }
+        cellX[id] = x;
+        cellY[id] = y;
+        int bucket = bucketFor(x, y);
+        if (bucket == bucketOf[id]) {
+            return false;
+        }
+        unlink(id);
+        add(id, bucket);
+        return true;
+    }
+
+    // Brings the hash in line with an entity store after a physics step: inserts new entities,
+    // moves the ones that changed cell and drops despawned ones. Returns the number of bucket changes.
+    public int sync(Entities entities) {
+        int changes = 0;
+        for (int id = 0; id < entities.highWater; id++) {
+            boolean alive = entities.isAlive(id);
+            boolean present = contains(id);
+            if (alive) {
+                int x = entities.getCellX(id);
+                int y = entities.getCellY(id);
+                if (!present) {
+                    insert(id, x, y);
+                    changes++;
+                } else if ((x != cellX[id] || y != cellY[id]) && move(id, x, y)) {
+                    changes++;
+                }
+            } else if (present) {
+                remove(id);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    // Ids within Euclidean distance radius of (x, y), measured between cells. Writes up to out.length
+    // of them and returns how many there were in total, so a caller can retry with a larger array.
+    public int queryRadius(int x, int y, int radius, int[] out) {
+        long radiusSquared = (long) radius * radius;
+        int found = 0;
+        int fromBucketX = (x - radius) >> bucketShift;
+        int toBucketX = (x + radius) >> bucketShift;
+        int fromBucketY = (y - radius) >> bucketShift;
+        int toBucketY = (y + radius) >> bucketShift;
+        for (int by = fromBucketY; by <= toBucketY; by++) {
+            for (int bx = fromBucketX; bx <= toBucketX; bx++) {
+                int bucket = find(World.chunkKey(bx, by));
+                if (bucket < 0) {
+                    continue;
+                }
+                int[] ids = members[bucket];
+                for (int i = 0, n = memberCounts[bucket]; i < n; i++) {
+                    int id = ids[i];
+                    long dx = cellX[id] - x;
+                    long dy = cellY[id] - y;
+                    if (dx * dx + dy * dy <= radiusSquared) {
+                        if (found < out.length) {
+                            out[found] = id;
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Ids in the inclusive cell rectangle; same contract for out as queryRadius
+    public int queryRect(int minX, int minY, int maxX, int maxY, int[] out) {
+        int found = 0;
+        for (int by = minY >> bucketShift; by <= maxY >> bucketShift; by++) {
+            for (int bx = minX >> bucketShift; bx <= maxX >> bucketShift; bx++) {
+                int bucket = find(World.chunkKey(bx, by));
+                if (bucket < 0) {
+                    continue;
+                }
+                int[] ids = members[bucket];
+                for (int i = 0, n = memberCounts[bucket]; i < n; i++) {
+                    int id = ids[i];
+                    int cx = cellX[id];
+                    int cy = cellY[id];
+                    if (cx >= minX && cx <= maxX && cy >= minY && cy <= maxY) {
+                        if (found < out.length) {
+                            out[found] = id;
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Entities share a cell when they collide on the grid
+    public boolean collides(int id, int other) {
+        return cellX[id] == cellX[other] && cellY[id] == cellY[other];
+    }
+
+    private void add(int id, int bucket) {
+        int n = memberCounts[bucket];
+        if (n == members[bucket].length) {
+            members[bucket] = Arrays.copyOf(members[bucket], n * 2);
+        }
+        members[bucket][n] = id;
+        memberCounts[bucket] = n + 1;
+        bucketOf[id] = bucket;
+        slotOf[id] = n;
+    }
+
+    // Swap-removes the id from its bucket's list, freeing the bucket if that was its last id
+    private void unlink(int id) {
+        int bucket = bucketOf[id];
+        int slot = slotOf[id];
+        int last = --memberCounts[bucket];
+        int moved = members[bucket][last];
+        members[bucket][slot] = moved;
+        slotOf[moved] = slot;
+        if (last == 0) {
+            release(bucket);
+        }
+    }
+
+    private void release(int bucket) {
+        delete(bucketKeys[bucket]);
+        liveBuckets--;
+        if (freeCount == freeBuckets.length) {
+            freeBuckets = Arrays.copyOf(freeBuckets, freeCount * 2);
+        }
+        freeBuckets[freeCount++] = bucket;
+    }
+
+    private int bucketFor(int x, int y) {
+        long key = World.chunkKey(x >> bucketShift, y >> bucketShift);
+        int bucket = find(key);
+        if (bucket >= 0) {
+            return bucket;
+        }
+        if ((liveBuckets + 1) * 2 > tableKeys.length) {
+            rehash(tableKeys.length * 2);
+        }
+        if (freeCount > 0) {
+            bucket = freeBuckets[--freeCount];
+        } else {
+            bucket = bucketCount++;
+            if (bucket == members.length) {
+                members = Arrays.copyOf(members, bucket * 2);
+                memberCounts = Arrays.copyOf(memberCounts, bucket * 2);
+                bucketKeys = Arrays.copyOf(bucketKeys, bucket * 2);
+            }
+            members[bucket] = new int[INITIAL_MEMBERS];
+        }
+        bucketKeys[bucket] = key;
+        liveBuckets++;
+        int mask = tableKeys.length - 1;
+        int i = slotFor(key, mask);
+        while (tableKeys[i] != NO_BUCKET) {
+            i = (i + 1) & mask;
+        }
+        tableKeys[i] = key;
+        tableBuckets[i] = bucket;
+        return bucket;
+    }
+
+    private int find(long key) {
+        int mask = tableKeys.length - 1;
+        for (int i = slotFor(key, mask); ; i = (i + 1) & mask) {
+            long k = tableKeys[i];
+            if (k == key) {
+                return tableBuckets[i];
+            }
+            if (k == NO_BUCKET) {
+                return -1;
+            }
+        }
+    }
+
+    // Empties the key's slot, then moves later entries of its probe run back into the hole, so no
+    // tombstones are left and lookups still stop at the first empty slot
+    private void delete(long key) {
+        int mask = tableKeys.length - 1;
+        int hole = slotFor(key, mask);
+        while (tableKeys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        for (int i = (hole + 1) & mask; tableKeys[i] != NO_BUCKET; i = (i + 1) & mask) {
+            // the entry at i may fill the hole if the hole lies between its home slot and i
+            int home = slotFor(tableKeys[i], mask);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                tableKeys[hole] = tableKeys[i];
+                tableBuckets[hole] = tableBuckets[i];
+                hole = i;
+            }
+        }
+        tableKeys[hole] = NO_BUCKET;
+    }
+
+    private static int slotFor(long key, int mask) {
+        return (int) (World.spread(key) >>> 40) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = tableKeys;
+        int[] oldBuckets = tableBuckets;
+        tableKeys = new long[capacity];
+        tableBuckets = new int[capacity];
+        Arrays.fill(tableKeys, NO_BUCKET);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == NO_BUCKET) {
+                continue;
+            }
+            int i = slotFor(oldKeys[j], mask);
+            while (tableKeys[i] != NO_BUCKET) {
+                i = (i + 1) & mask;
+            }
+            tableKeys[i] = oldKeys[j];
+            tableBuckets[i] = oldBuckets[j];
+        }
+    }
+
+    private void growIds(int capacity) {
+        int old = bucketOf.length;
+        cellX = Arrays.copyOf(cellX, capacity);
+        cellY = Arrays.copyOf(cellY, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        Arrays.fill(bucketOf, old, capacity, -1);
+    }
+}
@@ -1,3 +1,5 @@
+package game;
+
 public class StoneBlock extends Block {
     public StoneBlock() {
         this.name = "Stone";
@@ -0,0 +1,122 @@
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// Draws a viewport centred on the player. After the first frame only rows that changed are rewritten,
+// each behind an ANSI cursor-position sequence, and the whole frame goes out in one write + flush.
+public class TerminalRenderer {
+    public static final String CLEAR_LINE = "\u001b[K";
+    public static final String CLEAR_BELOW = "\u001b[J";
+    public static final String SAVE_CURSOR = "\u001b7";
+    public static final String RESTORE_CURSOR = "\u001b8";
+    private static final byte[] CLEAR_SCREEN = "\u001b[2J".getBytes();
+    private static final char PLAYER_SYMBOL = '@';
+
+    private final OutputStream out;
+    private final int viewWidth;
+    private final int viewHeight;
+    private final char[] symbols = new char[BlockRegistry.size()];
+
+    private final char[] frame;
+    private final char[] previous;
+    private boolean hasPrevious;
+    private final byte[] output;
+    private int outputLength;
+
+    private long lastBuildNanos;
+    private int lastFrameBytes;
+
+    public TerminalRenderer(OutputStream out, int viewWidth, int viewHeight) {
+        this.out = out;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        for (int id = 0; id < symbols.length; id++) {
+            symbols[id] = BlockRegistry.get(id).getSymbol();
+        }
+        frame = new char[viewWidth * viewHeight];
+        previous = new char[viewWidth * viewHeight];
+        // worst case: clear screen + every row with its cursor sequence + trailing cursor move
+        output = new byte[CLEAR_SCREEN.length + (viewHeight + 1) * (viewWidth + 16)];
+    }
+
+    public void render(World world, Player player) {
+        long start = System.nanoTime();
+        int left = player.getX() - viewWidth / 2;
+        int top = player.getY() - viewHeight / 2;
+        for (int row = 0; row < viewHeight; row++) {
+            int base = row * viewWidth;
+            for (int col = 0; col < viewWidth; col++) {
+                frame[base + col] = symbols[world.getBlockId(left + col, top + row)];
+            }
+        }
+        frame[(player.getY() - top) * viewWidth + (player.getX() - left)] = PLAYER_SYMBOL;
+
+        outputLength = 0;
+        if (!hasPrevious) {
+            append(CLEAR_SCREEN);
+        }
+        for (int row = 0; row < viewHeight; row++) {
+            int from = row * viewWidth;
+            int to = from + viewWidth;
+            if (hasPrevious && Arrays.equals(frame, from, to, previous, from, to)) {
+                continue;
+            }
+            moveCursor(row + 1);
+            for (int i = from; i < to; i++) {
+                output[outputLength++] = (byte) frame[i];
+            }
+        }
+        // leave the cursor under the viewport for status lines and the prompt
+        moveCursor(viewHeight + 1);
+        System.arraycopy(frame, 0, previous, 0, frame.length);
+        hasPrevious = true;
+        lastBuildNanos = System.nanoTime() - start;
+
+        try {
+            out.write(output, 0, outputLength);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastFrameBytes = outputLength;
+    }
+
+    // Forces the next frame to redraw the whole viewport
+    public void invalidate() {
+        hasPrevious = false;
+    }
+
+    private void moveCursor(int row) {
+        output[outputLength++] = 0x1b;
+        output[outputLength++] = '[';
+        outputLength = appendInt(row);
+        output[outputLength++] = ';';
+        output[outputLength++] = '1';
+        output[outputLength++] = 'H';
+    }
+
+    private int appendInt(int value) {
+        int digits = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : String.valueOf(value).length();
+        for (int i = outputLength + digits - 1; i >= outputLength; i--) {
+            output[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return outputLength + digits;
+    }
+
+    private void append(byte[] bytes) {
+        System.arraycopy(bytes, 0, output, outputLength, bytes.length);
+        outputLength += bytes.length;
+    }
+
+    public long getLastBuildNanos() {
+        return lastBuildNanos;
+    }
+
+    public int getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+}
@@ -0,0 +1,57 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+// Times NoiseTerrainGenerator over a square of chunks at 1, 2, 4, ... threads and checks the output never changes
+public class TerrainBenchmark {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int chunksAcross = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        TerrainGenerator generator = new NoiseTerrainGenerator(seed, 0, chunksAcross * Chunk.SIZE / 2);
+        int fromChunk = -chunksAcross / 2;
+
+        System.out.println("Chunks: " + chunksAcross + " x " + chunksAcross + ", seed " + seed + ", cores " + maxThreads);
+        long expectedChecksum = -1;
+        double singleThreadMillis = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double bestMillis = Double.MAX_VALUE;
+            long checksum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                Chunk[] chunks = generator.generateArea(fromChunk, fromChunk, chunksAcross, chunksAcross, pool);
+                bestMillis = Math.min(bestMillis, (System.nanoTime() - start) / 1e6);
+                checksum = checksum(chunks);
+            }
+            pool.shutdown();
+            if (threads == 1) {
+                expectedChecksum = checksum;
+                singleThreadMillis = bestMillis;
+            }
+            System.out.printf("%3d threads: %8.1f ms  speedup %.2fx  crc %08x%s%n", threads, bestMillis,
+                    singleThreadMillis / bestMillis, checksum, checksum == expectedChecksum ? "" : "  MISMATCH");
+            if (checksum != expectedChecksum) {
+                System.exit(1);
+            }
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+
+    private static long checksum(Chunk[] chunks) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + BlockRegistry.size() + Chunk.CELLS);
+        for (Chunk chunk : chunks) {
+            buffer.clear();
+            chunk.writeTo(buffer);
+            crc.update(buffer.flip());
+        }
+        return crc.getValue();
+    }
+}
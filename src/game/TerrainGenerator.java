@@ -0,0 +1,17 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public interface TerrainGenerator {
+    // Must depend only on its arguments, so chunks can be generated in any order and on any thread
+    Chunk generate(int chunkX, int chunkY);
+
+    // Generates a rectangle of chunks on the given pool; result is row-major and independent of the thread count
+    default Chunk[] generateArea(int fromChunkX, int fromChunkY, int chunksWide, int chunksHigh, ForkJoinPool pool) {
+        Chunk[] chunks = new Chunk[chunksWide * chunksHigh];
+        pool.submit(() -> IntStream.range(0, chunks.length).parallel().forEach(i ->
+                chunks[i] = generate(fromChunkX + i % chunksWide, fromChunkY + i / chunksWide))).join();
+        return chunks;
+    }
+}
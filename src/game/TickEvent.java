@@ -0,0 +1,19 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("game.Tick")
+@Label("Tick")
+@Category("Game")
+@Description("One fixed-timestep tick: queued commands, scheduled actions and tick tasks")
+final class TickEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Commands")
+    @Description("Commands drained from the queue at the start of the tick")
+    int commands;
+}
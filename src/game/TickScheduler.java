@@ -0,0 +1,235 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import jdk.jfr.EventType;
+
+// Fixed-timestep game loop. Ticks run at a fixed rate and frames at their own, both on the thread that
+// calls run(), so game state is only ever touched from one thread. Commands submitted from other
+// threads are queued and drained at the start of the next tick. A tick slower than its period counts
+// as an overrun; if the loop falls more than MAX_CATCH_UP ticks behind, the backlog is skipped.
+public final class TickScheduler {
+    private static final int SAMPLES = 1024;
+    private static final int MAX_CATCH_UP = 5;
+    private static final EventType TICK_EVENTS = EventType.getEventType(TickEvent.class);
+    private static final EventType FRAME_EVENTS = EventType.getEventType(FrameEvent.class);
+
+    public interface TickTask {
+        void tick(long tick);
+    }
+
+    private record Scheduled(long tick, long sequence, Runnable action) implements Comparable<Scheduled> {
+        @Override
+        public int compareTo(Scheduled other) {
+            int byTick = Long.compare(tick, other.tick);
+            return byTick != 0 ? byTick : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final long tickNanos;
+    private final long frameNanos;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCommands = new AtomicInteger();
+    private final PriorityQueue<Scheduled> scheduled = new PriorityQueue<>();
+    private final List<TickTask> tickTasks = new ArrayList<>();
+    private Runnable frameTask = () -> {
+    };
+    private volatile boolean running;
+    private volatile Thread loopThread;
+    private long tick;
+    private long sequence;
+
+    // ring buffers over the last SAMPLES ticks
+    private final long[] tickDurations = new long[SAMPLES];
+    private final long[] tickStarts = new long[SAMPLES];
+    private long overruns;
+    private long skippedTicks;
+    private long frames;
+    // since the loop started, for Metrics
+    private final Histogram tickTimes = new Histogram();
+    private final Histogram frameTimes = new Histogram();
+
+    public TickScheduler(int ticksPerSecond, int framesPerSecond) {
+        if (ticksPerSecond < 1 || framesPerSecond < 1) {
+            throw new IllegalArgumentException("rates must be positive: " + ticksPerSecond + " TPS, " + framesPerSecond + " FPS");
+        }
+        tickNanos = 1_000_000_000L / ticksPerSecond;
+        frameNanos = 1_000_000_000L / framesPerSecond;
+    }
+
+    public void onTick(TickTask task) {
+        tickTasks.add(task);
+    }
+
+    public void setFrameTask(Runnable frameTask) {
+        this.frameTask = frameTask;
+    }
+
+    // Safe from any thread; runs on the loop thread at the start of the next tick
+    public void submit(Runnable command) {
+        queuedCommands.incrementAndGet();
+        commands.add(command);
+    }
+
+    // Loop thread only; runs the action at the start of the tick delayTicks from now, after queued commands
+    public void schedule(long delayTicks, Runnable action) {
+        scheduled.add(new Scheduled(tick + Math.max(0, delayTicks), sequence++, action));
+    }
+
+    public void scheduleBlockChange(World world, int x, int y, int blockId, long delayTicks) {
+        schedule(delayTicks, () -> world.setBlockId(x, y, blockId));
+    }
+
+    // Runs until stop() is called
+    public void run() {
+        loopThread = Thread.currentThread();
+        running = true;
+        long nextTick = System.nanoTime();
+        long nextFrame = nextTick;
+        while (running) {
+            long now = System.nanoTime();
+            if (now >= nextTick) {
+                long behind = (now - nextTick) / tickNanos;
+                if (behind > MAX_CATCH_UP) {
+                    skippedTicks += behind;
+                    nextTick += behind * tickNanos;
+                }
+                runTick(now);
+                nextTick += tickNanos;
+                now = System.nanoTime();
+            }
+            if (running && now >= nextFrame) {
+                runFrame();
+                nextFrame += frameNanos;
+                // a slow frame drops the frames it missed rather than drawing them back to back
+                if (nextFrame < now) {
+                    nextFrame = now + frameNanos;
+                }
+            }
+            long wait = Math.min(nextTick, nextFrame) - System.nanoTime();
+            if (running && wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        Thread thread = loopThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runFrame() {
+        // events are only created while a recording has them enabled, so an idle loop allocates nothing
+        FrameEvent event = FRAME_EVENTS.isEnabled() ? new FrameEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        frameTask.run();
+        frameTimes.record(System.nanoTime() - start);
+        if (event != null) {
+            event.frame = frames;
+            event.commit();
+        }
+        frames++;
+    }
+
+    private void runTick(long start) {
+        TickEvent event = TICK_EVENTS.isEnabled() ? new TickEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        int drained = 0;
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            queuedCommands.decrementAndGet();
+            drained++;
+            command.run();
+        }
+        while (!scheduled.isEmpty() && scheduled.peek().tick() <= tick) {
+            scheduled.poll().action().run();
+        }
+        for (TickTask task : tickTasks) {
+            task.tick(tick);
+        }
+        long duration = System.nanoTime() - start;
+        tickTimes.record(duration);
+        if (event != null) {
+            event.tick = tick;
+            event.commands = drained;
+            event.commit();
+        }
+        int slot = (int) (tick % SAMPLES);
+        tickDurations[slot] = duration;
+        tickStarts[slot] = start;
+        if (duration > tickNanos) {
+            overruns++;
+        }
+        tick++;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getTargetTps() {
+        return (int) (1_000_000_000L / tickNanos);
+    }
+
+    // Over the last SAMPLES ticks
+    public long getTickPercentileNanos(double percentile) {
+        int count = (int) Math.min(tick, SAMPLES);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(tickDurations, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) (count * percentile))];
+    }
+
+    // Ticks per second actually achieved over the last SAMPLES ticks
+    public double getAchievedTps() {
+        int count = (int) Math.min(tick, SAMPLES);
+        if (count < 2) {
+            return 0;
+        }
+        long newest = tickStarts[(int) ((tick - 1) % SAMPLES)];
+        long oldest = tickStarts[(int) ((tick - count) % SAMPLES)];
+        return (count - 1) * 1e9 / (newest - oldest);
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    // Commands submitted but not yet drained; safe from any thread
+    public int getQueueDepth() {
+        return queuedCommands.get();
+    }
+
+    public Histogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public Histogram getFrameTimes() {
+        return frameTimes;
+    }
+}
@@ -1,3 +1,5 @@
+package game;
+
 public class WaterBlock extends Block {
     public WaterBlock() {
         this.name = "Water";
@@ -1,3 +1,5 @@
+package game;
+
 public class WoodBlock extends Block {
     public WoodBlock() {
         this.name = "Wood";
@@ -0,0 +1,580 @@
+package game;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import jdk.jfr.EventType;
+
+// Thread-safe: writes to a chunk are serialised by one of LOCK_STRIPES locks chosen by chunk key, while
+// reads are optimistic and only fall back to a read lock when they overlap a write. Listeners run on
+// the writing thread after its lock is released, so they may be called concurrently.
+public class World {
+    public static final int DEFAULT_MAX_LOADED_CHUNKS = 4096;
+    private static final int LOCK_STRIPE_BITS = 6;
+    private static final int LOCK_STRIPES = 1 << LOCK_STRIPE_BITS;
+    // the recent-chunk table has twice as many slots as the cache holds chunks, within these bounds
+    private static final int MIN_RECENT_BITS = 10;
+    private static final int MAX_RECENT_BITS = 16;
+    private static final EventType CHUNK_LOAD_EVENTS = EventType.getEventType(ChunkLoadEvent.class);
+
+    private final int width;
+    private final int height;
+    private final int maxLoadedChunks;
+    private final TerrainGenerator generator;
+    private final ChunkStore store;
+    private final ConcurrentHashMap<Long, Chunk> loaded = new ConcurrentHashMap<>();
+    private final StampedLock[] stripes = new StampedLock[LOCK_STRIPES];
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile BlockChangeListener[] listeners = new BlockChangeListener[0];
+    // while any snapshot is open, a write to a chunk from an older epoch copies it first
+    private volatile WorldSnapshot[] openSnapshots = new WorldSnapshot[0];
+    // bumped with every stripe lock held, so reading it under any one stripe lock is safe
+    private long snapshotEpoch;
+
+    // Most recently used chunk, checked before everything else, then a table direct-mapped by key: a hit
+    // neither boxes the key nor walks a map bin. Both are written racily; entries are validated on read
+    // (attached is volatile and set after the chunk is filled) and go stale on eviction.
+    private Chunk lastChunk;
+    private final Chunk[] recentChunks;
+    private final int recentShift;
+
+    private final LongAdder chunkLoads = new LongAdder();
+    private final LongAdder chunkEvictions = new LongAdder();
+    private final LongAdder chunkHits = new LongAdder();
+    // advances with every load; chunks are stamped with it on access as a cheap stand-in for a clock, so
+    // chunks hit between two loads share a stamp and eviction cannot tell which was used last
+    private final AtomicLong accessClock = new AtomicLong();
+    private final LongAdder blockWrites = new LongAdder();
+
+    public World(int width, int height) {
+        this(width, height, DEFAULT_MAX_LOADED_CHUNKS, new MemoryChunkStore());
+    }
+
+    public World(int width, int height, int maxLoadedChunks, ChunkStore store) {
+        this(width, height, new FlatTerrainGenerator(height / 2), maxLoadedChunks, store);
+    }
+
+    public World(int width, int height, TerrainGenerator generator, int maxLoadedChunks, ChunkStore store) {
+        if (maxLoadedChunks < 1) {
+            throw new IllegalArgumentException("maxLoadedChunks must be positive: " + maxLoadedChunks);
+        }
+        this.width = width;
+        this.height = height;
+        this.maxLoadedChunks = maxLoadedChunks;
+        this.generator = generator;
+        this.store = store;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+        int recentBits = 64 - Long.numberOfLeadingZeros(2L * maxLoadedChunks - 1);
+        recentBits = Math.max(MIN_RECENT_BITS, Math.min(MAX_RECENT_BITS, recentBits));
+        recentChunks = new Chunk[1 << recentBits];
+        recentShift = 64 - recentBits;
+    }
+
+    public static long chunkKey(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    // Chunk keys hash poorly as Longs (chunkX ^ chunkY), so everything keyed by them goes through this
+    // bijective mix; the map is keyed by the mixed value
+    static long spread(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    private StampedLock stripeFor(long key) {
+        return stripes[(int) (spread(key) >>> (64 - LOCK_STRIPE_BITS))];
+    }
+
+    private int recentSlot(long key) {
+        return (int) (spread(key) >>> recentShift);
+    }
+
+    private Chunk recent(long key) {
+        Chunk chunk = recentChunks[recentSlot(key)];
+        return chunk != null && chunk.isAttached() && chunk.getKey() == key ? chunk : null;
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        return getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+    }
+
+    // Loads or generates the chunk; callers must write through setBlockId so it is marked dirty
+    public Chunk getChunk(int chunkX, int chunkY) {
+        long key = chunkKey(chunkX, chunkY);
+        Chunk chunk = lastChunk;
+        if (chunk != null && chunk.getKey() == key && chunk.isAttached()) {
+            chunkHits.increment();
+            return chunk;
+        }
+        chunk = recent(key);
+        if (chunk == null) {
+            chunk = loaded.get(spread(key));
+        }
+        if (chunk != null) {
+            chunkHits.increment();
+            long now = accessClock.get();
+            if (chunk.getLastAccess() != now) {
+                chunk.touch(now);
+            }
+        } else {
+            // the read lock keeps a concurrent eviction from saving this key while it is being reloaded
+            StampedLock lock = stripeFor(key);
+            long stamp = lock.readLock();
+            try {
+                chunk = loadLocked(key, chunkX, chunkY, null);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            evictIfNeeded();
+        }
+        int slot = recentSlot(key);
+        if (recentChunks[slot] != chunk) {
+            recentChunks[slot] = chunk;
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    // Caller holds the key's stripe lock, in either mode
+    private Chunk loadLocked(long key, int chunkX, int chunkY, Chunk generated) {
+        return loaded.computeIfAbsent(spread(key), k -> {
+            ChunkLoadEvent event = CHUNK_LOAD_EVENTS.isEnabled() ? new ChunkLoadEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            Chunk chunk;
+            synchronized (store) {
+                chunk = store.load(chunkX, chunkY);
+            }
+            boolean fresh = chunk == null;
+            if (fresh) {
+                chunk = generated != null ? generated : generator.generate(chunkX, chunkY);
+            }
+            chunk.attach(key, accessClock.incrementAndGet());
+            chunkLoads.increment();
+            if (event != null) {
+                event.chunkX = chunkX;
+                event.chunkY = chunkY;
+                event.generated = fresh;
+                event.commit();
+            }
+            return chunk;
+        });
+    }
+
+    // Generates the given chunk rectangle in parallel and loads it; stored and already loaded chunks win
+    public void pregenerate(int fromChunkX, int fromChunkY, int chunksWide, int chunksHigh, ForkJoinPool pool) {
+        Chunk[] generated = generator.generateArea(fromChunkX, fromChunkY, chunksWide, chunksHigh, pool);
+        for (int i = 0; i < generated.length; i++) {
+            int chunkX = fromChunkX + i % chunksWide;
+            int chunkY = fromChunkY + i / chunksWide;
+            long key = chunkKey(chunkX, chunkY);
+            StampedLock lock = stripeFor(key);
+            long stamp = lock.readLock();
+            try {
+                loadLocked(key, chunkX, chunkY, generated[i]);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        evictIfNeeded();
+    }
+
+    // Approximate LRU: once over capacity, one thread sorts the loaded chunks by last access and drops
+    // the oldest, plus a sixteenth of the capacity so the scan is amortised over the following loads.
+    private void evictIfNeeded() {
+        if (loaded.size() <= maxLoadedChunks || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = loaded.size() - maxLoadedChunks;
+            if (excess <= 0) {
+                return;
+            }
+            int target = excess + maxLoadedChunks / 16;
+            // stamps keep moving under concurrent lookups, so sort a snapshot of them
+            Chunk[] candidates = loaded.values().toArray(new Chunk[0]);
+            long[] stamps = new long[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                stamps[i] = candidates[i].getLastAccess();
+            }
+            long[] sorted = stamps.clone();
+            Arrays.sort(sorted);
+            long cutoff = sorted[Math.min(target, sorted.length) - 1];
+            Chunk recent = lastChunk;
+            int evicted = 0;
+            for (int i = 0; i < candidates.length && evicted < target; i++) {
+                if (stamps[i] <= cutoff && candidates[i] != recent && evict(candidates[i])) {
+                    evicted++;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Skips chunks whose stripe is busy rather than waiting, so eviction never blocks a writer
+    private boolean evict(Chunk chunk) {
+        long key = chunk.getKey();
+        StampedLock lock = stripeFor(key);
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            return false;
+        }
+        try {
+            if (!loaded.remove(spread(key), chunk)) {
+                return false;
+            }
+            chunk.detach();
+            if (chunk.isDirty()) {
+                synchronized (store) {
+                    store.save((int) (key >> 32), (int) key, chunk);
+                }
+                chunk.clearDirty();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (chunk == lastChunk) {
+            lastChunk = null;
+        }
+        int slot = recentSlot(key);
+        if (recentChunks[slot] == chunk) {
+            recentChunks[slot] = null;
+        }
+        chunkEvictions.increment();
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public TerrainGenerator getGenerator() {
+        return generator;
+    }
+
+    public int getBlockId(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        int localX = x & Chunk.MASK;
+        int localY = y & Chunk.MASK;
+        StampedLock lock = stripeFor(chunk.getKey());
+        long stamp = lock.tryOptimisticRead();
+        int id = chunk.get(localX, localY);
+        if (lock.validate(stamp)) {
+            return id;
+        }
+        stamp = lock.readLock();
+        try {
+            return chunk.get(localX, localY);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Topmost non-walkable y in column x within the nominal height, or height if the column has none.
+    // Walks the chunk column's per-column tops, so the cost is one lookup per chunk above the surface.
+    public int getSurfaceY(int x) {
+        int chunkX = x >> Chunk.SHIFT;
+        int localX = x & Chunk.MASK;
+        for (int chunkY = 0; chunkY << Chunk.SHIFT < height; chunkY++) {
+            int top = getChunk(chunkX, chunkY).getColumnTop(localX);
+            if (top < Chunk.SIZE) {
+                return Math.min(height, (chunkY << Chunk.SHIFT) + top);
+            }
+        }
+        return height;
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return BlockRegistry.isWalkable(getBlockId(x, y));
+    }
+
+    public Block getBlockForPosition(int x, int y) {
+        return BlockRegistry.get(getBlockId(x, y));
+    }
+
+    public void setBlock(int x, int y, Block block) {
+        setBlockId(x, y, BlockRegistry.idOf(block));
+    }
+
+    public void setBlockId(int x, int y, int blockId) {
+        write(x, y, -1, blockId);
+    }
+
+    // Atomically replaces the cell only if it still holds expectedId, so two players cannot both break it
+    public boolean compareAndSetBlockId(int x, int y, int expectedId, int blockId) {
+        return write(x, y, expectedId, blockId) == expectedId;
+    }
+
+    // Returns the id the cell held before the write, or -1 when expectedId did not match
+    private int write(int x, int y, int expectedId, int blockId) {
+        int chunkX = x >> Chunk.SHIFT;
+        int chunkY = y >> Chunk.SHIFT;
+        long key = chunkKey(chunkX, chunkY);
+        StampedLock lock = stripeFor(key);
+        int oldId;
+        long stamp = lock.writeLock();
+        try {
+            // looked up under the lock: the chunk cannot be evicted while its stripe is held
+            Chunk chunk = recent(key);
+            if (chunk == null) {
+                chunk = loaded.get(spread(key));
+            }
+            if (chunk == null) {
+                chunk = loadLocked(key, chunkX, chunkY, null);
+            }
+            oldId = chunk.get(x & Chunk.MASK, y & Chunk.MASK);
+            if (expectedId >= 0 && oldId != expectedId) {
+                return -1;
+            }
+            if (oldId == blockId) {
+                return oldId;
+            }
+            if (openSnapshots.length > 0 && chunk.getCopyEpoch() != snapshotEpoch) {
+                chunk = copyOnWrite(key, chunk);
+            }
+            if (!chunk.set(x & Chunk.MASK, y & Chunk.MASK, blockId)) {
+                return oldId;
+            }
+            chunk.markDirty();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        blockWrites.increment();
+        evictIfNeeded();
+        for (BlockChangeListener listener : listeners) {
+            listener.blockChanged(x, y, oldId, blockId);
+        }
+        return oldId;
+    }
+
+    // Caller holds the key's stripe write lock. The original stays untouched for the open snapshots,
+    // which keep it unless they already hold an older version of the chunk.
+    private Chunk copyOnWrite(long key, Chunk chunk) {
+        Chunk copy = chunk.copy();
+        copy.setCopyEpoch(snapshotEpoch);
+        copy.attach(key, accessClock.get());
+        loaded.replace(spread(key), chunk, copy);
+        chunk.supersede();
+        chunk.detach();
+        for (WorldSnapshot snapshot : openSnapshots) {
+            snapshot.preserve(key, chunk);
+        }
+        recentChunks[recentSlot(key)] = copy;
+        if (lastChunk == chunk) {
+            lastChunk = copy;
+        }
+        return copy;
+    }
+
+    // Point-in-time view of the whole world. Takes every stripe lock briefly and records the loaded
+    // chunks without copying their cells; later writes copy a chunk the first time they touch it.
+    // Close the snapshot when done, otherwise every write keeps copying.
+    public WorldSnapshot snapshot() {
+        long[] stamps = new long[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stamps[i] = stripes[i].writeLock();
+        }
+        try {
+            snapshotEpoch++;
+            WorldSnapshot snapshot = new WorldSnapshot(this, loaded.values());
+            synchronized (this) {
+                openSnapshots = Arrays.copyOf(openSnapshots, openSnapshots.length + 1);
+                openSnapshots[openSnapshots.length - 1] = snapshot;
+            }
+            return snapshot;
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                stripes[i].unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    synchronized void release(WorldSnapshot snapshot) {
+        for (int i = 0; i < openSnapshots.length; i++) {
+            if (openSnapshots[i] == snapshot) {
+                WorldSnapshot[] remaining = new WorldSnapshot[openSnapshots.length - 1];
+                System.arraycopy(openSnapshots, 0, remaining, 0, i);
+                System.arraycopy(openSnapshots, i + 1, remaining, i, remaining.length - i);
+                openSnapshots = remaining;
+                return;
+            }
+        }
+    }
+
+    // A chunk the snapshot did not record: nothing has written to it since the snapshot was taken
+    // (the write would have preserved it), so the live chunk is the snapshot's version. Holding the
+    // stripe lock keeps a write from slipping in between the check and the capture.
+    Chunk capture(WorldSnapshot snapshot, long key, int chunkX, int chunkY) {
+        StampedLock lock = stripeFor(key);
+        long stamp = lock.readLock();
+        Chunk chunk;
+        try {
+            chunk = snapshot.captured(key);
+            if (chunk != null) {
+                return chunk;
+            }
+            chunk = recent(key);
+            if (chunk == null) {
+                chunk = loaded.get(spread(key));
+            }
+            if (chunk == null) {
+                chunk = loadLocked(key, chunkX, chunkY, null);
+            }
+            chunk = snapshot.preserve(key, chunk);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        evictIfNeeded();
+        return chunk;
+    }
+
+    // Saves the chunks that are dirty now on the executor while the world keeps running. A chunk
+    // copied by a later write is skipped: its copy is still dirty and the next save writes it.
+    public CompletableFuture<Integer> saveAsync(Executor executor) {
+        WorldSnapshot snapshot = snapshot();
+        List<Chunk> dirty = new ArrayList<>();
+        for (Chunk chunk : snapshot.capturedChunks()) {
+            if (chunk.isDirty()) {
+                dirty.add(chunk);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try (snapshot) {
+                int written = 0;
+                for (Chunk chunk : dirty) {
+                    long key = chunk.getKey();
+                    StampedLock lock = stripeFor(key);
+                    long stamp = lock.writeLock();
+                    try {
+                        if (chunk.isDirty() && !chunk.isSuperseded()) {
+                            synchronized (store) {
+                                store.save((int) (key >> 32), (int) key, chunk);
+                            }
+                            chunk.clearDirty();
+                            written++;
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+                synchronized (store) {
+                    store.flush();
+                }
+                return written;
+            }
+        }, executor);
+    }
+
+    public synchronized void addListener(BlockChangeListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public synchronized void removeListener(BlockChangeListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                BlockChangeListener[] remaining = new BlockChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    // Writes every loaded chunk changed since it was last stored; clean chunks are skipped
+    public int save() {
+        int written = 0;
+        for (Chunk chunk : loaded.values()) {
+            if (!chunk.isDirty()) {
+                continue;
+            }
+            long key = chunk.getKey();
+            StampedLock lock = stripeFor(key);
+            long stamp = lock.writeLock();
+            try {
+                if (chunk.isDirty() && chunk.isAttached()) {
+                    synchronized (store) {
+                        store.save((int) (key >> 32), (int) key, chunk);
+                    }
+                    chunk.clearDirty();
+                    written++;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        synchronized (store) {
+            store.flush();
+        }
+        return written;
+    }
+
+    public int getLoadedChunkCount() {
+        return loaded.size();
+    }
+
+    public int getMaxLoadedChunks() {
+        return maxLoadedChunks;
+    }
+
+    public long getChunkLoads() {
+        return chunkLoads.sum();
+    }
+
+    public long getChunkEvictions() {
+        return chunkEvictions.sum();
+    }
+
+    public long getChunkHits() {
+        return chunkHits.sum();
+    }
+
+    // Writes that changed a cell
+    public long getBlockWrites() {
+        return blockWrites.sum();
+    }
+
+    // FNV-1a over the block ids of the nominal width x height area, row by row
+    public long checksum() {
+        long hash = 0xcbf29ce484222325L;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                hash = (hash ^ getBlockId(x, y)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    public void printWorld() {
+        printWorld(System.out);
+    }
+
+    public void printWorld(PrintStream sink) {
+        StringBuilder out = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                out.append(getBlockForPosition(x, y).getSymbol());
+            }
+            out.append(System.lineSeparator());
+        }
+        sink.print(out);
+    }
+}
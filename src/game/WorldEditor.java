@@ -0,0 +1,154 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Rectangular bulk edits on a World with undo/redo. Regions are inclusive corner pairs in any order.
+public class WorldEditor {
+    public static final int DEFAULT_MAX_HISTORY = 64;
+
+    private final World world;
+    private final int maxHistory;
+    private final Deque<EditDelta> undoStack = new ArrayDeque<>();
+    private final Deque<EditDelta> redoStack = new ArrayDeque<>();
+
+    private interface ChunkFilter {
+        // false when nothing in the chunk can change, so the chunk is skipped entirely
+        boolean mayChange(Chunk chunk);
+    }
+
+    private interface CellEdit {
+        int newId(int x, int y, int oldId);
+    }
+
+    public WorldEditor(World world) {
+        this(world, DEFAULT_MAX_HISTORY);
+    }
+
+    public WorldEditor(World world, int maxHistory) {
+        this.world = world;
+        this.maxHistory = maxHistory;
+    }
+
+    public EditDelta fill(int x1, int y1, int x2, int y2, Block block) {
+        int blockId = BlockRegistry.idOf(block);
+        return edit(x1, y1, x2, y2,
+                chunk -> !chunk.isUniform() || chunk.get(0, 0) != blockId,
+                (x, y, oldId) -> blockId);
+    }
+
+    public EditDelta replace(int x1, int y1, int x2, int y2, Block from, Block to) {
+        int fromId = BlockRegistry.idOf(from);
+        int toId = BlockRegistry.idOf(to);
+        return edit(x1, y1, x2, y2,
+                chunk -> fromId != toId && chunk.contains(fromId),
+                (x, y, oldId) -> oldId == fromId ? toId : oldId);
+    }
+
+    public Clipboard copy(int x1, int y1, int x2, int y2) {
+        int minX = Math.min(x1, x2);
+        int minY = Math.min(y1, y2);
+        Clipboard clipboard = new Clipboard(Math.abs(x2 - x1) + 1, Math.abs(y2 - y1) + 1);
+        for (int y = 0; y < clipboard.getHeight(); y++) {
+            for (int x = 0; x < clipboard.getWidth(); x++) {
+                clipboard.setBlockId(x, y, world.getBlockId(minX + x, minY + y));
+            }
+        }
+        return clipboard;
+    }
+
+    // Places the clipboard with its top-left corner at (x, y)
+    public EditDelta paste(Clipboard clipboard, int x, int y) {
+        return edit(x, y, x + clipboard.getWidth() - 1, y + clipboard.getHeight() - 1,
+                chunk -> true,
+                (cellX, cellY, oldId) -> clipboard.getBlockId(cellX - x, cellY - y));
+    }
+
+    public boolean undo() {
+        EditDelta delta = undoStack.pollLast();
+        if (delta == null) {
+            return false;
+        }
+        delta.undo(world);
+        redoStack.addLast(delta);
+        return true;
+    }
+
+    public boolean redo() {
+        EditDelta delta = redoStack.pollLast();
+        if (delta == null) {
+            return false;
+        }
+        delta.redo(world);
+        pushUndo(delta);
+        return true;
+    }
+
+    public int getUndoDepth() {
+        return undoStack.size();
+    }
+
+    public int getRedoDepth() {
+        return redoStack.size();
+    }
+
+    // Bytes held by the undo and redo history
+    public long getHistoryBytes() {
+        long total = 0;
+        for (EditDelta delta : undoStack) {
+            total += delta.sizeInBytes();
+        }
+        for (EditDelta delta : redoStack) {
+            total += delta.sizeInBytes();
+        }
+        return total;
+    }
+
+    private EditDelta edit(int x1, int y1, int x2, int y2, ChunkFilter filter, CellEdit edit) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        EditDelta.Builder delta = new EditDelta.Builder();
+        for (int chunkY = minY >> Chunk.SHIFT; chunkY <= maxY >> Chunk.SHIFT; chunkY++) {
+            for (int chunkX = minX >> Chunk.SHIFT; chunkX <= maxX >> Chunk.SHIFT; chunkX++) {
+                Chunk chunk = world.getChunk(chunkX, chunkY);
+                if (!filter.mayChange(chunk)) {
+                    continue;
+                }
+                delta.beginChunk(chunkX, chunkY);
+                int left = chunkX << Chunk.SHIFT;
+                int top = chunkY << Chunk.SHIFT;
+                for (int ly = 0; ly < Chunk.SIZE; ly++) {
+                    int y = top + ly;
+                    for (int lx = 0; lx < Chunk.SIZE; lx++) {
+                        int x = left + lx;
+                        int oldId = chunk.get(lx, ly);
+                        int newId = oldId;
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                            newId = edit.newId(x, y, oldId);
+                            if (newId != oldId) {
+                                world.setBlockId(x, y, newId);
+                            }
+                        }
+                        delta.cell(oldId, newId);
+                    }
+                }
+                delta.endChunk();
+            }
+        }
+        EditDelta result = delta.build();
+        if (!result.isEmpty()) {
+            pushUndo(result);
+            redoStack.clear();
+        }
+        return result;
+    }
+
+    private void pushUndo(EditDelta delta) {
+        undoStack.addLast(delta);
+        if (undoStack.size() > maxHistory) {
+            undoStack.pollFirst();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package game;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-only, point-in-time view of a World, from World.snapshot(). Chunks loaded when the snapshot was
+// taken are shared with the world until a write copies them; any other chunk is captured the first
+// time the snapshot reads it. Safe to read from any number of threads while the world keeps changing.
+public final class WorldSnapshot implements AutoCloseable {
+    private final World world;
+    private final int width;
+    private final int height;
+    // keyed by World.spread(chunk key); chunks in here are never written again
+    private final ConcurrentHashMap<Long, Chunk> chunks;
+    private volatile boolean closed;
+
+    WorldSnapshot(World world, Collection<Chunk> loaded) {
+        this.world = world;
+        this.width = world.getWidth();
+        this.height = world.getHeight();
+        this.chunks = new ConcurrentHashMap<>(Math.max(16, loaded.size() * 2));
+        for (Chunk chunk : loaded) {
+            chunks.put(World.spread(chunk.getKey()), chunk);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // The returned chunk is shared and must not be modified
+    public Chunk getChunk(int chunkX, int chunkY) {
+        long key = World.chunkKey(chunkX, chunkY);
+        Chunk chunk = chunks.get(World.spread(key));
+        if (chunk != null) {
+            return chunk;
+        }
+        if (closed) {
+            throw new IllegalStateException("snapshot is closed");
+        }
+        return world.capture(this, key, chunkX, chunkY);
+    }
+
+    public int getBlockId(int x, int y) {
+        return getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT).get(x & Chunk.MASK, y & Chunk.MASK);
+    }
+
+    public Block getBlockForPosition(int x, int y) {
+        return BlockRegistry.get(getBlockId(x, y));
+    }
+
+    // Same hash as World.checksum, so a snapshot can be checked against the world it came from
+    public long checksum() {
+        long hash = 0xcbf29ce484222325L;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                hash = (hash ^ getBlockId(x, y)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    public void printWorld(PrintStream sink) {
+        StringBuilder out = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                out.append(getBlockForPosition(x, y).getSymbol());
+            }
+            out.append(System.lineSeparator());
+        }
+        sink.print(out);
+    }
+
+    // Writes every chunk of the nominal area, e.g. as a consistent backup in another store. The store
+    // gets copies, since one that keeps chunk objects would otherwise share them with the live world.
+    public int writeTo(ChunkStore target) {
+        int chunksWide = (width + Chunk.MASK) >> Chunk.SHIFT;
+        int chunksHigh = (height + Chunk.MASK) >> Chunk.SHIFT;
+        for (int cy = 0; cy < chunksHigh; cy++) {
+            for (int cx = 0; cx < chunksWide; cx++) {
+                Chunk copy = getChunk(cx, cy).copy();
+                copy.clearDirty();
+                target.save(cx, cy, copy);
+            }
+        }
+        target.flush();
+        return chunksWide * chunksHigh;
+    }
+
+    public int getCapturedChunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            world.release(this);
+        }
+    }
+
+    Collection<Chunk> capturedChunks() {
+        return chunks.values();
+    }
+
+    Chunk captured(long key) {
+        return chunks.get(World.spread(key));
+    }
+
+    // Keeps the first version recorded for the key and returns it
+    Chunk preserve(long key, Chunk chunk) {
+        Chunk previous = chunks.putIfAbsent(World.spread(key), chunk);
+        return previous != null ? previous : chunk;
+    }
+}
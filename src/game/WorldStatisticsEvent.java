@@ -0,0 +1,32 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+// Emitted periodically by Metrics; counters are totals since the world was created
+@Name("game.WorldStatistics")
+@Label("World Statistics")
+@Category("Game")
+@Period("1 s")
+@StackTrace(false)
+final class WorldStatisticsEvent extends jdk.jfr.Event {
+    @Label("Loaded Chunks")
+    int loadedChunks;
+
+    @Label("Chunk Loads")
+    long chunkLoads;
+
+    @Label("Chunk Evictions")
+    long chunkEvictions;
+
+    @Label("Block Writes")
+    @Description("Successful setBlock/compareAndSet calls that changed a cell")
+    long blockWrites;
+
+    @Label("Command Queue Depth")
+    int commandQueueDepth;
+}